@@ -0,0 +1,52 @@
+package frc.robot.cosmetics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+import edu.wpi.first.wpilibj.util.Color;
+import frc.robot.Constants.CosmeticConstants;
+
+/**
+ * What PwmLEDs.periodic() does for each mode when the frame changes. Time is
+ * stepped by one 20 ms loop per call.
+ */
+@State(Scope.Thread)
+public class LedPatternBenchmark {
+    private static final int LENGTH = CosmeticConstants.LIGHT_LENGTH;
+
+    private final AddressableLEDBuffer buffer = new AddressableLEDBuffer(LENGTH);
+    private final LedPattern wave = LedPattern.wave(LENGTH, Color.kGold, Color.kBlue, 10, 1);
+    private final LedPattern climb = LedPattern.climb(LENGTH, Color.kGold, Color.kBlue, 3, 5, 20);
+    private final LedPattern strobe = LedPattern.strobe(LENGTH, Color.kGold, Color.kBlack, 0.5, 0.25);
+    private double time = 0;
+
+    private void step(final LedPattern pattern) {
+        time += 0.02;
+        pattern.render(pattern.frameAt(time), buffer);
+    }
+
+    @Benchmark
+    public AddressableLEDBuffer wave() {
+        step(wave);
+        return buffer;
+    }
+
+    @Benchmark
+    public AddressableLEDBuffer climb() {
+        step(climb);
+        return buffer;
+    }
+
+    @Benchmark
+    public AddressableLEDBuffer strobe() {
+        step(strobe);
+        return buffer;
+    }
+
+    @Benchmark
+    public LedPattern buildWave() {
+        return LedPattern.wave(LENGTH, Color.kGold, Color.kBlue, 10, 1);
+    }
+}
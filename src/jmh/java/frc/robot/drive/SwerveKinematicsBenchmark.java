@@ -0,0 +1,61 @@
+package frc.robot.drive;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import frc.robot.Constants.DriveConstants;
+
+/**
+ * The kinematics behind DriveSubsystem.set(), compared with the WPILib path
+ * it replaced.
+ */
+@State(Scope.Thread)
+public class SwerveKinematicsBenchmark {
+    private static final int SAMPLES = 1024;
+
+    private final SwerveKinematicsSolver solver = new SwerveKinematicsSolver(DriveConstants.WHEEL_LOCATIONS);
+    private final SwerveDriveKinematics kinematics = new SwerveDriveKinematics(DriveConstants.WHEEL_LOCATIONS);
+
+    private final double[] xs = new double[SAMPLES];
+    private final double[] ys = new double[SAMPLES];
+    private final double[] rotations = new double[SAMPLES];
+    private final double[] headings = new double[SAMPLES];
+    private int index = 0;
+
+    @Setup
+    public void setup() {
+        final var random = new Random(157);
+        for (var i = 0; i < SAMPLES; i++) {
+            xs[i] = random.nextDouble() * 2 - 1;
+            ys[i] = random.nextDouble() * 2 - 1;
+            rotations[i] = random.nextDouble() * 2 - 1;
+            headings[i] = random.nextDouble() * 360 - 180;
+        }
+    }
+
+    @Benchmark
+    public void solver(final Blackhole blackhole) {
+        final var i = index++ & (SAMPLES - 1);
+        solver.solveFieldRelative(xs[i], ys[i], rotations[i], headings[i]);
+        for (var module = 0; module < solver.getModuleCount(); module++) {
+            blackhole.consume(solver.getSpeed(module));
+            blackhole.consume(solver.getAngleDegrees(module));
+        }
+    }
+
+    @Benchmark
+    public void wpilibKinematics(final Blackhole blackhole) {
+        final var i = index++ & (SAMPLES - 1);
+        final var speeds = ChassisSpeeds.fromFieldRelativeSpeeds(xs[i], ys[i], rotations[i],
+                Rotation2d.fromDegrees(headings[i]));
+        blackhole.consume(kinematics.toSwerveModuleStates(speeds));
+    }
+}
@@ -0,0 +1,36 @@
+package frc.robot.drive;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Angle optimisation each swerve pod runs every loop, without hardware. */
+@State(Scope.Thread)
+public class SwervePodAngleBenchmark {
+    private static final int SAMPLES = 1024;
+
+    private final double[] targets = new double[SAMPLES];
+    private final double[] currents = new double[SAMPLES];
+    private int index = 0;
+
+    @Setup
+    public void setup() {
+        final var random = new Random(157);
+        for (var i = 0; i < SAMPLES; i++) {
+            targets[i] = random.nextDouble() * 360;
+            currents[i] = random.nextDouble() * 360;
+        }
+    }
+
+    @Benchmark
+    public void shortestDelta(final Blackhole blackhole) {
+        final var i = index++ & (SAMPLES - 1);
+        final var initialDelta = SwervePod.computeInitialDelta(targets[i], currents[i]);
+        blackhole.consume(SwervePod.isReversed(initialDelta));
+        blackhole.consume(SwervePod.computeShortestDelta(initialDelta));
+    }
+}
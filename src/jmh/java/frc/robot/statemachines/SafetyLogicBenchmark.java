@@ -0,0 +1,74 @@
+package frc.robot.statemachines;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.assabet.aztechs157.numbers.Range;
+
+import frc.robot.Constants.CarriageConstants;
+import frc.robot.Constants.ElbowConstants;
+import frc.robot.Constants.ElevatorConstants;
+import frc.robot.Constants.WristConstants;
+import frc.robot.statemachines.SubsystemGroup.Goal;
+import frc.robot.statemachines.SubsystemGroup.SafetyLogic;
+
+/**
+ * The per-joint state calculations SubsystemGroup runs for one row of its
+ * goal table, fed with made up joint positions instead of sensors. Positions
+ * are spread around the presets, where the safety checks switch, and across
+ * each joint's limits, so the same branches run as on the robot.
+ */
+@State(Scope.Thread)
+public class SafetyLogicBenchmark {
+    private static final int SAMPLES = 1024;
+
+    @Param
+    public Goal goal;
+
+    private SafetyLogic[] joints;
+    private final double[] elbowPositions = new double[SAMPLES];
+    private final double[] wristPositions = new double[SAMPLES];
+    private final double[] elevatorPositions = new double[SAMPLES];
+    private final double[] carriagePositions = new double[SAMPLES];
+    private int index = 0;
+
+    @Setup
+    public void setup() {
+        joints = goal.joints;
+
+        final var random = new Random(157);
+        for (var i = 0; i < SAMPLES; i++) {
+            elbowPositions[i] = sample(random, SubsystemGroup.ELBOW, ElbowConstants.ROTATE_LIMITS);
+            wristPositions[i] = sample(random, SubsystemGroup.WRIST, WristConstants.ROTATE_LIMITS);
+            elevatorPositions[i] = sample(random, SubsystemGroup.ELEVATOR, ElevatorConstants.ELEVATOR_LIMITS);
+            carriagePositions[i] = sample(random, SubsystemGroup.CARRIAGE, CarriageConstants.CARRIAGE_LIMITS);
+        }
+    }
+
+    private static double sample(final Random random, final int joint, final Range limits) {
+        if (random.nextBoolean()) {
+            // Close to where one of the goals sends this joint
+            final var goals = Goal.values();
+            final var preset = goals[random.nextInt(goals.length)].joints[joint].getTarget();
+            return preset + random.nextGaussian() * limits.range() * 0.05;
+        }
+        // Anywhere in the limits, and a little past them either side
+        final var margin = limits.range() * 0.1;
+        return limits.start() - margin + random.nextDouble() * (limits.range() + 2 * margin);
+    }
+
+    @Benchmark
+    public void stateCalculate(final Blackhole blackhole) {
+        final var i = index++ & (SAMPLES - 1);
+        for (final var joint : joints) {
+            blackhole.consume(joint.stateCalculate(0.5, elbowPositions[i], wristPositions[i],
+                    elevatorPositions[i], carriagePositions[i]));
+        }
+    }
+}
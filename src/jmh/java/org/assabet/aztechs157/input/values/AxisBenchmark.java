@@ -0,0 +1,51 @@
+package org.assabet.aztechs157.input.values;
+
+import java.util.Random;
+
+import org.assabet.aztechs157.numbers.Deadzone;
+import org.assabet.aztechs157.numbers.Range;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The same shape of chain DriverInputs builds for drive rotation, with the
+ * joystick replaced by precomputed samples.
+ */
+@State(Scope.Thread)
+public class AxisBenchmark {
+    private static final int SAMPLES = 1024;
+
+    private final double[] inputs = new double[SAMPLES];
+    private int index = 0;
+    private double speedModifier = 0.5;
+
+    private final Deadzone deadzone = Deadzone.forAxis(new Range(-0.2, 0.2));
+    private final Axis raw = new Axis("Stick", () -> inputs[index++ & (SAMPLES - 1)]);
+    private final Axis chain = raw.map(deadzone::apply).scaledBy(() -> speedModifier).scaledBy(180);
+    private final Axis deadzoneChain = raw.deadzone(deadzone).scaledBy(0.8).scaledBy(65);
+
+    @Setup
+    public void setup() {
+        final var random = new Random(157);
+        for (var i = 0; i < SAMPLES; i++) {
+            inputs[i] = random.nextDouble() * 2 - 1;
+        }
+    }
+
+    @Benchmark
+    public double raw() {
+        return raw.get();
+    }
+
+    @Benchmark
+    public double chain() {
+        return chain.get();
+    }
+
+    @Benchmark
+    public double deadzoneChain() {
+        return deadzoneChain.get();
+    }
+}
@@ -0,0 +1,30 @@
+package org.assabet.aztechs157.numbers;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+public class DeadzoneBenchmark {
+    private static final int SAMPLES = 1024;
+
+    private final Deadzone deadzone = Deadzone.forAxis(new Range(-0.2, 0.2));
+    private final double[] inputs = new double[SAMPLES];
+    private int index = 0;
+
+    @Setup
+    public void setup() {
+        final var random = new Random(157);
+        for (var i = 0; i < SAMPLES; i++) {
+            inputs[i] = random.nextDouble() * 2 - 1;
+        }
+    }
+
+    @Benchmark
+    public double apply() {
+        return deadzone.apply(inputs[index++ & (SAMPLES - 1)]);
+    }
+}
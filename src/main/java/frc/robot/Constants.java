@@ -8,10 +8,15 @@ import org.assabet.aztechs157.numbers.Range;
 
 import com.revrobotics.CANSparkMax.IdleMode;
 
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Transform2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.trajectory.TrapezoidProfile;
 import edu.wpi.first.math.util.Units;
 import frc.robot.drive.SwervePod;
+import frc.robot.vision.CameraManager;
 
 /**
  * The Constants class provides a convenient place for teams to hold robot-wide
@@ -27,6 +32,32 @@ import frc.robot.drive.SwervePod;
  */
 public final class Constants {
 
+    public static class TelemetryConstants {
+        // Divides the 50 Hz loop down to 5 Hz for debug-only channels
+        public static final int DEBUG_RATE_DIVISOR = 10;
+
+        // Loops longer than this get a full timing breakdown printed
+        public static final long LOOP_BUDGET_NANOS = 20_000_000;
+        // Profiler summaries cover this many loops, once a second at 50 Hz
+        public static final int PROFILER_SUMMARY_LOOPS = 50;
+    }
+
+    public static class LogConstants {
+        public static final String LOG_DIRECTORY = "/home/lvuser/logs";
+        // Set to a recording's path to replay it in simulation
+        public static final String INPUT_REPLAY_ENV = "INPUT_REPLAY";
+        // Set to a file of recorded detections to feed them to pose estimation in simulation
+        public static final String VISION_REPLAY_ENV = "VISION_REPLAY";
+
+        // Samples waiting for the log writer, must be a power of two
+        public static final int SIGNAL_BUFFER_SIZE = 1 << 14;
+        public static final long WRITER_IDLE_NANOS = 10_000_000;
+        public static final long LOG_FILE_BYTES = 32L * 1024 * 1024;
+        public static final long LOG_DISK_BUDGET_BYTES = 512L * 1024 * 1024;
+        // Telemetry channels are logged every loop unless they ask otherwise
+        public static final int DEFAULT_LOG_DIVISOR = 1;
+    }
+
     public static class CosmeticConstants {
         public static final int LIGHT_ID = 0;
         public static final double SOLID_YELLOW_VALUE = 0.69;
@@ -42,6 +73,39 @@ public final class Constants {
         public static final double ANGLE_KP = 0.01;
         public static final double ANGLE_KD = 0.00009;
 
+        // Only switch to ONBOARD once STEER_GEARING and the gain below have been checked on the robot,
+        // a wrong gearing points every module the wrong way
+        public static final SwervePod.SteerControl STEER_CONTROL = SwervePod.SteerControl.RIO;
+        public static final double STEER_GEARING = 12.8;
+        // Duty cycle per degree, the same as ANGLE_KP. ANGLE_KD barely did anything so it isn't carried over
+        public static final double ANGLE_ONBOARD_KP = 0.01;
+        // How often the steering encoders are checked against the CANCoders, and how far off they can drift
+        public static final double STEER_RESYNC_SECONDS = 1;
+        public static final double STEER_RESYNC_TOLERANCE_DEG = 1.5;
+        // A turning wheel moves between the two reads, so only resync when it is nearly still
+        public static final double STEER_RESYNC_MAX_VELOCITY_DEG = 20;
+
+        // Stay on duty cycle until Characterize Drive has fit real gains, the placeholders below cost top speed
+        public static final SwervePod.DriveControl DRIVE_CONTROL = SwervePod.DriveControl.OPEN_LOOP;
+        // Drive feedforward in volts per meter per second, refit with Characterize Drive
+        public static final double DRIVE_KS = 0.15;
+        public static final double DRIVE_KV = 3.2;
+        public static final double DRIVE_KA = 0.3;
+        // Duty cycle per meter per second of error, runs on the SparkMax
+        public static final double DRIVE_VELOCITY_KP = 0.1;
+        // The SparkMax's default velocity filter lags by about 100 ms, too slow for a 1 kHz loop
+        public static final int DRIVE_VELOCITY_MEASUREMENT_PERIOD_MS = 16;
+        public static final int DRIVE_VELOCITY_AVERAGE_DEPTH = 2;
+
+        // Characterization runs, each ramp and step goes forwards then backwards
+        public static final double CHARACTERIZATION_RAMP_VOLTS_PER_SECOND = 0.25;
+        public static final double CHARACTERIZATION_RAMP_SECONDS = 7;
+        public static final double CHARACTERIZATION_STEP_VOLTS = 4;
+        public static final double CHARACTERIZATION_STEP_SECONDS = 1.5;
+        public static final double CHARACTERIZATION_REST_SECONDS = 1;
+        // Slower samples are mostly static friction and would skew kS
+        public static final double CHARACTERIZATION_MIN_VELOCITY = 0.05;
+
         public static final SwervePod.Config[] POD_CONFIGS = new SwervePod.Config[] {
                 new SwervePod.Config(1, 2, 3, false),
                 new SwervePod.Config(4, 5, 6, false),
@@ -62,6 +126,16 @@ public final class Constants {
         public static final double SLEW_ROTATE_VAL = 100;
         public static final double AUTO_SLEW_RATE = 1;
         public static final double AUTO_SLEW_ROTATE_VAL = 100;
+
+        // Odometry runs on its own thread, independent of the 20 ms scheduler loop
+        public static final double ODOMETRY_PERIOD_SECONDS = 1.0 / 250.0;
+
+        // The navX sends updates at this rate, up to 200
+        public static final int GYRO_UPDATE_RATE_HZ = 200;
+        // Updates kept, must be a power of two. Half can be looked up, about a second and a quarter at 200 Hz.
+        public static final int GYRO_HISTORY_SIZE = 512;
+        // Rates are worked out across this many updates
+        public static final int GYRO_RATE_SPAN = 4;
     }
 
     public static class AutoConstants {
@@ -72,6 +146,114 @@ public final class Constants {
         public static final double DRIVE_ACCURACY = 20;
         public static final double BALANCE_ACCURACY_DEG = 2.5;
         public static final double MAX_SPEED = 2.596896;
+
+        // Where the robot is placed for auto in the field frame, see FieldFrame. Rough, in line with the
+        // game piece nearest the field's edge. Red is the mirror image, facing the other way.
+        public static final double FIELD_LENGTH_METERS = 16.54;
+        public static final Pose2d BLUE_START_POSE = new Pose2d(1.9, 0.92, Rotation2d.fromDegrees(0));
+        public static final Pose2d RED_START_POSE = new Pose2d(FIELD_LENGTH_METERS - 1.9, 0.92,
+                Rotation2d.fromDegrees(180));
+
+        // Auto balance, speeds are fractions of full speed and tilts are nose up. Tuned against
+        // ChargeStationSim with the auto simulator.
+        public static final double BALANCE_TILT_FILTER_SECONDS = 0.1;
+        public static final double BALANCE_RATE_FILTER_SECONDS = 0.1;
+        public static final double BALANCE_APPROACH_SPEED = 0.35;
+        // Slower than this in m/s the approach direction can't be told from how the robot is moving
+        public static final double BALANCE_MIN_APPROACH_VELOCITY = 0.1;
+        // Give up if the ramp hasn't tipped the robot by then, about 2 m at the approach speed
+        public static final double BALANCE_APPROACH_TIMEOUT_SECONDS = 2.0;
+        // Tilted this far means the robot is on the ramp
+        public static final double BALANCE_CLIMB_TILT_DEG = 10;
+        public static final double BALANCE_CLIMB_SPEED = 0.08;
+        // The station has started tipping once tilt falls this fast, or this far below its peak
+        public static final double BALANCE_TIP_RATE_DEG_PER_SEC = 8;
+        public static final double BALANCE_TIP_DROP_DEG = 1;
+        // After a tip the robot backs off for longer the faster it was going, to cancel its momentum
+        public static final double BALANCE_BRAKE_SPEED = 0.2;
+        public static final double BALANCE_BRAKE_SECONDS_PER_MPS = 1.0;
+        public static final double BALANCE_MAX_BRAKE_SECONDS = 0.6;
+        // The station counts as still below this rate, and level within BALANCE_ACCURACY_DEG
+        public static final double BALANCE_STILL_RATE_DEG_PER_SEC = 3;
+        public static final double BALANCE_SETTLE_SECONDS = 0.5;
+        // Creeping uphill when the station comes to rest tilted, slowing as it starts to move
+        public static final double BALANCE_CORRECT_KP = 0.01;
+        public static final double BALANCE_CORRECT_KD = 0.01;
+        public static final double BALANCE_CORRECT_MAX_SPEED = 0.08;
+
+        // Trajectory following, speeds are in meters and radians
+        public static final double TRAJECTORY_MAX_VELOCITY = 2.0;
+        public static final double TRAJECTORY_MAX_ACCELERATION = 1.5;
+        public static final double TRAJECTORY_MAX_ANGULAR_VELOCITY = Math.PI;
+        public static final double TRAJECTORY_MAX_ANGULAR_ACCELERATION = Math.PI;
+        public static final double TRAJECTORY_XY_KP = 1.0;
+        public static final double TRAJECTORY_THETA_KP = 2.0;
+        public static final Pose2d TRAJECTORY_TOLERANCE = new Pose2d(0.05, 0.05, Rotation2d.fromDegrees(5));
+        // Give up on reaching the end this long after the trajectory's time is up, so a robot that
+        // can't get within tolerance doesn't hold up the rest of auto
+        public static final double TRAJECTORY_END_TIMEOUT_SECONDS = 1.0;
+    }
+
+    public static class VisionConstants {
+        // How much odometry is trusted, x and y in meters and heading in radians. Smaller is more trusted.
+        public static final double ODOMETRY_XY_STD_DEV = 0.1;
+        public static final double ODOMETRY_HEADING_STD_DEV = 0.05;
+        // For measurements that don't come with their own
+        public static final double DEFAULT_XY_STD_DEV = 0.5;
+        public static final double DEFAULT_HEADING_STD_DEV = 0.5;
+        // Measurements older than the estimator's pose history can't be replayed, so they're dropped
+        public static final double MAX_MEASUREMENT_AGE_SECONDS = 1.0;
+
+        // AprilTag detection on the driver camera, off unless turned on here
+        public static final boolean APRILTAG_ENABLED = false;
+        // Set to a directory of images to time the AprilTag pipeline on them instead of the camera
+        public static final String IMAGE_DIRECTORY_ENV = "VISION_IMAGES";
+        public static final int CAMERA_WIDTH = 320;
+        public static final int CAMERA_HEIGHT = 240;
+        public static final int CAMERA_FPS = 30;
+        // Camera intrinsics at the resolution above, in pixels
+        public static final double CAMERA_FX = 270;
+        public static final double CAMERA_FY = 270;
+        public static final double CAMERA_CX = CAMERA_WIDTH / 2.0;
+        public static final double CAMERA_CY = CAMERA_HEIGHT / 2.0;
+        public static final Transform2d ROBOT_TO_CAMERA = new Transform2d(
+                new Translation2d(Units.inchesToMeters(12), 0), Rotation2d.fromDegrees(0));
+
+        public static final String TAG_FAMILY = "tag16h5";
+        public static final double TAG_SIZE_METERS = Units.inchesToMeters(6);
+        // Detecting on a smaller image is much faster, at the cost of range
+        public static final float DECIMATION = 2;
+        public static final int DETECTOR_THREADS = 2;
+        // 16h5 gives false positives, weak detections and corrected bits are ignored
+        public static final double MIN_DECISION_MARGIN = 30;
+        public static final int MAX_HAMMING = 0;
+        // Position error grows with the square of the distance to the tag
+        public static final double XY_STD_DEV_PER_METER_SQUARED = 0.1;
+        // Heading from a single small tag is poor, mostly leave it to the gyro
+        public static final double TAG_HEADING_STD_DEV = 1.0;
+        public static final double STATS_PERIOD_SECONDS = 1.0;
+    }
+
+    public static class CameraConstants {
+        // Driver camera stream settings per mode. Quality is JPEG quality from 0 to 100, or -1 to pass the
+        // camera's own JPEGs through. Anything else makes the server recompress every frame, which costs CPU.
+        // While vision owns the camera the size is ignored and the stream stays at the capture size.
+        public static final CameraManager.Profile DISABLED_PROFILE = new CameraManager.Profile(160, 120, 5, 30);
+        public static final CameraManager.Profile AUTO_PROFILE = new CameraManager.Profile(160, 120, 15, -1);
+        public static final CameraManager.Profile TELEOP_PROFILE = new CameraManager.Profile(320, 240, 20, -1);
+
+        // Load is checked this often, and throttling moves at most one level each time
+        public static final double CHECK_PERIOD_SECONDS = 1.0;
+        // Throttle when either goes over its limit, and ease off once both are under their recover level
+        public static final long LOOP_THROTTLE_NANOS = 15_000_000;
+        public static final long LOOP_RECOVER_NANOS = 10_000_000;
+        public static final double CPU_THROTTLE_LOAD = 0.85;
+        public static final double CPU_RECOVER_LOAD = 0.65;
+        // How long load has to stay low before a throttle level is taken back
+        public static final double RECOVER_SECONDS = 5.0;
+        // Each level halves the stream's frame rate
+        public static final int MAX_THROTTLE_LEVEL = 3;
+        public static final int MIN_FPS = 2;
     }
 
     public static class IntakeConstants {
@@ -88,6 +270,13 @@ public final class Constants {
         public static final Range OLD_LIMITS = new Range(36, 179);
         public static final Range ROTATE_LIMITS = new Range(36, 179); // 280 is full max
 
+        // Motion profile in degrees, feedforward in volts per degree per second
+        public static final TrapezoidProfile.Constraints PROFILE = new TrapezoidProfile.Constraints(150, 500);
+        public static final double KP = 0.01;
+        public static final double KS = 0.1;
+        public static final double KV = 0.066;
+        public static final double TOLERANCE = 4;
+
         public static final double START_POS = toNewRange(140, OLD_LIMITS, ROTATE_LIMITS);// 140;
         public static final double LOW_POS = toNewRange(136, OLD_LIMITS, ROTATE_LIMITS);// 140;
         public static final double MID_POS = toNewRange(64, OLD_LIMITS, ROTATE_LIMITS);// 72;
@@ -114,6 +303,16 @@ public final class Constants {
         public static final Range OLD_LIMITS = new Range(60, 230);
         public static final Range ROTATE_LIMITS = new Range(107, 190); // 162 fully down, 336 fully up
 
+        // Motion profile in degrees, feedforward in volts per radian per second
+        public static final TrapezoidProfile.Constraints PROFILE = new TrapezoidProfile.Constraints(100, 300);
+        public static final double KP = 0.03;
+        public static final double KS = 0.1;
+        public static final double KG = 0.3;
+        public static final double KV = 5.7;
+        // Encoder reading with the arm level, for the gravity term
+        public static final double HORIZONTAL_DEG = 170;
+        public static final double TOLERANCE = 3;
+
         public static final double START_POS = toNewRange(230, OLD_LIMITS, ROTATE_LIMITS); // 230;
         public static final double LOW_POS = toNewRange(60, OLD_LIMITS, ROTATE_LIMITS);// 60;
         public static final double MID_POS = toNewRange(218, OLD_LIMITS, ROTATE_LIMITS);// 218;
@@ -164,8 +363,14 @@ public final class Constants {
         public static final double LOADING_POS = toNewRange(1520, OLD_LIMITS, ELEVATOR_LIMITS);
         public static final double HIGH_POS = toNewRange(1330, OLD_LIMITS, ELEVATOR_LIMITS);
 
-        public static final double SLEW_POSITIVE_VAL = 10;
-        public static final double SLEW_NEGATIVE_VAL = -1;
+        // Motion profile in sensor units, feedforward in volts per unit per second.
+        // Positions grow downwards, so gravity is held with negative output.
+        public static final TrapezoidProfile.Constraints PROFILE = new TrapezoidProfile.Constraints(400, 1500);
+        public static final double KP = 0.01;
+        public static final double KS = 0.1;
+        public static final double KG = -0.4;
+        public static final double KV = 0.024;
+        public static final double TOLERANCE = 10;
 
         public static final double SAFETY_ELBOW_LIMIT_START_MID = toNewRange(190, ElbowConstants.OLD_LIMITS,
                 ElbowConstants.ROTATE_LIMITS);// 190;
@@ -189,6 +394,14 @@ public final class Constants {
         public static final Range CARRIAGE_LIMITS = new Range(1390, 2520);
         public static final int CARRIAGE_ANALOG_ID = 0;
 
+        // Motion profile in sensor units, feedforward in volts per unit per second
+        public static final TrapezoidProfile.Constraints PROFILE = new TrapezoidProfile.Constraints(900, 3000);
+        public static final double KP = 0.01;
+        public static final double KS = 0.1;
+        public static final double KG = 0;
+        public static final double KV = 0.011;
+        public static final double TOLERANCE = 20;
+
         public static final double START_POS = toNewRange(2165, OLD_LIMITS, CARRIAGE_LIMITS);// 2015;
         public static final double LOW_POS = toNewRange(3430, OLD_LIMITS, CARRIAGE_LIMITS);// 3350;
         public static final double MID_POS = toNewRange(3430, OLD_LIMITS, CARRIAGE_LIMITS);// 3350;
@@ -207,6 +420,71 @@ public final class Constants {
                 ElbowConstants.ROTATE_LIMITS);// 103;
     }
 
+    public static class PlannerConstants {
+        // Indexed elevator, carriage, elbow, wrist. Plans are timed with each joint's own motion
+        // profile and followed with its feedforward and gains.
+        public static final TrapezoidProfile.Constraints[] JOINT_PROFILES = { ElevatorConstants.PROFILE,
+                CarriageConstants.PROFILE, ElbowConstants.PROFILE, WristConstants.PROFILE };
+        public static final double[] TRACKING_TOLERANCES = { 20, 40, 5, 6 };
+
+        // How far past a blocking threshold a joint is parked to let another through
+        public static final double[] VIA_MARGINS = { 10, 20, 3, 3 };
+        public static final int MAX_VIA_POINTS = 4;
+        public static final int MAX_PLAN_EVENTS = 64;
+        // A plan that hasn't been tracked for this long is dropped for the reactive safety logic
+        public static final double STALL_SECONDS = 1.0;
+    }
+
+    public static class SimConstants {
+        // Rough physical models, only used in simulation
+        public static final double SWERVE_DRIVE_GEARING = 8.14;
+        public static final double SWERVE_DRIVE_MOI = 0.032;
+        public static final double SWERVE_STEER_GEARING = DriveConstants.STEER_GEARING;
+        public static final double SWERVE_STEER_MOI = 0.004;
+
+        public static final double ELEVATOR_GEARING = 20;
+        public static final double ELEVATOR_MASS_KG = 5;
+        public static final double ELEVATOR_DRUM_RADIUS_METERS = 0.02;
+        // Sensor units per meter of travel, negative because the sensor reads smaller going up
+        public static final double ELEVATOR_UNITS_PER_METER = -760;
+
+        public static final double CARRIAGE_GEARING = 12;
+        public static final double CARRIAGE_MASS_KG = 3;
+        public static final double CARRIAGE_DRUM_RADIUS_METERS = 0.02;
+        public static final double CARRIAGE_UNITS_PER_METER = 2260;
+
+        // Lets the models travel a little past the soft limits, like the real joints
+        public static final double LIFT_RANGE_MARGIN = 100;
+        public static final double ARM_RANGE_MARGIN_DEG = 10;
+
+        public static final double ELBOW_GEARING = 100;
+        public static final double ELBOW_LENGTH_METERS = 0.8;
+        public static final double ELBOW_MASS_KG = 4;
+
+        public static final double WRIST_GEARING = 60;
+        public static final double WRIST_LENGTH_METERS = 0.25;
+        public static final double WRIST_MASS_KG = 2;
+
+        // Standard deviation of the noise added to each sensor by the auto simulator
+        public static final double LIFT_NOISE = 3;
+        public static final double ARM_NOISE_DEG = 0.5;
+        public static final double POD_ANGLE_NOISE_DEG = 0.5;
+        public static final double GYRO_NOISE_DEG = 0.2;
+
+        // Charge station, measured from where the robot starts
+        public static final double CHARGE_STATION_CENTER_X = 2.1;
+        public static final double CHARGE_STATION_WIDTH = 2.47;
+        public static final double CHARGE_STATION_PLATFORM_DEPTH = 1.22;
+        public static final double CHARGE_STATION_RAMP_DEPTH = 0.36;
+        public static final double CHARGE_STATION_MAX_TILT_DEG = 15;
+        public static final double CHARGE_STATION_MOI = 4.3;
+        // Resistance to tipping, in newton meters per radian per second, and the hinge's friction in
+        // newton meters. The friction lets the platform stay level with the robot close to the middle.
+        public static final double CHARGE_STATION_DAMPING = 300;
+        public static final double CHARGE_STATION_FRICTION = 60;
+        public static final double ROBOT_MASS_KG = 60;
+    }
+
     // TODO may not work if start is the smaller value, fix this before using on the
     // elevator
     public static double toNewRange(double oldVal, Range oldRange, Range newRange) {
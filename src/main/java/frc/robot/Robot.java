@@ -4,11 +4,24 @@
 
 package frc.robot;
 
+import java.nio.file.Path;
+
+import org.assabet.aztechs157.input.InputSnapshot;
+import org.assabet.aztechs157.input.replay.InputRecorder;
+import org.assabet.aztechs157.input.replay.InputReplayer;
+
+import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj.util.Color;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.Constants.LogConstants;
 import frc.robot.cosmetics.PwmLEDs;
+import frc.robot.sim.RobotSim;
+import frc.robot.telemetry.LoopProfiler;
+import frc.robot.telemetry.SignalLogger;
+import frc.robot.telemetry.Telemetry;
+import frc.robot.vision.RecordedVisionSource;
 
 /**
  * The VM is configured to automatically run this class, and to call the
@@ -24,6 +37,15 @@ public class Robot extends TimedRobot {
 
     private RobotContainer m_robotContainer;
 
+    private InputRecorder inputRecorder = null;
+    private InputReplayer inputReplayer = null;
+    private RobotSim robotSim = null;
+
+    private final LoopProfiler.Section inputsSection = LoopProfiler.section("InputSnapshot.sample()");
+    private final LoopProfiler.Section sensorsSection = LoopProfiler.section("SensorSnapshot.sample()");
+    private final LoopProfiler.Section schedulerSection = LoopProfiler.section("CommandScheduler.run()");
+    private final LoopProfiler.Section telemetrySection = LoopProfiler.section("Telemetry.flush()");
+
     /**
      * This function is run when the robot is first started up and should be used
      * for any
@@ -35,6 +57,25 @@ public class Robot extends TimedRobot {
         // and put our
         // autonomous chooser on the dashboard.
         m_robotContainer = new RobotContainer();
+        m_robotContainer.autos.prepare();
+
+        // Log signals and driver input on the robot, or play a recording back in
+        // simulation
+        final var replay = System.getenv(LogConstants.INPUT_REPLAY_ENV);
+        if (RobotBase.isReal()) {
+            SignalLogger.start(Path.of(LogConstants.LOG_DIRECTORY));
+            inputRecorder = InputRecorder.start(Path.of(LogConstants.LOG_DIRECTORY));
+        } else if (replay != null) {
+            inputReplayer = InputReplayer.open(Path.of(replay));
+        }
+
+        final var visionReplay = System.getenv(LogConstants.VISION_REPLAY_ENV);
+        if (RobotBase.isSimulation() && visionReplay != null) {
+            final var source = RecordedVisionSource.open(Path.of(visionReplay));
+            if (source != null) {
+                m_robotContainer.addVisionSource(source);
+            }
+        }
     }
 
     /**
@@ -49,6 +90,26 @@ public class Robot extends TimedRobot {
      */
     @Override
     public void robotPeriodic() {
+        LoopProfiler.startLoop();
+
+        // Joysticks are read once here, every input read this loop is an array
+        // lookup
+        inputsSection.start();
+        if (inputReplayer != null) {
+            inputReplayer.step();
+        }
+        InputSnapshot.sample();
+        if (inputRecorder != null) {
+            inputRecorder.record();
+        }
+        inputsSection.stop();
+
+        // Read every sensor once so subsystems and commands all see the same values
+        // for the rest of this loop
+        sensorsSection.start();
+        m_robotContainer.sensors.sample();
+        sensorsSection.stop();
+
         // Runs the Scheduler. This is responsible for polling buttons, adding
         // newly-scheduled
         // commands, running already-scheduled commands, removing finished or
@@ -56,7 +117,16 @@ public class Robot extends TimedRobot {
         // and running subsystem periodic() methods. This must be called from the
         // robot's periodic
         // block in order for anything in the Command-based framework to work.
+        schedulerSection.start();
         CommandScheduler.getInstance().run();
+        schedulerSection.stop();
+
+        // Send everything buffered during this loop to NetworkTables in one batch
+        telemetrySection.start();
+        Telemetry.flush();
+        telemetrySection.stop();
+
+        LoopProfiler.endLoop();
     }
 
     /** This function is called once each time the robot enters Disabled mode. */
@@ -68,6 +138,8 @@ public class Robot extends TimedRobot {
 
     @Override
     public void disabledPeriodic() {
+        // Build autos in the background so autonomousInit doesn't have to
+        m_robotContainer.autos.prepare();
     }
 
     /**
@@ -76,6 +148,9 @@ public class Robot extends TimedRobot {
      */
     @Override
     public void autonomousInit() {
+        // Seed the pose here rather than while disabled, so teleop after auto
+        // keeps where the robot ended up
+        m_robotContainer.startAuto();
         m_autonomousCommand = m_robotContainer.getAutonomousCommand();
 
         // schedule the autonomous command (example)
@@ -119,10 +194,12 @@ public class Robot extends TimedRobot {
     /** This function is called once when the robot is first started up. */
     @Override
     public void simulationInit() {
+        robotSim = m_robotContainer.createSimulation();
     }
 
     /** This function is called periodically whilst in simulation. */
     @Override
     public void simulationPeriodic() {
+        robotSim.update(getPeriod());
     }
 }
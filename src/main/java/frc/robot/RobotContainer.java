@@ -6,10 +6,14 @@
 
 package frc.robot;
 
+import frc.robot.Constants.VisionConstants;
+import frc.robot.auto.AutoRegistry;
+import frc.robot.auto.FieldFrame;
 import frc.robot.cosmetics.PwmLEDs;
 import frc.robot.drive.AutoBalance;
 import frc.robot.drive.AutoDrive;
 import frc.robot.drive.DriveSubsystem;
+import frc.robot.drive.FollowTrajectory;
 import frc.robot.drive.FullDrive;
 import frc.robot.drive.DriveSubsystem.AutoDriveLineBuilder;
 import frc.robot.elbow.ElbowSubsystem;
@@ -18,19 +22,35 @@ import frc.robot.intake.IntakeSubsystem;
 import frc.robot.wrist.WristSubsystem;
 import frc.robot.lift.CarriageSubsystem;
 import frc.robot.lift.ElevatorSubsystem;
+import frc.robot.sensors.SensorSnapshot;
+import frc.robot.sim.RobotSim;
 import frc.robot.statemachines.SubsystemGroup;
+import frc.robot.statemachines.SubsystemGroup.Goal;
+import frc.robot.telemetry.LoopProfiler;
+import frc.robot.telemetry.Timeline;
+import frc.robot.vision.AprilTagVision;
+import frc.robot.vision.CameraManager;
+import frc.robot.vision.VisionSource;
+import org.assabet.aztechs157.input.values.Button;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
 import edu.wpi.first.cameraserver.CameraServer;
+import edu.wpi.first.cscore.MjpegServer;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.wpilibj.DoubleSolenoid;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.DriverStation.Alliance;
 import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
-import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.ParallelCommandGroup;
 import edu.wpi.first.wpilibj2.command.ParallelRaceGroup;
-import edu.wpi.first.wpilibj2.command.ProxyCommand;
 import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
 import edu.wpi.first.wpilibj2.command.WaitCommand;
 import edu.wpi.first.wpilibj2.command.button.Trigger;
@@ -56,7 +76,11 @@ public class RobotContainer {
     private final SubsystemGroup group = new SubsystemGroup(elevatorSubsystem, carriageSubsystem, elbowSubsystem,
             wristSubsystem);
 
+    public final SensorSnapshot sensors = new SensorSnapshot(driveSubsystem, intakeSubsystem, wristSubsystem,
+            elbowSubsystem, elevatorSubsystem, carriageSubsystem);
+
     private final DriverInputs driverInputs = new DriverInputs();
+    private final CameraManager cameraManager;
 
     /**
      * The container for the robot. Contains subsystems, OI devices, and commands.
@@ -64,17 +88,29 @@ public class RobotContainer {
     public RobotContainer() {
         // Configure the trigger bindings
         configureBindings();
-        CameraServer.startAutomaticCapture();
+        final var camera = CameraServer.startAutomaticCapture();
+        cameraManager = new CameraManager(camera, (MjpegServer) CameraServer.getServer(),
+                !VisionConstants.APRILTAG_ENABLED);
+        final var imageDirectory = System.getenv(VisionConstants.IMAGE_DIRECTORY_ENV);
+        if (imageDirectory != null) {
+            // Only for timing the pipeline, the poses don't mean anything
+            AprilTagVision.fromImages(Path.of(imageDirectory));
+        } else if (VisionConstants.APRILTAG_ENABLED) {
+            driveSubsystem.addVisionSource(AprilTagVision.fromCamera(camera));
+        }
 
-        driveSubsystem.setDefaultCommand(new FullDrive(driveSubsystem, driverInputs));
+        driveSubsystem.setDefaultCommand(
+                LoopProfiler.profiled("FullDrive", new FullDrive(driveSubsystem, driverInputs)));
 
-        wristSubsystem.setDefaultCommand(wristSubsystem.runWrist(driverInputs));
-        elbowSubsystem.setDefaultCommand(elbowSubsystem.runElbow(driverInputs));
+        wristSubsystem.setDefaultCommand(LoopProfiler.profiled("RunWrist", wristSubsystem.runWrist(driverInputs)));
+        elbowSubsystem.setDefaultCommand(LoopProfiler.profiled("RunElbow", elbowSubsystem.runElbow(driverInputs)));
 
-        elevatorSubsystem.setDefaultCommand(elevatorSubsystem.runElevator(driverInputs));
-        carriageSubsystem.setDefaultCommand(carriageSubsystem.runCarriage(driverInputs));
+        elevatorSubsystem.setDefaultCommand(
+                LoopProfiler.profiled("RunElevator", elevatorSubsystem.runElevator(driverInputs)));
+        carriageSubsystem.setDefaultCommand(
+                LoopProfiler.profiled("RunCarriage", carriageSubsystem.runCarriage(driverInputs)));
 
-        intakeSubsystem.setDefaultCommand(intakeSubsystem.runIntake(driverInputs));
+        intakeSubsystem.setDefaultCommand(LoopProfiler.profiled("RunIntake", intakeSubsystem.runIntake(driverInputs)));
     }
 
     /**
@@ -87,32 +123,59 @@ public class RobotContainer {
      * Flight joysticks.
      */
     private void configureBindings() {
-        driverInputs.button(DriverInputs.autoBalance).whileHeld(new AutoBalance(driveSubsystem));
-        driverInputs.button(DriverInputs.lowPosition).whileHeld(group.lowPosCommand(1));
-        driverInputs.button(DriverInputs.midPosition).whileHeld(group.midPosConeCommand(1));
-        driverInputs.button(DriverInputs.loadingPosition).whileHeld(group.loadingPosCommand(1));
-        driverInputs.button(DriverInputs.highPosition).whileHeld(group.highPosCommand(1));
-        driverInputs.button(DriverInputs.startPosition).whileHeld(group.startingPosCommand(1));
-        driverInputs.button(DriverInputs.setIntakeSolenoidForward)
-                .whenPressed(intakeSubsystem.setSolenoid(DoubleSolenoid.Value.kForward));
-        driverInputs.button(DriverInputs.setIntakeSolenoidBackward)
-                .whenPressed(intakeSubsystem.setSolenoid(DoubleSolenoid.Value.kReverse));
+        bind(DriverInputs.autoBalance, Button::whileHeld, "AutoBalance", new AutoBalance(driveSubsystem));
+        bind(DriverInputs.lowPosition, Button::whileHeld, "Position LOW", group.positionCommand(Goal.LOW, 1));
+        bind(DriverInputs.midPosition, Button::whileHeld, "Position MID", group.positionCommand(Goal.MID, 1));
+        bind(DriverInputs.loadingPosition, Button::whileHeld, "Position LOADING",
+                group.positionCommand(Goal.LOADING, 1));
+        bind(DriverInputs.highPosition, Button::whileHeld, "Position HIGH", group.positionCommand(Goal.HIGH, 1));
+        bind(DriverInputs.startPosition, Button::whileHeld, "Position START", group.positionCommand(Goal.START, 1));
+        bind(DriverInputs.setIntakeSolenoidForward, Button::whenPressed, "Intake Solenoid Forward",
+                intakeSubsystem.setSolenoid(DoubleSolenoid.Value.kForward));
+        bind(DriverInputs.setIntakeSolenoidBackward, Button::whenPressed, "Intake Solenoid Backward",
+                intakeSubsystem.setSolenoid(DoubleSolenoid.Value.kReverse));
+    }
+
+    // Bound commands are profiled like the default commands, they're most of what runs in teleop
+    private void bind(final Button.Key key, final BiConsumer<Button, Command> binding, final String name,
+            final Command command) {
+        binding.accept(driverInputs.button(key), LoopProfiler.profiled(name, command));
     }
 
-    public SendableChooser<Command> chooser = new SendableChooser<>();
+    // Routines are built lazily while disabled, see AutoRegistry
+    public final AutoRegistry autos = new AutoRegistry();
     {
-        Shuffleboard.getTab("Driver").add("Auto Choose", chooser);
-        chooser.setDefaultOption("scoreHighThenLeaveCommunityThenEngage", scoreHighThenLeaveCommunityThenEngage());
-        chooser.addOption("WristDownThenEjectThenRunDistance", WristDownThenEjectThenRunDistance());
-        chooser.addOption("WristDownThenEjectThenPoorlyDock", WristDownThenEjectThenPoorlyDock());
-        chooser.addOption("WristDownThenEjectThenBetterDock", WristDownThenEjectThenBetterDock());
-        chooser.addOption("WristDownThenEjectThenLeaveCommunityThenBetterDock",
-                WristDownThenEjectThenLeaveCommunityThenBetterDock());
-        chooser.addOption("scoreHighThenRunDistance", scoreHighThenRunDistance());
-        chooser.addOption("scoreHighThenEngage", scoreHighThenEngage());
-        chooser.addOption("leaveCommunityThenEngage", leaveCommunityThenEngage());
-        chooser.addOption("everythingIsBrokenDoNothing", new InstantCommand(() -> System.out.println(":(")));
-        chooser.addOption("twoPiecethenEngage", TwoPieceThenEngage());
+        Shuffleboard.getTab("Driver").add("Auto Choose", autos.getChooser());
+        autos.setDefault("scoreHighThenLeaveCommunityThenEngage", this::scoreHighThenLeaveCommunityThenEngage);
+        autos.add("WristDownThenEjectThenRunDistance", this::WristDownThenEjectThenRunDistance);
+        autos.add("WristDownThenEjectThenPoorlyDock", this::WristDownThenEjectThenPoorlyDock);
+        autos.add("WristDownThenEjectThenBetterDock", this::WristDownThenEjectThenBetterDock);
+        autos.add("WristDownThenEjectThenLeaveCommunityThenBetterDock",
+                this::WristDownThenEjectThenLeaveCommunityThenBetterDock);
+        autos.add("scoreHighThenRunDistance", this::scoreHighThenRunDistance);
+        autos.add("scoreHighThenEngage", this::scoreHighThenEngage);
+        autos.add("leaveCommunityThenEngage", this::leaveCommunityThenEngage);
+        autos.add("everythingIsBrokenDoNothing", () -> new InstantCommand(() -> System.out.println(":(")));
+        autos.add("twoPiecethenEngage", this::TwoPieceThenEngage);
+        autos.add("TwoPieceThenEngageWithOdometry", alliance -> () -> TwoPieceThenEngageWithOdometry(alliance));
+        autos.add("TwoPieceThenEngageWithTrajectory", this::TwoPieceThenEngageWithTrajectory);
+    }
+
+    public void addVisionSource(final VisionSource source) {
+        driveSubsystem.addVisionSource(source);
+    }
+
+    /** @return Physics for every mechanism, only for use in simulation */
+    public RobotSim createSimulation() {
+        return new RobotSim(driveSubsystem, elevatorSubsystem, carriageSubsystem, elbowSubsystem, wristSubsystem);
+    }
+
+    /**
+     * Seed the drive's pose at the alliance's start pose. Call before the auto
+     * is scheduled.
+     */
+    public void startAuto() {
+        driveSubsystem.startAuto(FieldFrame.startPose(DriverStation.getAlliance()));
     }
 
     /**
@@ -122,14 +185,24 @@ public class RobotContainer {
      */
     public Command getAutonomousCommand() {
         // return scoreHighThenLeaveCommunityThenEngage();
-        return new ProxyCommand(chooser::getSelected);
+        return autos.getSelected();
     }
 
     // Do not use unless very specific case calls for it (IE: ONLY DRIVE IS WORKING,
     // IN WHICH CASE YOU SHOULD BE PANICKING)
     public Command runDistanceWithSpeeds(double x, double y, double dist) {
-        return driveSubsystem.resetDrivePositionCommand()
-                .andThen(driveSubsystem.driveRawDistanceCommand(new ChassisSpeeds(x, y, 0), dist));
+        return Timeline.stage(driveSubsystem.resetDrivePositionCommand()
+                .andThen(driveSubsystem.driveRawDistanceCommand(new ChassisSpeeds(x, y, 0), dist))
+                .withName("Drive " + dist));
+    }
+
+    private Command autoBalance() {
+        return Timeline.stage(new AutoBalance(driveSubsystem));
+    }
+
+    // For autos that know which way they reach the station
+    private Command autoBalance(final double approachDirection) {
+        return Timeline.stage(new AutoBalance(driveSubsystem, approachDirection));
     }
 
     // Do not use unless very specific case calls for it (INCASE WE WANT TO SCORE
@@ -157,7 +230,7 @@ public class RobotContainer {
         return driveSubsystem.addGyroOffset(180.0f).andThen(wristSubsystem.turnDownToPos(75))
                 .andThen(intakeSubsystem.ejectCargo().withTimeout(0.5))
                 .andThen(runDistanceWithSpeeds(-0.5, 0.0, 3000.0).withTimeout(1.75))
-                .andThen(new AutoBalance(driveSubsystem));
+                .andThen(autoBalance());
     }
 
     // Do not use unless very specific case calls for it (IE: OUR STATES AREN'T
@@ -167,15 +240,15 @@ public class RobotContainer {
                 .andThen(intakeSubsystem.ejectCargo().withTimeout(0.5))
                 .andThen(runDistanceWithSpeeds(-0.5, 0.0, 6000.0).withTimeout(2.9))
                 .andThen(runDistanceWithSpeeds(0.5, 0.0, -3000.0).withTimeout(1.85))
-                .andThen(new AutoBalance(driveSubsystem));
+                .andThen(autoBalance());
     }
 
     // SCORES A CUBE HIGH THEN LEAVES COMMUNITY
     public Command scoreHighThenRunDistance() {
         return new SequentialCommandGroup(driveSubsystem.addGyroOffset(180),
-                group.midPosConeCommand(1).withTimeout(1.3),
+                group.positionCommand(Goal.MID, 1).withTimeout(1.3),
                 intakeSubsystem.runMotor(-1).withTimeout(0.3),
-                group.startingPosCommand(1).withTimeout(1.4),
+                group.positionCommand(Goal.START, 1).withTimeout(1.4),
                 runDistanceWithSpeeds(-0.3, 0.0, 3000.0).withTimeout(4.2));
     }
 
@@ -183,23 +256,23 @@ public class RobotContainer {
     // COMMUNITY
     public Command scoreHighThenEngage() {
         return new SequentialCommandGroup(driveSubsystem.addGyroOffset(180),
-                group.midPosConeCommand(1).withTimeout(1.3),
+                group.positionCommand(Goal.MID, 1).withTimeout(1.3),
                 intakeSubsystem.runMotor(-1).withTimeout(0.3),
-                group.startingPosCommand(1).withTimeout(1.4),
+                group.positionCommand(Goal.START, 1).withTimeout(1.4),
                 runDistanceWithSpeeds(-0.5, 0.0, -3000.0).withTimeout(1.75),
-                new AutoBalance(driveSubsystem));
+                autoBalance());
     }
 
     // SCORES A CUBE HIGH THEN LEAVES COMMUNITY THEN ENGAGES ON CHARING PLATFORM
     public Command scoreHighThenLeaveCommunityThenEngage() {
         return new SequentialCommandGroup(driveSubsystem.addGyroOffset(180),
-                group.highPosCommand(1).withTimeout(1.3),
+                group.positionCommand(Goal.HIGH, 1).withTimeout(1.3),
                 intakeSubsystem.runMotor(-1).withTimeout(0.4),
-                group.startingPosCommand(1).withTimeout(1.4),
+                group.positionCommand(Goal.START, 1).withTimeout(1.4),
                 wristSubsystem.stopWrist(),
                 runDistanceWithSpeeds(-0.5, 0.0, 6000.0).withTimeout(2.9),
                 runDistanceWithSpeeds(0.5, 0.0, -3000.0).withTimeout(1.85),
-                new AutoBalance(driveSubsystem));
+                autoBalance());
     }
 
     public Command leaveCommunityThenEngage() {
@@ -207,7 +280,7 @@ public class RobotContainer {
                 driveSubsystem.addGyroOffset(180),
                 runDistanceWithSpeeds(-0.5, 0.0, 6000.0).withTimeout(2.9),
                 runDistanceWithSpeeds(0.5, 0.0, -3000.0).withTimeout(1.85),
-                new AutoBalance(driveSubsystem));
+                autoBalance());
     }
 
     public Command TwoPieceThenEngage() {
@@ -215,26 +288,26 @@ public class RobotContainer {
         // Figure out what side this works on, then mirror it for the opposite color
         return new SequentialCommandGroup(intakeSubsystem.intake(-1).withTimeout(0.75),
                 new ParallelCommandGroup(driveSubsystem.driveWithRotation(0, 1, 0),
-                        group.lowPosCommand(1),
+                        group.positionCommand(Goal.LOW, 1),
                         intakeSubsystem.intake(1)),
                 new ParallelCommandGroup(driveSubsystem.driveWithRotation(180, -1, 0),
-                        group.startingPosCommand(1),
+                        group.positionCommand(Goal.START, 1),
                         intakeSubsystem.intake(0.1)).withTimeout(3),
-                group.highPosCommand(1).withTimeout(1.3),
+                group.positionCommand(Goal.HIGH, 1).withTimeout(1.3),
                 intakeSubsystem.ejectCargo().withTimeout(0.5),
-                new ParallelCommandGroup(group.startingPosCommand(1),
+                new ParallelCommandGroup(group.positionCommand(Goal.START, 1),
                         new WaitCommand(0.5).andThen(driveSubsystem.driveWithRotation(0, 0.5, .5)))
                         .withTimeout(0.5 + 1.75), // first value is the wait, second value is the drive time, and maybe
                 // increase Y to adjust for charge station (if hit charge station
                 // side, increase Y) maybe add a forward to get further up platform
-                new AutoBalance(driveSubsystem));
+                autoBalance());
     }
 
-    public Command TwoPieceWithOdometry() {
-        double allySideMultiplier = DriverStation.getAlliance().compareTo(Alliance.Red) == 0 ? 1 : -1;
+    public Command TwoPieceWithOdometry(Alliance alliance) {
+        double allySideMultiplier = alliance.compareTo(Alliance.Red) == 0 ? 1 : -1;
         return new SequentialCommandGroup(intakeSubsystem.intake(-1).withTimeout(0.75),
                 new ParallelRaceGroup(
-                        group.lowPosCommand(1),
+                        group.positionCommand(Goal.LOW, 1),
                         intakeSubsystem.intake(1),
                         new AutoDrive(driveSubsystem,
                                 new AutoDriveLineBuilder(5, 0 * allySideMultiplier, 0 * allySideMultiplier)
@@ -242,22 +315,22 @@ public class RobotContainer {
                                         .startRotAtX(3.25)
                                         .useSlewXY(true)
                                         .xTolerance(0.05))),
-                new ParallelRaceGroup(group.startingPosCommand(1),
+                new ParallelRaceGroup(group.positionCommand(Goal.START, 1),
                         intakeSubsystem.intake(0.1),
                         new AutoDrive(driveSubsystem,
                                 new AutoDriveLineBuilder(0, 0 * allySideMultiplier, 180 * allySideMultiplier)
                                         .xTolerance(0.05)
                                         .useSlewAll(true))),
-                group.highPosCommand(1).withTimeout(1.3),
+                group.positionCommand(Goal.HIGH, 1).withTimeout(1.3),
                 intakeSubsystem.intake(-1).withTimeout(0.5),
-                group.startingPosCommand(1));
+                group.positionCommand(Goal.START, 1));
     }
 
-    public Command TwoPieceThenEngageWithOdometry() {
-        double allySideMultiplier = DriverStation.getAlliance().compareTo(Alliance.Red) == 0 ? 1 : -1;
+    public Command TwoPieceThenEngageWithOdometry(Alliance alliance) {
+        double allySideMultiplier = alliance.compareTo(Alliance.Red) == 0 ? 1 : -1;
         return new SequentialCommandGroup(intakeSubsystem.intake(-1).withTimeout(0.75),
                 new ParallelRaceGroup(
-                        group.lowPosCommand(1),
+                        group.positionCommand(Goal.LOW, 1),
                         intakeSubsystem.intake(1),
                         new AutoDrive(driveSubsystem,
                                 new AutoDriveLineBuilder(5, 0 * allySideMultiplier, 0 * allySideMultiplier)
@@ -265,15 +338,15 @@ public class RobotContainer {
                                         .startRotAtX(3.25)
                                         .useSlewXY(true)
                                         .xTolerance(0.05))),
-                new ParallelRaceGroup(group.startingPosCommand(1),
+                new ParallelRaceGroup(group.positionCommand(Goal.START, 1),
                         intakeSubsystem.intake(0.1),
                         new AutoDrive(driveSubsystem,
                                 new AutoDriveLineBuilder(0, 0 * allySideMultiplier, 180 * allySideMultiplier)
                                         .xTolerance(0.05)
                                         .useSlewAll(true))),
-                group.highPosCommand(1).withTimeout(1.3),
+                group.positionCommand(Goal.HIGH, 1).withTimeout(1.3),
                 intakeSubsystem.intake(-1).withTimeout(0.5),
-                new ParallelRaceGroup(group.startingPosCommand(1),
+                new ParallelRaceGroup(group.positionCommand(Goal.START, 1),
                         new AutoDrive(driveSubsystem,
                                 new AutoDriveLineBuilder(1.75, -1.75 * allySideMultiplier, 0 * allySideMultiplier)
                                         .startTime(0.5)
@@ -283,7 +356,45 @@ public class RobotContainer {
                                         .maxXSpeed(0.5)
                                         .usePidX(false)
                                         .xTolerance(0.1))),
-                new AutoBalance(driveSubsystem));
+                autoBalance(1));
+    }
+
+    // Same route as TwoPieceThenEngageWithOdometry, but each leg is one continuous
+    // trajectory instead of a line with start gates. Generating the trajectories
+    // is the slow part, so it happens here on the auto builder thread and the
+    // returned supplier only composes the commands. Points are written relative
+    // to the start and converted to the field frame the trajectories run in.
+    public Supplier<Command> TwoPieceThenEngageWithTrajectory(Alliance alliance) {
+        double allySideMultiplier = alliance.compareTo(Alliance.Red) == 0 ? 1 : -1;
+        final var toGamePiece = FollowTrajectory.generate(
+                FieldFrame.toField(alliance, new Pose2d(0, 0, Rotation2d.fromDegrees(0))),
+                List.of(),
+                FieldFrame.toField(alliance, new Pose2d(5, 0, Rotation2d.fromDegrees(0))));
+        final var toGrid = FollowTrajectory.generate(
+                FieldFrame.toField(alliance, new Pose2d(5, 0, Rotation2d.fromDegrees(180))),
+                List.of(),
+                FieldFrame.toField(alliance, new Pose2d(0, 0, Rotation2d.fromDegrees(180))));
+        final var toChargeStation = FollowTrajectory.generate(
+                FieldFrame.toField(alliance, new Pose2d(0, 0, Rotation2d.fromDegrees(-60 * allySideMultiplier))),
+                List.of(FieldFrame.toField(alliance, new Translation2d(0.25, -0.5 * allySideMultiplier))),
+                FieldFrame.toField(alliance, new Pose2d(1.75, -1.75 * allySideMultiplier, Rotation2d.fromDegrees(0))));
+        final var forwards = FieldFrame.toField(alliance, Rotation2d.fromDegrees(0));
+        final var backwards = FieldFrame.toField(alliance, Rotation2d.fromDegrees(180 * allySideMultiplier));
+
+        return () -> new SequentialCommandGroup(intakeSubsystem.intake(-1).withTimeout(0.75),
+                new ParallelRaceGroup(
+                        group.positionCommand(Goal.LOW, 1),
+                        intakeSubsystem.intake(1),
+                        new FollowTrajectory(driveSubsystem, toGamePiece, forwards)),
+                new ParallelRaceGroup(group.positionCommand(Goal.START, 1),
+                        intakeSubsystem.intake(0.1),
+                        new FollowTrajectory(driveSubsystem, toGrid, backwards)),
+                group.positionCommand(Goal.HIGH, 1).withTimeout(1.3),
+                intakeSubsystem.intake(-1).withTimeout(0.5),
+                new ParallelRaceGroup(group.positionCommand(Goal.START, 1),
+                        new WaitCommand(0.5).andThen(
+                                new FollowTrajectory(driveSubsystem, toChargeStation, forwards))),
+                autoBalance(1));
     }
 
     /*
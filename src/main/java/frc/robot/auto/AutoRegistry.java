@@ -0,0 +1,200 @@
+package frc.robot.auto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.telemetry.LoopProfiler;
+import frc.robot.telemetry.Telemetry;
+
+/**
+ * Builds autonomous routines while the robot is disabled instead of all at
+ * once in robotInit. A routine is built in two steps: the expensive part
+ * (trajectory generation and the like) runs on a background thread, then the
+ * cheap command composition runs on the main thread from {@link #prepare()}.
+ * Composition stays on the main thread because the command scheduler is not
+ * thread safe. Results are cached per routine and alliance, so switching
+ * alliance builds a new copy and switching back reuses the old one. A routine
+ * that fails to build is reported once and left alone until the alliance or
+ * the selected routine changes.
+ */
+public class AutoRegistry {
+    /**
+     * Does the expensive, thread safe part of building a routine and returns
+     * a supplier that composes the final command.
+     */
+    public interface Routine extends Function<Alliance, Supplier<Command>> {
+    }
+
+    private record Key(String name, Alliance alliance) {
+    }
+
+    private final Map<String, Routine> routines = new LinkedHashMap<>();
+    private final SendableChooser<String> chooser = new SendableChooser<>();
+
+    private final Map<Key, Future<Supplier<Command>>> pending = new HashMap<>();
+    private final Map<Key, Command> built = new HashMap<>();
+    private final Map<Key, Long> buildNanos = new HashMap<>();
+    private final Set<Key> failed = new HashSet<>();
+    private Key lastSelected = null;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        final var thread = new Thread(runnable, "Auto Builder");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private final NetworkTable table = NetworkTableInstance.getDefault().getTable("157/Auto");
+    private final Telemetry.BooleanChannel readyEntry = Telemetry.booleanChannel(table, "Ready");
+    private final Telemetry.DoubleChannel builtCountEntry = Telemetry.doubleChannel(table, "Built");
+    private final Telemetry.DoubleChannel timeSavedEntry = Telemetry.doubleChannel(table,
+            "Startup Time Saved (ms)");
+
+    public SendableChooser<String> getChooser() {
+        return chooser;
+    }
+
+    public List<String> getNames() {
+        return Collections.unmodifiableList(new ArrayList<>(routines.keySet()));
+    }
+
+    public void setDefault(final String name, final Routine routine) {
+        routines.put(name, routine);
+        chooser.setDefaultOption(name, name);
+    }
+
+    public void add(final String name, final Routine routine) {
+        routines.put(name, routine);
+        chooser.addOption(name, name);
+    }
+
+    public void add(final String name, final Supplier<Command> routine) {
+        add(name, alliance -> routine);
+    }
+
+    private String selectedName() {
+        final var selected = chooser.getSelected();
+        return selected != null ? selected : routines.keySet().iterator().next();
+    }
+
+    /**
+     * Start or finish building routines for the current alliance, selected
+     * routine first. Call periodically while disabled.
+     */
+    public void prepare() {
+        final var alliance = DriverStation.getAlliance();
+        final var selected = new Key(selectedName(), alliance);
+        if (!selected.equals(lastSelected)) {
+            // Something changed on the dashboard, give failed routines another go
+            failed.clear();
+            lastSelected = selected;
+        }
+
+        submit(selected);
+        for (final var name : routines.keySet()) {
+            submit(new Key(name, alliance));
+        }
+
+        // Compose whatever finished in the background. This is cheap, and doing
+        // it here means autonomousInit only has to look the command up.
+        final var iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final var entry = iterator.next();
+            final var key = entry.getKey();
+            final var future = entry.getValue();
+            if (!built.containsKey(key) && future.isDone() && !compose(key, future)) {
+                // Drop it so it's built again once it's allowed to retry
+                iterator.remove();
+                failed.add(key);
+            }
+        }
+
+        readyEntry.set(built.containsKey(selected));
+        builtCountEntry.set(built.size());
+        timeSavedEntry.set(totalBuildMillis());
+    }
+
+    private void submit(final Key key) {
+        if (pending.containsKey(key) || failed.contains(key)) {
+            return;
+        }
+
+        final var routine = routines.get(key.name());
+        pending.put(key, executor.submit(() -> {
+            final var start = System.nanoTime();
+            final var composer = routine.apply(key.alliance());
+            recordBuildTime(key, System.nanoTime() - start);
+            return composer;
+        }));
+    }
+
+    /** @return Whether the routine was built */
+    private boolean compose(final Key key, final Future<Supplier<Command>> future) {
+        try {
+            final var start = System.nanoTime();
+            built.put(key, LoopProfiler.profiled("Auto " + key.name(), future.get().get()));
+            recordBuildTime(key, System.nanoTime() - start);
+            return true;
+        } catch (final Exception e) {
+            DriverStation.reportError("Failed to build auto " + key.name() + ": " + e, e.getStackTrace());
+            return false;
+        }
+    }
+
+    private synchronized void recordBuildTime(final Key key, final long nanos) {
+        buildNanos.merge(key, nanos, Long::sum);
+    }
+
+    /**
+     * @return How long building every cached routine took. All of this used to
+     *         be paid in robotInit.
+     */
+    public synchronized double totalBuildMillis() {
+        var total = 0L;
+        for (final var nanos : buildNanos.values()) {
+            total += nanos;
+        }
+        return total / 1e6;
+    }
+
+    /**
+     * Get a routine for the current alliance, building it on the spot if it
+     * isn't cached yet.
+     *
+     * @param name Which routine to get
+     * @return The routine's command
+     */
+    public Command get(final String name) {
+        final var key = new Key(name, DriverStation.getAlliance());
+        final var cached = built.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        DriverStation.reportWarning("Auto " + name + " was not prebuilt, building it now", false);
+        final var command = LoopProfiler.profiled("Auto " + name, routines.get(name).apply(key.alliance()).get());
+        built.put(key, command);
+        return command;
+    }
+
+    public Command getSelected() {
+        return get(selectedName());
+    }
+}
@@ -0,0 +1,47 @@
+package frc.robot.auto;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Transform2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import frc.robot.Constants.AutoConstants;
+
+/**
+ * The robot's pose is always in the field frame, the one the AprilTag layout
+ * uses: origin in the blue alliance's corner, x towards the red alliance and
+ * counterclockwise headings. Vision, odometry and trajectories all share it.
+ *
+ * <p>
+ * Autos are written relative to where the robot starts, x forwards out of the
+ * community and 0 degrees facing that way, and are placed on the field with
+ * the alliance's start pose. Red starts facing the other way, so the same
+ * auto is flipped for red. Autos that need to be mirrored as well do that
+ * themselves before converting.
+ */
+public final class FieldFrame {
+    private FieldFrame() {
+        throw new UnsupportedOperationException("FieldFrame is a utility class");
+    }
+
+    /** @return Where the robot is placed for auto, treating an unknown alliance as blue */
+    public static Pose2d startPose(final Alliance alliance) {
+        return alliance == Alliance.Red ? AutoConstants.RED_START_POSE : AutoConstants.BLUE_START_POSE;
+    }
+
+    /** @return A pose relative to the start, in the field frame */
+    public static Pose2d toField(final Alliance alliance, final Pose2d fromStart) {
+        return startPose(alliance).transformBy(new Transform2d(fromStart.getTranslation(), fromStart.getRotation()));
+    }
+
+    /** @return A point relative to the start, in the field frame */
+    public static Translation2d toField(final Alliance alliance, final Translation2d fromStart) {
+        final var start = startPose(alliance);
+        return start.getTranslation().plus(fromStart.rotateBy(start.getRotation()));
+    }
+
+    /** @return A heading relative to the start, in the field frame */
+    public static Rotation2d toField(final Alliance alliance, final Rotation2d fromStart) {
+        return startPose(alliance).getRotation().plus(fromStart);
+    }
+}
@@ -0,0 +1,163 @@
+package frc.robot.cosmetics;
+
+import java.util.function.DoubleToIntFunction;
+
+import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+import edu.wpi.first.wpilibj.util.Color;
+
+/**
+ * One period of an LED animation, computed once into a table of packed RGB
+ * bytes. Showing a frame is then only table lookups, with no trig or color
+ * allocation in the loop.
+ */
+abstract class LedPattern {
+    // Phase resolution of the wave table, must be a power of two
+    private static final int WAVE_STEPS = 256;
+    private static final int FIXED_POINT_BITS = 16;
+
+    protected final int length;
+
+    protected LedPattern(final int length) {
+        this.length = length;
+    }
+
+    /**
+     * @param time FPGA time in seconds
+     * @return Which frame to show, the same frame is never drawn twice in a row
+     */
+    abstract int frameAt(double time);
+
+    abstract void render(int frame, AddressableLEDBuffer buffer);
+
+    private static void pack(final byte[] table, final int index, final Color color) {
+        // Same conversion AddressableLEDBuffer.setLED(int, Color) does
+        table[index * 3] = (byte) (int) (color.red * 255);
+        table[index * 3 + 1] = (byte) (int) (color.green * 255);
+        table[index * 3 + 2] = (byte) (int) (color.blue * 255);
+    }
+
+    private static void unpack(final byte[] table, final int index, final AddressableLEDBuffer buffer,
+            final int led) {
+        buffer.setRGB(led, table[index * 3] & 0xFF, table[index * 3 + 1] & 0xFF, table[index * 3 + 2] & 0xFF);
+    }
+
+    /** Whole frames stored back to back, picked by a function of time. */
+    private static class FramePattern extends LedPattern {
+        private final byte[] frames;
+        private final DoubleToIntFunction selector;
+
+        private FramePattern(final int length, final byte[] frames, final DoubleToIntFunction selector) {
+            super(length);
+            this.frames = frames;
+            this.selector = selector;
+        }
+
+        @Override
+        int frameAt(final double time) {
+            return selector.applyAsInt(time);
+        }
+
+        @Override
+        void render(final int frame, final AddressableLEDBuffer buffer) {
+            final var offset = frame * length;
+            for (var i = 0; i < length; i++) {
+                unpack(frames, offset + i, buffer, i);
+            }
+        }
+    }
+
+    static LedPattern solid(final int length, final Color color) {
+        final var frames = new byte[length * 3];
+        for (var i = 0; i < length; i++) {
+            pack(frames, i, color);
+        }
+        return new FramePattern(length, frames, time -> 0);
+    }
+
+    static LedPattern strobe(final int length, final Color color1, final Color color2, final double onLength,
+            final double offLength) {
+        final var frames = new byte[2 * length * 3];
+        for (var i = 0; i < length; i++) {
+            pack(frames, i, color2);
+            pack(frames, length + i, color1);
+        }
+        return new FramePattern(length, frames,
+                time -> time % onLength + offLength > onLength ? 1 : 0);
+    }
+
+    static LedPattern climb(final int length, final Color color1, final Color color2, final int color1Length,
+            final int color2Length, final double speed) {
+        final var period = color1Length + color2Length;
+        final var frames = new byte[length * length * 3];
+        // The pattern repeats every time the counter goes around the strip, so
+        // one frame per counter value covers it. Later writes win where the
+        // last block wraps around, same as drawing it live.
+        for (var counter = 0; counter < length && period > 0; counter++) {
+            final var offset = counter * length;
+            for (var i = 0; i < length; i += period) {
+                for (var j = 0; j < color1Length; j++) {
+                    pack(frames, offset + (i + j + counter) % length, color1);
+                }
+                for (var j = color1Length; j < period; j++) {
+                    pack(frames, offset + (i + j + counter) % length, color2);
+                }
+            }
+        }
+        return new FramePattern(length, frames,
+                time -> (int) Math.floorMod((long) Math.floor(time * speed), length));
+    }
+
+    static LedPattern wave(final int length, final Color color1, final Color color2, final double cycleLength,
+            final double duration) {
+        return new WavePattern(length, color1, color2, cycleLength, duration);
+    }
+
+    /**
+     * A single period of the wave's color over phase. Each LED looks up the
+     * table at the frame's phase plus its own offset along the strip.
+     */
+    private static class WavePattern extends LedPattern {
+        private final byte[] table = new byte[WAVE_STEPS * 3];
+        private final long phasePerLed;
+        private final double duration;
+
+        private WavePattern(final int length, final Color color1, final Color color2, final double cycleLength,
+                final double duration) {
+            super(length);
+            this.duration = duration;
+            phasePerLed = Math.round(((double) WAVE_STEPS / cycleLength) * (1 << FIXED_POINT_BITS));
+
+            for (var step = 0; step < WAVE_STEPS; step++) {
+                final var counter = (2.0 * Math.PI * step) / WAVE_STEPS;
+                double ratio = (Math.pow(Math.sin(counter), 0.4) + 1.0) / 2.0;
+                if (Double.isNaN(ratio)) {
+                    ratio = (-Math.pow(Math.sin(counter + Math.PI), 0.4) + 1.0) / 2.0;
+                }
+                if (Double.isNaN(ratio)) {
+                    ratio = 0.5;
+                }
+                final var red = (color1.red * (1 - ratio)) + (color2.red * ratio);
+                final var green = (color1.green * (1 - ratio)) + (color2.green * ratio);
+                final var blue = (color1.blue * (1 - ratio)) + (color2.blue * ratio);
+                pack(table, step, new Color(red, green, blue));
+            }
+        }
+
+        @Override
+        int frameAt(final double time) {
+            if (!(duration > 0)) {
+                return 0;
+            }
+            return (int) ((1 - ((time % duration) / duration)) * WAVE_STEPS) & (WAVE_STEPS - 1);
+        }
+
+        @Override
+        void render(final int frame, final AddressableLEDBuffer buffer) {
+            var phase = (long) frame << FIXED_POINT_BITS;
+            for (var i = 0; i < length; i++) {
+                phase += phasePerLed;
+                unpack(table, (int) (phase >> FIXED_POINT_BITS) & (WAVE_STEPS - 1), buffer, i);
+            }
+        }
+    }
+}
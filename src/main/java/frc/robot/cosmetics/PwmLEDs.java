@@ -10,10 +10,11 @@ import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.util.Color;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants.CosmeticConstants;
+import frc.robot.telemetry.LoopProfiler;
 
 public class PwmLEDs extends SubsystemBase {
     private final AddressableLED lights = new AddressableLED(CosmeticConstants.LIGHT_ID);
-    private AddressableLEDBuffer buffer = new AddressableLEDBuffer(CosmeticConstants.LIGHT_LENGTH);
+    private final AddressableLEDBuffer buffer = new AddressableLEDBuffer(CosmeticConstants.LIGHT_LENGTH);
     private Color color1 = Color.kBlack;
     private Color color2 = Color.kBlack;
     private double onLength = 0.0;
@@ -25,9 +26,12 @@ public class PwmLEDs extends SubsystemBase {
     private double duration = 0.0;
 
     private Mode lightMode = Mode.SOLID;
+    private LedPattern pattern = LedPattern.solid(CosmeticConstants.LIGHT_LENGTH, Color.kBlack);
+    private int lastFrame = -1;
 
     public void setLightMode(Mode lightMode) {
         this.lightMode = lightMode;
+        rebuild();
     }
 
     public Color getColor1() {
@@ -36,6 +40,7 @@ public class PwmLEDs extends SubsystemBase {
 
     public void setColor1(Color color1) {
         this.color1 = color1;
+        rebuild();
     }
 
     public Color getColor2() {
@@ -44,6 +49,7 @@ public class PwmLEDs extends SubsystemBase {
 
     public void setColor2(Color color2) {
         this.color2 = color2;
+        rebuild();
     }
 
     public static enum Mode {
@@ -57,40 +63,32 @@ public class PwmLEDs extends SubsystemBase {
         lights.start();
     }
 
-    public void solid(Color color) {
-        for (int i = 0; i < buffer.getLength(); i++) {
-            buffer.setLED(i, color);
+    // Precompute the current mode's animation, periodic only looks frames up
+    private void rebuild() {
+        final var length = buffer.getLength();
+        switch (lightMode) {
+            case SOLID:
+                pattern = LedPattern.solid(length, color1);
+                break;
+            case WAVE:
+                pattern = LedPattern.wave(length, color1, color2, cycleLength, duration);
+                break;
+            case CLIMB:
+                pattern = LedPattern.climb(length, color1, color2, color1Length, color2Length, speed);
+                break;
+            case STROBE:
+                pattern = LedPattern.strobe(length, color1, color2, onLength, offLength);
+                break;
+            default:
+                pattern = LedPattern.solid(length, Color.kBlack);
         }
+        lastFrame = -1;
     }
 
     public void setSolid(Color color) {
         this.color1 = color;
         this.lightMode = Mode.SOLID;
-    }
-
-    public void wave(Color color1, Color color2, double cycleLength, double duration) {
-        double counter = (1 - ((Timer.getFPGATimestamp() % duration) / duration)) * 2.0 * Math.PI;
-        double counterDiffPerLed = (2.0 * Math.PI) / cycleLength;
-        for (int i = 0; i < buffer.getLength(); i++) {
-            counter += counterDiffPerLed;
-            if (i >= 0) {
-                double ratio = (Math.pow(Math.sin(counter), 0.4) + 1.0) / 2.0;
-                if (Double.isNaN(ratio)) {
-                    ratio = (-Math.pow(Math.sin(counter + Math.PI), 0.4) + 1.0) / 2.0;
-                }
-                if (Double.isNaN(ratio)) {
-                    ratio = 0.5;
-                }
-                double red = (color1.red * (1 - ratio)) + (color2.red * ratio);
-                double green = (color1.green * (1 - ratio)) + (color2.green * ratio);
-                double blue = (color1.blue * (1 - ratio)) + (color2.blue * ratio);
-                buffer.setLED(i, new Color(red, green, blue));
-            }
-        }
-    }
-
-    public void wave(Color color, double cycleLength, double duration) {
-        wave(color, Color.kBlack, cycleLength, duration);
+        rebuild();
     }
 
     public void setWave(Color color1, Color color2, double cycleLength, double duration) {
@@ -99,22 +97,11 @@ public class PwmLEDs extends SubsystemBase {
         this.cycleLength = cycleLength;
         this.duration = duration;
         this.lightMode = Mode.WAVE;
+        rebuild();
     }
 
-    public void climb(Color color1, Color color2, int color1Length, int color2Length, double speed) {
-        int counter = (int) Math.floor(Timer.getFPGATimestamp() * speed);
-        for (int i = 0; i < buffer.getLength(); i += color2Length + color1Length) {
-            for (int j = 0; j < color1Length; j++) {
-                buffer.setLED((i + j + counter) % buffer.getLength(), color1);
-            }
-            for (int j = color1Length; j < color1Length + color2Length; j++) {
-                buffer.setLED((i + j + counter) % buffer.getLength(), color2);
-            }
-        }
-    }
-
-    public void climb(Color color, int colorLength, int offLength, double speed) {
-        climb(color, Color.kBlack, colorLength, offLength, speed);
+    public void setWave(Color color, double cycleLength, double duration) {
+        setWave(color, Color.kBlack, cycleLength, duration);
     }
 
     public void setClimb(Color color1, Color color2, int color1Length, int color2Length, double speed) {
@@ -124,23 +111,11 @@ public class PwmLEDs extends SubsystemBase {
         this.color2Length = color2Length;
         this.speed = speed;
         this.lightMode = Mode.CLIMB;
+        rebuild();
     }
 
-    public void strobe(Color color1, Color color2, double onLength, double offLength) {
-        boolean lightsOn = Timer.getFPGATimestamp() % onLength + offLength > onLength;
-        if (lightsOn) {
-            for (int i = 0; i < buffer.getLength(); i++) {
-                buffer.setLED(i, color1);
-            }
-        } else {
-            for (int i = 0; i < buffer.getLength(); i++) {
-                buffer.setLED(i, color2);
-            }
-        }
-    }
-
-    public void strobe(Color color, double onLength, double offLength) {
-        strobe(color, Color.kBlack, onLength, offLength);
+    public void setClimb(Color color, int colorLength, int offLength, double speed) {
+        setClimb(color, Color.kBlack, colorLength, offLength, speed);
     }
 
     public void setStrobe(Color color1, Color color2, double onLength, double offLength) {
@@ -149,32 +124,31 @@ public class PwmLEDs extends SubsystemBase {
         this.onLength = onLength;
         this.offLength = offLength;
         this.lightMode = Mode.STROBE;
+        rebuild();
+    }
+
+    public void setStrobe(Color color, double onLength, double offLength) {
+        setStrobe(color, Color.kBlack, onLength, offLength);
     }
 
     public static Color dimColor(Color color, double brightness) {
         return new Color(color.red * brightness, color.green * brightness, color.blue * brightness);
     }
 
+    private final LoopProfiler.Section periodicSection = LoopProfiler.section("PwmLEDs.periodic()");
+
     @Override
     public void periodic() {
         // This method will be called once per scheduler run
-        switch (lightMode) {
-            case SOLID:
-                solid(color1);
-                break;
-            case WAVE:
-                wave(color1, color2, cycleLength, duration);
-                break;
-            case CLIMB:
-                climb(color1, color2, color1Length, color2Length, speed);
-                break;
-            case STROBE:
-                strobe(color1, color2, onLength, offLength);
-                break;
-            default:
-                solid(Color.kBlack);
+        periodicSection.start();
+        final var frame = pattern.frameAt(Timer.getFPGATimestamp());
+        // Nothing to send if the strip would look the same, which is every loop
+        // for solid colors
+        if (frame != lastFrame) {
+            pattern.render(frame, buffer);
+            lights.setData(buffer);
+            lastFrame = frame;
         }
-
-        lights.setData(buffer);
+        periodicSection.stop();
     }
 }
@@ -4,20 +4,82 @@
 
 package frc.robot.drive;
 
-import edu.wpi.first.math.controller.PIDController;
-import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.filter.LinearFilter;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.CommandBase;
 import frc.robot.Constants.AutoConstants;
+import frc.robot.telemetry.Telemetry;
 
+/**
+ * Balances on the charge station in phases. It drives on until the ramp tips
+ * the robot, climbs slowly until the station starts to tip, backs off to
+ * cancel the robot's momentum, then locks the wheels and waits. If the
+ * station comes to rest tilted, the robot creeps uphill, slowing and backing
+ * off as the station starts to move.
+ * Finishes once the station has stayed level and still, with the wheels
+ * still locked, or if the approach doesn't reach a ramp in time.
+ *
+ * <p>
+ * Tilt and the gyro's tilt rate are both filtered, and tilt is measured
+ * nose up, so every phase drives straight forwards or backwards. How long the
+ * whole thing took is published as "Time To Level" under 157/Balance.
+ */
 public class AutoBalance extends CommandBase {
+    private enum Phase {
+        APPROACH, CLIMB, BRAKE, SETTLE, CORRECT, LEVEL, MISSED
+    }
+
     private final DriveSubsystem drive;
+    // 1 forwards, -1 backwards, or 0 to follow how the robot is moving
+    private final double requestedDirection;
+    private final Timer timer = new Timer();
+
+    private final LinearFilter tiltFilter = LinearFilter.singlePoleIIR(AutoConstants.BALANCE_TILT_FILTER_SECONDS,
+            TimedRobot.kDefaultPeriod);
+    private final LinearFilter rateFilter = LinearFilter.singlePoleIIR(AutoConstants.BALANCE_RATE_FILTER_SECONDS,
+            TimedRobot.kDefaultPeriod);
+    private double tilt = 0;
+    private double tiltRate = 0;
+    private double peakTilt = 0;
 
-    private PIDController pid = new PIDController(0.008, 0, 0.001);
+    private Phase phase = Phase.APPROACH;
+    private double phaseStart = 0;
+    private double approachDirection = 0;
+    private double brakeDirection = 0;
+    private double brakeSeconds = 0;
+    private double levelSince = Double.NaN;
 
-    /** Creates a new AutoBalance. */
+    private final NetworkTable table = NetworkTableInstance.getDefault().getTable("157/Balance");
+    private final Telemetry.DoubleChannel phaseEntry = Telemetry.doubleChannel(table, "Phase");
+    private final Telemetry.DoubleChannel tiltEntry = Telemetry.doubleChannel(table, "Tilt");
+    private final Telemetry.DoubleChannel tiltRateEntry = Telemetry.doubleChannel(table, "Tilt Rate");
+    private final Telemetry.DoubleChannel timeToLevelEntry = Telemetry.doubleChannel(table, "Time To Level");
+
+    /**
+     * Creates a new AutoBalance. If the robot isn't on the station yet, it
+     * carries on the way it's already moving to get there. Barely moving
+     * counts as already being on the station.
+     */
     public AutoBalance(
             final DriveSubsystem drive) {
+        this(drive, 0);
+    }
+
+    /**
+     * Creates a new AutoBalance that approaches the station the given way if
+     * it isn't on it yet.
+     *
+     * @param approachDirection 1 to drive forwards, -1 backwards, or 0 to
+     *                          carry on the way the robot is moving
+     */
+    public AutoBalance(final DriveSubsystem drive, final double approachDirection) {
         this.drive = drive;
+        this.requestedDirection = Math.signum(approachDirection);
         // Use addRequirements() here to declare subsystem dependencies.
         addRequirements(drive);
     }
@@ -25,34 +87,139 @@ public class AutoBalance extends CommandBase {
     // Called when the command is initially scheduled.
     @Override
     public void initialize() {
+        timer.reset();
+        timer.start();
+
+        final var startTilt = drive.getRobotRoll().getDegrees();
+        // The filtered tilt rises from level over the first few loops, never
+        // falling from its peak, so it doesn't look like tipping.
+        tiltFilter.reset();
+        rateFilter.reset();
+        tilt = 0;
+        tiltRate = 0;
+        peakTilt = 0;
+
+        approachDirection = requestedDirection;
+        final var velocity = drive.getForwardVelocity();
+        if (approachDirection == 0 && Math.abs(velocity) >= AutoConstants.BALANCE_MIN_APPROACH_VELOCITY) {
+            approachDirection = Math.signum(velocity);
+        }
+        levelSince = Double.NaN;
+        setPhase(Math.abs(startTilt) >= AutoConstants.BALANCE_CLIMB_TILT_DEG ? Phase.CLIMB : Phase.APPROACH);
     }
 
     // Called every time the scheduler runs while the command is scheduled.
     @Override
     public void execute() {
-        // System.out.println(drive.getRawRobotPitch());
-        var angleMultX = Math.abs(drive.getRobotYaw().getDegrees()) > 90 ? 1 : -1;
-        var angleMultY = drive.getRobotYaw().getDegrees() > 0 ? -1 : 1;
-
-        // Drives back and forth with pid until balanced on the platform
-        if (Math.abs(drive.getRobotRoll().getDegrees() * angleMultX) >= AutoConstants.BALANCE_ACCURACY_DEG) {
-            drive.set(new ChassisSpeeds(pid.calculate(drive.getRobotRoll().getDegrees() * angleMultX, 0), 0, 0));
-        } else if (Math.abs(drive.getRobotPitch().getDegrees() * angleMultY) <= AutoConstants.BALANCE_ACCURACY_DEG) {
-            drive.set(new ChassisSpeeds(pid.calculate(drive.getRobotPitch().getDegrees() * angleMultY, 0), 0, 0));
-        } else {
-            drive.set(new ChassisSpeeds(0, 0, 0.001));
+        final var now = timer.get();
+        tilt = tiltFilter.calculate(drive.getRobotRoll().getDegrees());
+        // From the gyro rather than the filtered tilt, so it doesn't lag behind by the tilt filter too
+        tiltRate = rateFilter.calculate(drive.getRobotRollRate());
+
+        if (Math.abs(tilt) > Math.abs(peakTilt)) {
+            peakTilt = tilt;
         }
+        // Falling back towards level, quickly or a little way from the peak, means the station is tipping
+        final var tipping = tilt * tiltRate < 0 && Math.abs(tiltRate) >= AutoConstants.BALANCE_TIP_RATE_DEG_PER_SEC
+                || tilt * peakTilt > 0 && Math.abs(peakTilt) - Math.abs(tilt) >= AutoConstants.BALANCE_TIP_DROP_DEG;
+        final var still = Math.abs(tiltRate) < AutoConstants.BALANCE_STILL_RATE_DEG_PER_SEC;
+        final var level = Math.abs(tilt) < AutoConstants.BALANCE_ACCURACY_DEG;
+
+        switch (phase) {
+            case APPROACH:
+                if (Math.abs(tilt) >= AutoConstants.BALANCE_CLIMB_TILT_DEG) {
+                    setPhase(Phase.CLIMB);
+                } else if (approachDirection == 0) {
+                    // Not moving and not on a ramp, so it's already on the station
+                    setPhase(Phase.SETTLE);
+                } else if (now - phaseStart >= AutoConstants.BALANCE_APPROACH_TIMEOUT_SECONDS) {
+                    DriverStation.reportWarning("AutoBalance didn't reach the charge station", false);
+                    setPhase(Phase.MISSED);
+                } else {
+                    driveForward(approachDirection * AutoConstants.BALANCE_APPROACH_SPEED);
+                }
+                break;
+            case CLIMB:
+                if (tipping) {
+                    brake();
+                } else {
+                    driveForward(Math.signum(tilt) * AutoConstants.BALANCE_CLIMB_SPEED);
+                }
+                break;
+            case CORRECT:
+                if (level && still) {
+                    setPhase(Phase.SETTLE);
+                } else {
+                    // Backs off as the station starts to come level, so it stops there
+                    final var speed = AutoConstants.BALANCE_CORRECT_KP * tilt
+                            + AutoConstants.BALANCE_CORRECT_KD * tiltRate;
+                    driveForward(MathUtil.clamp(speed, -AutoConstants.BALANCE_CORRECT_MAX_SPEED,
+                            AutoConstants.BALANCE_CORRECT_MAX_SPEED));
+                }
+                break;
+            case BRAKE:
+                if (now - phaseStart >= brakeSeconds) {
+                    setPhase(Phase.SETTLE);
+                } else {
+                    driveForward(brakeDirection * AutoConstants.BALANCE_BRAKE_SPEED);
+                }
+                break;
+            case SETTLE:
+                drive.lockWheels();
+                if (!still) {
+                    levelSince = Double.NaN;
+                } else if (!level) {
+                    levelSince = Double.NaN;
+                    setPhase(Phase.CORRECT);
+                } else if (Double.isNaN(levelSince)) {
+                    levelSince = now;
+                } else if (now - levelSince >= AutoConstants.BALANCE_SETTLE_SECONDS) {
+                    timeToLevelEntry.set(now);
+                    setPhase(Phase.LEVEL);
+                }
+                break;
+            case LEVEL:
+            case MISSED:
+                drive.lockWheels();
+                break;
+        }
+
+        phaseEntry.set(phase.ordinal());
+        tiltEntry.set(tilt);
+        tiltRateEntry.set(tiltRate);
+    }
+
+    // Back off against the way the robot was climbing, for longer the faster it was going
+    private void brake() {
+        final var velocity = drive.getForwardVelocity();
+        brakeDirection = -Math.signum(velocity);
+        brakeSeconds = Math.min(AutoConstants.BALANCE_MAX_BRAKE_SECONDS,
+                Math.abs(velocity) * AutoConstants.BALANCE_BRAKE_SECONDS_PER_MPS);
+        setPhase(Phase.BRAKE);
+        driveForward(brakeDirection * AutoConstants.BALANCE_BRAKE_SPEED);
+    }
+
+    private void setPhase(final Phase next) {
+        phase = next;
+        phaseStart = timer.get();
+        if (next == Phase.CLIMB) {
+            peakTilt = tilt;
+        }
+    }
+
+    private void driveForward(final double speed) {
+        drive.setRobotRelative(speed, 0, 0);
     }
 
     // Called once the command ends or is interrupted.
     @Override
     public void end(boolean interrupted) {
-        // drive.stop();
+        drive.lockWheels();
     }
 
     // Returns true when the command should end.
     @Override
     public boolean isFinished() {
-        return false;
+        return phase == Phase.LEVEL || phase == Phase.MISSED;
     }
 }
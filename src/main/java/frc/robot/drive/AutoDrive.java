@@ -10,7 +10,6 @@ import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.filter.SlewRateLimiter;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
-import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.CommandBase;
 import frc.robot.drive.DriveSubsystem.AutoDriveLineBuilder;
@@ -50,7 +49,7 @@ public class AutoDrive extends CommandBase {
     // Called when the command is initially scheduled.
     @Override
     public void initialize() {
-        Pose2d pose = drive.getOdometryPose();
+        Pose2d pose = drive.getStartRelativePose();
         startX = pose.getX();
         startY = pose.getY();
         startRot = pose.getRotation().getDegrees();
@@ -94,7 +93,7 @@ public class AutoDrive extends CommandBase {
         if (params.startTime.isPresent() && Timer.getFPGATimestamp() - startTime < params.startTime.get()) {
             return;
         }
-        Pose2d pose = drive.getOdometryPose();
+        Pose2d pose = drive.getStartRelativePose();
         Pose2d setPose = params.targetPose;
         Rotation2d rot = drive.getRobotPitch();
 
@@ -147,7 +146,7 @@ public class AutoDrive extends CommandBase {
         yVal = capVal(yVal, params.maxYSpeed);
         rotVal = capVal(rotVal, params.maxRotSpeed);
 
-        drive.set(new ChassisSpeeds(xVal, yVal, rotVal));
+        drive.set(xVal, yVal, rotVal);
     }
 
     // Called once the command ends or is interrupted.
@@ -166,7 +165,7 @@ public class AutoDrive extends CommandBase {
     @Override
     public boolean isFinished() {
 
-        Pose2d pose = drive.getOdometryPose();
+        Pose2d pose = drive.getStartRelativePose();
         // if no tolerances return false, otherwise check tolerance on X and Y, and
         // tolerance on Rotation if applicable
         return !(params.rotTolerance.isEmpty() && params.xTolerance.isEmpty() && params.yTolerance.isEmpty()) &&
@@ -0,0 +1,155 @@
+package frc.robot.drive;
+
+import java.util.List;
+import java.util.function.DoubleUnaryOperator;
+
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import frc.robot.Constants.DriveConstants;
+import frc.robot.lib.FeedforwardFit;
+import frc.robot.telemetry.Telemetry;
+
+/**
+ * Fits the drive feedforward gains. The wheels are held straight while the
+ * drive motors get a slow voltage ramp, which mostly shows kS and kV, then a
+ * sudden voltage step, which shows kA. Each runs forwards then backwards so the
+ * robot ends up roughly where it started, and there are samples on both sides
+ * of zero to separate kS from kV.
+ *
+ * <p>
+ * Every sample is published under 157/Characterization, so it is in the signal
+ * log as well. The fitted gains are published there at the end, to be copied
+ * into {@link DriveConstants}. "Fit Valid" is false when there weren't enough
+ * samples to fit.
+ */
+public class DriveCharacterization extends CommandBase {
+    private record Phase(double seconds, boolean record, DoubleUnaryOperator volts) {
+    }
+
+    private static final List<Phase> PHASES = List.of(
+            ramp(1),
+            rest(),
+            ramp(-1),
+            rest(),
+            step(1),
+            rest(),
+            step(-1),
+            rest());
+
+    private final DriveSubsystem drive;
+    private final Timer timer = new Timer();
+    private FeedforwardFit fit = new FeedforwardFit();
+    private final double[] lastVelocity;
+    private double lastTime = 0;
+
+    private final NetworkTable table = NetworkTableInstance.getDefault().getTable("157/Characterization");
+    private final Telemetry.DoubleChannel voltsEntry = Telemetry.doubleChannel(table, "Volts");
+    private final Telemetry.DoubleChannel velocityEntry = Telemetry.doubleChannel(table, "Velocity");
+    private final Telemetry.DoubleChannel accelerationEntry = Telemetry.doubleChannel(table, "Acceleration");
+    private final Telemetry.DoubleChannel samplesEntry = Telemetry.doubleChannel(table, "Samples");
+    private final Telemetry.DoubleChannel kSEntry = Telemetry.doubleChannel(table, "kS");
+    private final Telemetry.DoubleChannel kVEntry = Telemetry.doubleChannel(table, "kV");
+    private final Telemetry.DoubleChannel kAEntry = Telemetry.doubleChannel(table, "kA");
+    private final Telemetry.DoubleChannel rSquaredEntry = Telemetry.doubleChannel(table, "R Squared");
+    private final Telemetry.BooleanChannel fitValidEntry = Telemetry.booleanChannel(table, "Fit Valid");
+
+    public DriveCharacterization(final DriveSubsystem drive) {
+        this.drive = drive;
+        lastVelocity = new double[drive.swervePods.length];
+        addRequirements(drive);
+    }
+
+    private static Phase ramp(final double direction) {
+        return new Phase(DriveConstants.CHARACTERIZATION_RAMP_SECONDS, true,
+                time -> direction * time * DriveConstants.CHARACTERIZATION_RAMP_VOLTS_PER_SECOND);
+    }
+
+    private static Phase step(final double direction) {
+        return new Phase(DriveConstants.CHARACTERIZATION_STEP_SECONDS, true,
+                time -> direction * DriveConstants.CHARACTERIZATION_STEP_VOLTS);
+    }
+
+    private static Phase rest() {
+        return new Phase(DriveConstants.CHARACTERIZATION_REST_SECONDS, false, time -> 0);
+    }
+
+    @Override
+    public void initialize() {
+        timer.reset();
+        timer.start();
+        fit = new FeedforwardFit();
+        lastTime = 0;
+        for (var i = 0; i < lastVelocity.length; i++) {
+            lastVelocity[i] = drive.swervePods[i].getDriveVelocity();
+        }
+    }
+
+    @Override
+    public void execute() {
+        final var time = timer.get();
+        final var dt = time - lastTime;
+        lastTime = time;
+
+        var phaseStart = 0.0;
+        for (final var phase : PHASES) {
+            if (time < phaseStart + phase.seconds()) {
+                // Sensors were read this loop, so they show what last loop's voltage did
+                if (dt > 0) {
+                    sample(dt, phase.record());
+                }
+                drive.setDriveVoltage(phase.volts().applyAsDouble(time - phaseStart));
+                return;
+            }
+            phaseStart += phase.seconds();
+        }
+        drive.stop();
+    }
+
+    private void sample(final double dt, final boolean record) {
+        for (var i = 0; i < lastVelocity.length; i++) {
+            final var pod = drive.swervePods[i];
+            final var velocity = pod.getDriveVelocity();
+            final var acceleration = (velocity - lastVelocity[i]) / dt;
+            final var volts = pod.getDriveOutput() * RobotController.getBatteryVoltage();
+            lastVelocity[i] = velocity;
+
+            if (record && Math.abs(velocity) >= DriveConstants.CHARACTERIZATION_MIN_VELOCITY) {
+                fit.add(volts, velocity, acceleration);
+            }
+            if (i == 0) {
+                voltsEntry.set(volts);
+                velocityEntry.set(velocity);
+                accelerationEntry.set(acceleration);
+            }
+        }
+        samplesEntry.set(fit.getCount());
+    }
+
+    @Override
+    public void end(final boolean interrupted) {
+        drive.stop();
+        final var solved = fit.solve();
+        fitValidEntry.set(solved);
+        if (!solved) {
+            return;
+        }
+
+        kSEntry.set(fit.getKS());
+        kVEntry.set(fit.getKV());
+        kAEntry.set(fit.getKA());
+        rSquaredEntry.set(fit.getRSquared());
+        samplesEntry.set(fit.getCount());
+    }
+
+    @Override
+    public boolean isFinished() {
+        var total = 0.0;
+        for (final var phase : PHASES) {
+            total += phase.seconds();
+        }
+        return timer.hasElapsed(total);
+    }
+}
@@ -5,33 +5,37 @@
 package frc.robot.drive;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
-import com.kauailabs.navx.frc.AHRS;
-
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.filter.SlewRateLimiter;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
-import edu.wpi.first.math.kinematics.SwerveDriveOdometry;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableInstance;
-import edu.wpi.first.wpilibj.SPI;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants;
 import frc.robot.Constants.AutoConstants;
 import frc.robot.Constants.DriveConstants;
+import frc.robot.sensors.GyroService;
+import frc.robot.sensors.SensorSnapshot;
+import frc.robot.telemetry.LoopProfiler;
+import frc.robot.telemetry.Telemetry;
+import frc.robot.vision.VisionSource;
 
-public class DriveSubsystem extends SubsystemBase {
+public class DriveSubsystem extends SubsystemBase implements SensorSnapshot.Source {
 
     private final SwerveDriveKinematics kinematics = new SwerveDriveKinematics(
             Constants.DriveConstants.WHEEL_LOCATIONS);
+    private final SwerveKinematicsSolver solver = new SwerveKinematicsSolver(
+            Constants.DriveConstants.WHEEL_LOCATIONS);
 
     private final NetworkTable table = NetworkTableInstance.getDefault().getTable("157/Swerve");
     private float gyroOffset = 0.0f;
@@ -55,7 +59,24 @@ public class DriveSubsystem extends SubsystemBase {
         pidr.enableContinuousInput(-180, 180);
         final var resetCommand = runOnce(this::resetGyro).ignoringDisable(true);
         SmartDashboard.putData("Reset Yaw", resetCommand);
+        SmartDashboard.putData("Characterize Drive", new DriveCharacterization(this));
         setAllEncoderMultipliers(0.03921201641325);
+
+        odometer = new OdometrySampler(kinematics, swervePods,
+                timestamp -> gyro.getAngle(GyroService.Axis.PITCH, timestamp));
+        odometer.start(DriveConstants.ODOMETRY_PERIOD_SECONDS);
+        sampleSensors();
+    }
+
+    @Override
+    public void sampleSensors() {
+        gyroYaw = gyro.getAngle(GyroService.Axis.YAW);
+        gyroPitch = gyro.getAngle(GyroService.Axis.PITCH);
+        gyroRoll = gyro.getAngle(GyroService.Axis.ROLL);
+        gyroRollRate = gyro.getRate(GyroService.Axis.ROLL);
+        for (final var swervePod : swervePods) {
+            swervePod.sampleSensors();
+        }
     }
 
     public void setAllEncoderMultipliers(double distancePerRotation) {
@@ -69,6 +90,30 @@ public class DriveSubsystem extends SubsystemBase {
         addGyroOffset(0);
     }
 
+    /** Drop the gyro offset an auto added, for simulated runs that start over. */
+    public void resetGyroOffset() {
+        gyroOffset = 0;
+    }
+
+    /** Move the odometry pose to a known one, vision measurements from before are dropped. */
+    public void resetPose(final Pose2d pose) {
+        odometer.resetPose(pose);
+    }
+
+    // Where the current auto started, in the field frame
+    private Pose2d autoStart = new Pose2d();
+
+    /**
+     * Seed the pose at the start of an auto, and measure
+     * {@link #getStartRelativePose()} from there.
+     *
+     * @param fieldStart Where the robot was placed, in the field frame
+     */
+    public void startAuto(final Pose2d fieldStart) {
+        autoStart = fieldStart;
+        resetPose(fieldStart);
+    }
+
     public void resetDisplacement() {
         gyro.resetDisplacement();
     }
@@ -90,31 +135,45 @@ public class DriveSubsystem extends SubsystemBase {
     }
 
     public void driveDistanceWithRotation(double desiredAngle, double xSpeed, double ySpeed) {
-        set(new ChassisSpeeds(xSpeed, ySpeed,
-                pidr.calculate(getRobotPitch().getDegrees(), desiredAngle)));
+        set(xSpeed, ySpeed, pidr.calculate(gyroPitch, desiredAngle));
     }
 
     // TODO test this please, it might just work or just need a few negatives. it
     // uses Accellerometer data to attempt to drive for a distance.
     public void driveDistanceOdometer(double xPos, double yPos, double angle) {
-        var pose = odometer.getPoseMeters();
+        var pose = getStartRelativePose();
         set(new ChassisSpeeds(pidx.calculate(pose.getX(), xPos), pidy.calculate(pose.getY(), yPos),
                 pidr.calculate(getRobotPitch().getDegrees(), angle)));
     }
 
     public Command driveToPosWithAngleOdometry(double xPos, double yPos, double angle, double tolerance) {
         return runEnd(() -> driveDistanceOdometer(xPos, yPos, angle), () -> stop()).until(() -> {
-            var pose = odometer.getPoseMeters();
+            var pose = getStartRelativePose();
             return pose.getX() < tolerance && pose.getY() < tolerance;
         });
     }
 
     public void set(final ChassisSpeeds inputSpeeds) {
-        final var speeds = ChassisSpeeds.fromFieldRelativeSpeeds(inputSpeeds, getRobotYaw());
-        final var states = kinematics.toSwerveModuleStates(speeds);
+        set(inputSpeeds.vxMetersPerSecond, inputSpeeds.vyMetersPerSecond, inputSpeeds.omegaRadiansPerSecond);
+    }
+
+    // Field relative drive without allocating, used by the teleop and auto drive
+    // commands every loop
+    public void set(final double xSpeed, final double ySpeed, final double rotationSpeed) {
+        solver.solveFieldRelative(xSpeed, ySpeed, rotationSpeed, getRobotYawDegrees());
+
+        for (var i = 0; i < swervePods.length; i++) {
+            swervePods[i].set(solver.getSpeed(i), solver.getAngleDegrees(i));
+        }
+    }
+
+    // Robot relative drive, used by trajectory following where the controller
+    // has already accounted for the robot's heading
+    public void setRobotRelative(final double xSpeed, final double ySpeed, final double rotationSpeed) {
+        solver.solve(xSpeed, ySpeed, rotationSpeed);
 
-        for (var i = 0; i < states.length; i++) {
-            swervePods[i].set(states[i]);
+        for (var i = 0; i < swervePods.length; i++) {
+            swervePods[i].set(solver.getSpeed(i), solver.getAngleDegrees(i));
         }
     }
 
@@ -124,6 +183,36 @@ public class DriveSubsystem extends SubsystemBase {
         }
     }
 
+    /**
+     * Point every wheel at the middle of the robot so it can't be pushed or
+     * roll. The wheels stay that way until the robot is driven again.
+     */
+    public void lockWheels() {
+        for (var i = 0; i < swervePods.length; i++) {
+            final var location = DriveConstants.WHEEL_LOCATIONS[i];
+            final var angle = Math.toDegrees(Math.atan2(location.getY(), location.getX()));
+            // Stopping holds the solver's angles, so drive commands keep the wheels locked
+            solver.setHeldAngle(i, angle);
+            swervePods[i].set(0, angle);
+        }
+    }
+
+    /** @return How fast the robot is moving forwards, in meters per second */
+    public double getForwardVelocity() {
+        var sum = 0.0;
+        for (final var swervePod : swervePods) {
+            sum += swervePod.getDriveVelocity() * Math.cos(Math.toRadians(swervePod.getCurrentAngle()));
+        }
+        return sum / swervePods.length;
+    }
+
+    /** Hold every wheel straight and drive it with a fixed voltage. */
+    public void setDriveVoltage(final double volts) {
+        for (final var swervePod : swervePods) {
+            swervePod.setDriveVoltage(volts);
+        }
+    }
+
     public void setSingle(final SwerveModuleState state) {
         swervePods[0].set(state);
     }
@@ -132,11 +221,25 @@ public class DriveSubsystem extends SubsystemBase {
         swervePods[0].directSet(rollSpeed, spinSpeed);
     }
 
-    private final AHRS gyro = new AHRS(SPI.Port.kMXP);
+    private final GyroService gyro = new GyroService();
+    private double gyroYaw = 0.0;
+    private double gyroPitch = 0.0;
+    private double gyroRoll = 0.0;
+    private double gyroRollRate = 0.0;
     private final NetworkTable gyroTable = NetworkTableInstance.getDefault().getTable("157/Gyro");
+    private final Telemetry.DoubleChannel yawEntry = Telemetry.doubleChannel(gyroTable, "Yaw");
+    private final Telemetry.DoubleChannel pitchEntry = Telemetry.doubleChannel(gyroTable, "Pitch");
+    private final Telemetry.DoubleChannel rollEntry = Telemetry.doubleChannel(gyroTable, "Roll");
+    private final Telemetry.DoubleChannel rollRateEntry = Telemetry.doubleChannel(gyroTable, "Roll Rate");
+    private final Telemetry.DoubleChannel rawDrivePositionEntry = Telemetry.doubleChannel(table,
+            "Raw Drive Position");
 
     public Rotation2d getRobotYaw() {
-        return Rotation2d.fromDegrees(((-gyro.getYaw() + 180 + gyroOffset) % 360) - 180);
+        return Rotation2d.fromDegrees(getRobotYawDegrees());
+    }
+
+    public double getRobotYawDegrees() {
+        return ((-gyroYaw + 180 + gyroOffset) % 360) - 180;
     }
 
     public Command addGyroOffset(float degrees) {
@@ -144,28 +247,57 @@ public class DriveSubsystem extends SubsystemBase {
     }
 
     public double getRawRobotPitch() {
-        return gyro.getRoll();
+        return gyroRoll;
     }
 
     public Rotation2d getRobotRoll() {
-        return Rotation2d.fromDegrees(gyro.getRoll());
+        return Rotation2d.fromDegrees(gyroRoll);
+    }
+
+    /** @return How fast the roll is changing as measured by the gyro, in degrees per second */
+    public double getRobotRollRate() {
+        return gyroRollRate;
     }
 
     public Rotation2d getRobotPitch() {
-        return Rotation2d.fromDegrees(gyro.getPitch());
+        return Rotation2d.fromDegrees(gyroPitch);
     }
 
+    /** @return The pose in the field frame, see {@link frc.robot.auto.FieldFrame} */
     public Pose2d getOdometryPose() {
-        return odometer.getPoseMeters();
+        return odometer.getLatestPose();
     }
 
+    /** @return The pose relative to where the current auto started, what {@link AutoDrive} targets */
+    public Pose2d getStartRelativePose() {
+        return getOdometryPose().relativeTo(autoStart);
+    }
+
+    private final List<VisionSource> visionSources = new ArrayList<>();
+    private final Telemetry.DoubleChannel visionCountEntry = Telemetry.doubleChannel(table, "Vision Measurements");
+    private final Telemetry.DoubleChannel visionRejectedEntry = Telemetry.doubleChannel(table, "Vision Rejected");
+
+    /** Fuse everything a source sees into the odometry pose from now on. */
+    public void addVisionSource(final VisionSource source) {
+        visionSources.add(source);
+    }
+
+    private final LoopProfiler.Section periodicSection = LoopProfiler.section("DriveSubsystem.periodic()");
+
     @Override
     public void periodic() {
-        gyroTable.getEntry("Yaw").setDouble(gyro.getYaw());
-        gyroTable.getEntry("Pitch").setDouble(gyro.getPitch());
-        gyroTable.getEntry("Roll").setDouble(gyro.getRoll());
-        table.getEntry("Raw Drive Position").setDouble(getRawDrivePosition());
-        odometer.update(getRobotPitch(), getModulePositions());
+        periodicSection.start();
+        yawEntry.set(gyroYaw);
+        pitchEntry.set(gyroPitch);
+        rollEntry.set(gyroRoll);
+        rollRateEntry.set(gyroRollRate);
+        rawDrivePositionEntry.set(getRawDrivePosition());
+        for (final var source : visionSources) {
+            source.poll(odometer::addVisionMeasurement);
+        }
+        visionCountEntry.set(odometer.getVisionCount());
+        visionRejectedEntry.set(odometer.getRejectedVisionCount());
+        periodicSection.stop();
     }
 
     public void resetDrivePosition() {
@@ -218,13 +350,19 @@ public class DriveSubsystem extends SubsystemBase {
         return true;
     }
 
-    public SwerveModulePosition[] getModulePositions() {
-        ArrayList<SwerveModulePosition> retval = new ArrayList<SwerveModulePosition>(swervePods.length);
-        for (SwervePod swervePod : swervePods) {
-            retval.add(swervePod.getPosition());
+    private final SwerveModulePosition[] modulePositions = new SwerveModulePosition[] {
+            new SwerveModulePosition(),
+            new SwerveModulePosition(),
+            new SwerveModulePosition(),
+            new SwerveModulePosition()
+    };
 
+    // Refills the same array every call, copy it if it needs to outlive the loop
+    public SwerveModulePosition[] getModulePositions() {
+        for (var i = 0; i < swervePods.length; i++) {
+            swervePods[i].updatePosition(modulePositions[i]);
         }
-        return retval.toArray(new SwerveModulePosition[] {});
+        return modulePositions;
     }
 
     public Command resetPositionsCommand() {
@@ -479,7 +617,6 @@ public class DriveSubsystem extends SubsystemBase {
         }
     }
 
-    private final SwerveDriveOdometry odometer = new SwerveDriveOdometry(kinematics, new Rotation2d(0),
-            getModulePositions());
+    private final OdometrySampler odometer;
 
 }
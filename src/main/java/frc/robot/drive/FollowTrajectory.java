@@ -0,0 +1,116 @@
+package frc.robot.drive;
+
+import java.util.List;
+
+import edu.wpi.first.math.controller.HolonomicDriveController;
+import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.controller.ProfiledPIDController;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.math.trajectory.TrajectoryConfig;
+import edu.wpi.first.math.trajectory.TrajectoryGenerator;
+import edu.wpi.first.math.trajectory.TrapezoidProfile;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import frc.robot.Constants.AutoConstants;
+import frc.robot.Constants.DriveConstants;
+
+/**
+ * Follows a time parameterised trajectory. The trajectory's own velocity is
+ * used as feedforward and small PID loops on x, y and heading correct for
+ * drift from the odometry pose, in the field frame. Unlike {@link AutoDrive}, multi-waypoint paths
+ * are driven continuously without stopping at each point. Finishes once the
+ * trajectory's time is up and the robot is at its end, or a short while after
+ * if it never gets there.
+ */
+public class FollowTrajectory extends CommandBase {
+    private final DriveSubsystem drive;
+    private final Trajectory trajectory;
+    private final Rotation2d heading;
+    private final HolonomicDriveController controller;
+    private final ProfiledPIDController thetaController;
+    private final Timer timer = new Timer();
+
+    /**
+     * @param drive      The drive to follow the trajectory with
+     * @param trajectory The path to follow, in the field frame, see
+     *                   {@link frc.robot.auto.FieldFrame}
+     * @param heading    The field frame heading to hold while following,
+     *                   independent of the direction of travel
+     */
+    public FollowTrajectory(final DriveSubsystem drive, final Trajectory trajectory, final Rotation2d heading) {
+        this.drive = drive;
+        this.trajectory = trajectory;
+        this.heading = heading;
+
+        thetaController = new ProfiledPIDController(AutoConstants.TRAJECTORY_THETA_KP, 0, 0,
+                new TrapezoidProfile.Constraints(AutoConstants.TRAJECTORY_MAX_ANGULAR_VELOCITY,
+                        AutoConstants.TRAJECTORY_MAX_ANGULAR_ACCELERATION));
+        thetaController.enableContinuousInput(-Math.PI, Math.PI);
+
+        controller = new HolonomicDriveController(
+                new PIDController(AutoConstants.TRAJECTORY_XY_KP, 0, 0),
+                new PIDController(AutoConstants.TRAJECTORY_XY_KP, 0, 0),
+                thetaController);
+        controller.setTolerance(AutoConstants.TRAJECTORY_TOLERANCE);
+
+        addRequirements(drive);
+    }
+
+    /**
+     * Generate a trajectory through the given points using the drive's speed
+     * limits. Safe to call from any thread.
+     *
+     * @param start    Where the path starts; the rotation is the direction of
+     *                 travel, not the robot heading
+     * @param interior Points to pass through without stopping
+     * @param end      Where the path ends; the rotation is the direction of
+     *                 travel
+     * @return The generated trajectory
+     */
+    public static Trajectory generate(final Pose2d start, final List<Translation2d> interior, final Pose2d end) {
+        // Own kinematics instance, since this may run off the main thread
+        final var config = new TrajectoryConfig(AutoConstants.TRAJECTORY_MAX_VELOCITY,
+                AutoConstants.TRAJECTORY_MAX_ACCELERATION)
+                .setKinematics(new SwerveDriveKinematics(DriveConstants.WHEEL_LOCATIONS));
+        return TrajectoryGenerator.generateTrajectory(start, interior, end, config);
+    }
+
+    public Trajectory getTrajectory() {
+        return trajectory;
+    }
+
+    @Override
+    public void initialize() {
+        thetaController.reset(drive.getOdometryPose().getRotation().getRadians());
+        timer.reset();
+        timer.start();
+    }
+
+    @Override
+    public void execute() {
+        final var desiredState = trajectory.sample(timer.get());
+        final var speeds = controller.calculate(drive.getOdometryPose(), desiredState, heading);
+
+        // The drive takes speeds as a fraction of its top speed
+        drive.setRobotRelative(speeds.vxMetersPerSecond / AutoConstants.MAX_SPEED,
+                speeds.vyMetersPerSecond / AutoConstants.MAX_SPEED,
+                speeds.omegaRadiansPerSecond / AutoConstants.MAX_SPEED);
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        timer.stop();
+        drive.stop();
+    }
+
+    @Override
+    public boolean isFinished() {
+        final var total = trajectory.getTotalTimeSeconds();
+        return timer.hasElapsed(total) && controller.atReference()
+                || timer.hasElapsed(total + AutoConstants.TRAJECTORY_END_TIMEOUT_SECONDS);
+    }
+}
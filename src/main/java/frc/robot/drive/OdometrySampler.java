@@ -0,0 +1,200 @@
+package frc.robot.drive;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.DoubleUnaryOperator;
+
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants.VisionConstants;
+import frc.robot.vision.VisionMeasurement;
+
+/**
+ * Integrates swerve odometry on its own {@link Notifier} so the pose is
+ * updated several times per scheduler loop. Each sample is written into a
+ * single-producer ring buffer; readers on other threads get the latest sample
+ * without taking a lock. The heading is looked up at each sample's own time,
+ * so it lines up with the wheel positions rather than the last gyro update.
+ *
+ * <p>
+ * Vision measurements are fused in with a {@link SwerveDrivePoseEstimator}.
+ * The estimator keeps its own timestamped history of odometry, so a
+ * measurement that arrives late is applied at the time the image was
+ * captured and the odometry since then is replayed on top of it. Measurements
+ * can be added from any thread, they are queued and applied on the sampler
+ * thread so the estimator is only ever touched by one thread.
+ *
+ * <p>
+ * Poses are in the field frame, see {@link frc.robot.auto.FieldFrame}. The
+ * sampler starts at the field's origin until it's reset to a known pose.
+ */
+public class OdometrySampler {
+    // Must be a power of two so the index can be masked
+    private static final int CAPACITY = 64;
+    private static final int MASK = CAPACITY - 1;
+
+    private final double[] timestamps = new double[CAPACITY];
+    private final double[] xs = new double[CAPACITY];
+    private final double[] ys = new double[CAPACITY];
+    private final double[] headings = new double[CAPACITY];
+    // Number of samples written so far. Written only by the sampler thread, and
+    // always after the sample it publishes.
+    private volatile long writeCount = 0;
+
+    private final SwervePod[] swervePods;
+    // Heading in degrees at an FPGA timestamp
+    private final DoubleUnaryOperator headingDegreesAt;
+    private final SwerveModulePosition[] positions;
+    private final SwerveDrivePoseEstimator estimator;
+    private final ConcurrentLinkedQueue<VisionMeasurement> pendingVision = new ConcurrentLinkedQueue<>();
+    private final AtomicReference<Pose2d> pendingReset = new AtomicReference<>();
+    // Only touched by the sampler thread
+    private double lastResetTime = Double.NEGATIVE_INFINITY;
+    private volatile long visionCount = 0;
+    private volatile long rejectedVisionCount = 0;
+    private final Notifier notifier = new Notifier(this::sample);
+
+    public OdometrySampler(final SwerveDriveKinematics kinematics, final SwervePod[] swervePods,
+            final DoubleUnaryOperator headingDegreesAt) {
+        this.swervePods = swervePods;
+        this.headingDegreesAt = headingDegreesAt;
+
+        positions = new SwerveModulePosition[swervePods.length];
+        for (var i = 0; i < positions.length; i++) {
+            positions[i] = new SwerveModulePosition();
+        }
+        readModulePositions();
+        estimator = new SwerveDrivePoseEstimator(kinematics, new Rotation2d(0), positions, new Pose2d(),
+                VecBuilder.fill(VisionConstants.ODOMETRY_XY_STD_DEV, VisionConstants.ODOMETRY_XY_STD_DEV,
+                        VisionConstants.ODOMETRY_HEADING_STD_DEV),
+                VecBuilder.fill(VisionConstants.DEFAULT_XY_STD_DEV, VisionConstants.DEFAULT_XY_STD_DEV,
+                        VisionConstants.DEFAULT_HEADING_STD_DEV));
+
+        notifier.setName("Odometry");
+    }
+
+    public void start(final double periodSeconds) {
+        notifier.startPeriodic(periodSeconds);
+    }
+
+    public void stop() {
+        notifier.stop();
+    }
+
+    private void readModulePositions() {
+        for (var i = 0; i < swervePods.length; i++) {
+            swervePods[i].updatePosition(positions[i]);
+        }
+    }
+
+    private void sample() {
+        final var timestamp = Timer.getFPGATimestamp();
+        readModulePositions();
+        final var heading = Rotation2d.fromDegrees(headingDegreesAt.applyAsDouble(timestamp));
+        final var reset = pendingReset.getAndSet(null);
+        if (reset != null) {
+            // The estimator's history is cleared, so vision has to wait for the next sample
+            estimator.resetPosition(heading, positions, reset);
+            lastResetTime = timestamp;
+        } else {
+            estimator.updateWithTime(timestamp, heading, positions);
+            applyVision(timestamp);
+        }
+        final var pose = estimator.getEstimatedPosition();
+
+        final var count = writeCount;
+        final var index = (int) (count & MASK);
+        timestamps[index] = timestamp;
+        xs[index] = pose.getX();
+        ys[index] = pose.getY();
+        headings[index] = pose.getRotation().getRadians();
+        writeCount = count + 1;
+    }
+
+    /**
+     * Move the pose to a known one from the next sample on. Safe to call from
+     * any thread.
+     */
+    public void resetPose(final Pose2d pose) {
+        pendingReset.set(pose);
+    }
+
+    /**
+     * Queue a vision measurement to be fused on the next sample. Safe to call
+     * from any thread.
+     */
+    public void addVisionMeasurement(final VisionMeasurement measurement) {
+        pendingVision.add(measurement);
+    }
+
+    private void applyVision(final double now) {
+        VisionMeasurement measurement;
+        while ((measurement = pendingVision.poll()) != null) {
+            final var age = now - measurement.timestamp();
+            // Anything from the future, older than the history or from before a reset can't be placed
+            if (age < 0 || age > VisionConstants.MAX_MEASUREMENT_AGE_SECONDS
+                    || measurement.timestamp() < lastResetTime) {
+                rejectedVisionCount++;
+                continue;
+            }
+            estimator.addVisionMeasurement(measurement.pose(), measurement.timestamp(),
+                    VecBuilder.fill(measurement.xyStdDev(), measurement.xyStdDev(), measurement.headingStdDev()));
+            visionCount++;
+        }
+    }
+
+    /** @return How many vision measurements have been fused */
+    public long getVisionCount() {
+        return visionCount;
+    }
+
+    /** @return How many vision measurements were too old or too new to fuse */
+    public long getRejectedVisionCount() {
+        return rejectedVisionCount;
+    }
+
+    public long getSampleCount() {
+        return writeCount;
+    }
+
+    /**
+     * @return The most recent pose, a reset that hasn't been sampled yet, or
+     *         the origin if nothing has been sampled
+     */
+    public Pose2d getLatestPose() {
+        final var reset = pendingReset.get();
+        if (reset != null) {
+            return reset;
+        }
+        while (true) {
+            final var count = writeCount;
+            if (count == 0) {
+                return new Pose2d();
+            }
+
+            final var index = (int) ((count - 1) & MASK);
+            final var x = xs[index];
+            final var y = ys[index];
+            final var heading = headings[index];
+
+            // If the writer lapped the slot while we read it, try again
+            if (writeCount - count < CAPACITY - 1) {
+                return new Pose2d(x, y, new Rotation2d(heading));
+            }
+        }
+    }
+
+    /**
+     * @return The FPGA timestamp of the most recent sample in seconds
+     */
+    public double getLatestTimestamp() {
+        final var count = writeCount;
+        return count == 0 ? 0 : timestamps[(int) ((count - 1) & MASK)];
+    }
+}
@@ -0,0 +1,97 @@
+package frc.robot.drive;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * Inverse kinematics for the swerve drive that writes into preallocated
+ * arrays instead of building {@link edu.wpi.first.math.kinematics.ChassisSpeeds}
+ * and {@link edu.wpi.first.math.kinematics.SwerveModuleState} objects every
+ * loop. Produces the same speeds and angles as
+ * {@link edu.wpi.first.math.kinematics.SwerveDriveKinematics#toSwerveModuleStates},
+ * including holding the last module angles when asked to stop.
+ */
+public class SwerveKinematicsSolver {
+    private final double[] moduleX;
+    private final double[] moduleY;
+
+    private final double[] speeds;
+    private final double[] anglesDegrees;
+
+    public SwerveKinematicsSolver(final Translation2d[] moduleLocations) {
+        moduleX = new double[moduleLocations.length];
+        moduleY = new double[moduleLocations.length];
+        for (var i = 0; i < moduleLocations.length; i++) {
+            moduleX[i] = moduleLocations[i].getX();
+            moduleY[i] = moduleLocations[i].getY();
+        }
+
+        speeds = new double[moduleLocations.length];
+        anglesDegrees = new double[moduleLocations.length];
+    }
+
+    public int getModuleCount() {
+        return speeds.length;
+    }
+
+    public double getSpeed(final int module) {
+        return speeds[module];
+    }
+
+    public double getAngleDegrees(final int module) {
+        return anglesDegrees[module];
+    }
+
+    /**
+     * Overwrite the angle a module holds while the chassis is stopped.
+     *
+     * @param module        Which module to change
+     * @param angleDegrees  The angle to hold
+     */
+    public void setHeldAngle(final int module, final double angleDegrees) {
+        speeds[module] = 0;
+        anglesDegrees[module] = angleDegrees;
+    }
+
+    /**
+     * Solve for module states from robot relative chassis speeds.
+     *
+     * @param vx    Forward speed
+     * @param vy    Sideways speed
+     * @param omega Rotation speed in radians per second
+     */
+    public void solve(final double vx, final double vy, final double omega) {
+        if (vx == 0.0 && vy == 0.0 && omega == 0.0) {
+            // Keep the previous angles so the modules don't snap back to zero
+            for (var i = 0; i < speeds.length; i++) {
+                speeds[i] = 0.0;
+            }
+            return;
+        }
+
+        for (var i = 0; i < speeds.length; i++) {
+            final var moduleVx = vx - omega * moduleY[i];
+            final var moduleVy = vy + omega * moduleX[i];
+            final var speed = Math.hypot(moduleVx, moduleVy);
+
+            speeds[i] = speed;
+            // Rotation2d treats tiny vectors as zero degrees, match that here
+            anglesDegrees[i] = speed > 1e-6 ? Math.toDegrees(Math.atan2(moduleVy, moduleVx)) : 0.0;
+        }
+    }
+
+    /**
+     * Solve for module states from field relative chassis speeds.
+     *
+     * @param vx                 Speed away from the driver station
+     * @param vy                 Speed to the left of the driver station
+     * @param omega              Rotation speed in radians per second
+     * @param robotAngleDegrees  The robot's current heading
+     */
+    public void solveFieldRelative(final double vx, final double vy, final double omega,
+            final double robotAngleDegrees) {
+        final var radians = Math.toRadians(robotAngleDegrees);
+        final var cos = Math.cos(radians);
+        final var sin = Math.sin(radians);
+        solve(vx * cos + vy * sin, -vx * sin + vy * cos, omega);
+    }
+}
@@ -5,43 +5,181 @@ import org.assabet.aztechs157.Expect;
 import com.ctre.phoenix.sensors.CANCoder;
 import com.revrobotics.CANSparkMax;
 import com.revrobotics.CANSparkMaxLowLevel.MotorType;
+import com.revrobotics.RelativeEncoder;
+import com.revrobotics.SparkMaxPIDController;
 
+import edu.wpi.first.hal.SimDevice;
+import edu.wpi.first.hal.SimDouble;
 import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.controller.SimpleMotorFeedforward;
 import edu.wpi.first.math.filter.SlewRateLimiter;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants.AutoConstants;
 import frc.robot.Constants.DriveConstants;
+import frc.robot.Constants.TelemetryConstants;
+import frc.robot.telemetry.Telemetry;
 
 public class SwervePod {
 
     public record Config(int driveMotorId, int angleMotorId, int angleEncoderId, boolean driveMotorInverted) {
     }
 
+    /** How drive speeds from -1 to 1 reach the drive motor. */
+    public enum DriveControl {
+        /** Straight to the motor as duty cycle, so wheel speed sags with the battery. */
+        OPEN_LOOP,
+        /**
+         * Scaled to meters per second by {@link AutoConstants#MAX_SPEED} and held by
+         * the SparkMax's own 1 kHz velocity loop, with feedforward from here.
+         */
+        VELOCITY
+    }
+
+    /** Where the steering position loop runs. */
+    public enum SteerControl {
+        /** A PID on the RIO reading the CANCoder, at 50 Hz. */
+        RIO,
+        /**
+         * The SparkMax's own position loop on its built in encoder, at 1 kHz. The
+         * encoder is seeded from the CANCoder and checked against it every
+         * {@link DriveConstants#STEER_RESYNC_SECONDS}.
+         */
+        ONBOARD
+    }
+
     private final CANSparkMax driveMotor;
     private final CANSparkMax angleMotor;
     private final CANCoder angleEncoder;
-    private final NetworkTable table;
+    private final RelativeEncoder driveEncoder;
+    private final SparkMaxPIDController driveVelocityPid;
+    private final RelativeEncoder steerEncoder;
+    private final SparkMaxPIDController steerPid;
+    private double lastResync = Double.NEGATIVE_INFINITY;
+    private final SimpleMotorFeedforward driveFeedforward = new SimpleMotorFeedforward(DriveConstants.DRIVE_KS,
+            DriveConstants.DRIVE_KV, DriveConstants.DRIVE_KA);
+    private final boolean driveMotorInverted;
+    private double currentAngle = 0.0;
+    private double rawDrivePosition = 0.0;
+    private double driveVelocity = 0.0;
+    private double velocitySetpoint = 0.0;
+    private double distancePerRotation = 1.0;
+    private double driveOutput = 0.0;
+    private double angleOutput = 0.0;
+
+    // Only exist in simulation, where they stand in for the CAN sensors
+    private final SimDevice simDevice;
+    private final SimDouble simAngle;
+    private final SimDouble simDriveRotations;
+    private final SimDouble simDriveVelocity;
+    private final SimDouble simSteerDegrees;
+    // Stands in for setting the steering encoder's position, read by the odometry thread
+    private volatile double simSteerOffset = 0;
+
+    private final Telemetry.DoubleChannel inputSpeedEntry;
+    private final Telemetry.BooleanChannel reversedEntry;
+    private final Telemetry.DoubleChannel inputAngleEntry;
+    private final Telemetry.DoubleChannel currentAngleEntry;
+    private final Telemetry.DoubleChannel initialDeltaEntry;
+    private final Telemetry.DoubleChannel shortestDeltaEntry;
+    private final Telemetry.DoubleChannel pidOutputEntry;
+    private final Telemetry.DoubleChannel velocitySetpointEntry;
+    private final Telemetry.DoubleChannel velocityEntry;
+    private final Telemetry.DoubleChannel steerDriftEntry;
 
     public SwervePod(final Config config, final NetworkTable table) {
-        this.table = table;
+        driveMotorInverted = config.driveMotorInverted;
+        Telemetry.booleanChannel(table, "Inverted").set(driveMotorInverted);
+        inputSpeedEntry = Telemetry.doubleChannel(table, "Input Speed");
+        reversedEntry = Telemetry.booleanChannel(table, "Roll Reversed?");
+        inputAngleEntry = Telemetry.doubleChannel(table, "Input Angle");
+        currentAngleEntry = Telemetry.doubleChannel(table, "Current Angle");
+        initialDeltaEntry = Telemetry.doubleChannel(table, "Initial Delta", TelemetryConstants.DEBUG_RATE_DIVISOR);
+        shortestDeltaEntry = Telemetry.doubleChannel(table, "Shorted Delta", TelemetryConstants.DEBUG_RATE_DIVISOR);
+        pidOutputEntry = Telemetry.doubleChannel(table, "PID Output", TelemetryConstants.DEBUG_RATE_DIVISOR);
+        initialDeltaEntry.setLogDivisor(TelemetryConstants.DEBUG_RATE_DIVISOR);
+        shortestDeltaEntry.setLogDivisor(TelemetryConstants.DEBUG_RATE_DIVISOR);
+        pidOutputEntry.setLogDivisor(TelemetryConstants.DEBUG_RATE_DIVISOR);
+        velocitySetpointEntry = Telemetry.doubleChannel(table, "Velocity Setpoint");
+        velocityEntry = Telemetry.doubleChannel(table, "Velocity");
+        steerDriftEntry = Telemetry.doubleChannel(table, "Steer Drift");
+
         driveMotor = new CANSparkMax(config.driveMotorId, MotorType.kBrushless);
         angleMotor = new CANSparkMax(config.angleMotorId, MotorType.kBrushless);
         angleEncoder = new CANCoder(config.angleEncoderId);
 
-        table.getEntry("Inverted").setBoolean(config.driveMotorInverted);
-
         driveMotor.setIdleMode(DriveConstants.DRIVE_IDLE_MODE);
         driveMotor.setInverted(false);
         angleMotor.setIdleMode(DriveConstants.ANGLE_IDLE_MODE);
         angleMotor.setInverted(true);
         angleEncoder.configSensorDirection(false);
+
+        driveEncoder = driveMotor.getEncoder();
+        driveEncoder.setMeasurementPeriod(DriveConstants.DRIVE_VELOCITY_MEASUREMENT_PERIOD_MS);
+        driveEncoder.setAverageDepth(DriveConstants.DRIVE_VELOCITY_AVERAGE_DEPTH);
+        driveVelocityPid = driveMotor.getPIDController();
+        driveVelocityPid.setP(DriveConstants.DRIVE_VELOCITY_KP);
+        driveVelocityPid.setI(0);
+        driveVelocityPid.setD(0);
+        // Feedforward is sent with every setpoint instead
+        driveVelocityPid.setFF(0);
+
+        // In degrees of the pod, which turns the opposite way to the CANCoder
+        steerEncoder = angleMotor.getEncoder();
+        steerEncoder.setPositionConversionFactor(360 / DriveConstants.STEER_GEARING);
+        steerEncoder.setVelocityConversionFactor(360 / DriveConstants.STEER_GEARING / 60);
+        steerPid = angleMotor.getPIDController();
+        steerPid.setP(DriveConstants.ANGLE_ONBOARD_KP);
+        steerPid.setI(0);
+        steerPid.setD(0);
+        steerPid.setFF(0);
+        steerPid.setPositionPIDWrappingEnabled(true);
+        steerPid.setPositionPIDWrappingMinInput(-180);
+        steerPid.setPositionPIDWrappingMaxInput(180);
+        onboardSteerPid.enableContinuousInput(-180, 180);
+
+        simDevice = SimDevice.create("SwervePod", config.angleEncoderId);
+        if (simDevice != null) {
+            simAngle = simDevice.createDouble("Angle", SimDevice.Direction.kInput, 0);
+            simDriveRotations = simDevice.createDouble("Drive Rotations", SimDevice.Direction.kInput, 0);
+            simDriveVelocity = simDevice.createDouble("Drive Velocity", SimDevice.Direction.kInput, 0);
+            simSteerDegrees = simDevice.createDouble("Steer Degrees", SimDevice.Direction.kInput, 0);
+        } else {
+            simAngle = null;
+            simDriveRotations = null;
+            simDriveVelocity = null;
+            simSteerDegrees = null;
+        }
+        if (DriveConstants.STEER_CONTROL == SteerControl.ONBOARD) {
+            seedSteerEncoder(readAbsoluteAngle());
+            lastResync = Timer.getFPGATimestamp();
+        }
+        sampleSensors();
+    }
+
+    // Called by DriveSubsystem once per loop, everything in the loop reads these
+    // cached values instead of going over CAN again
+    public void sampleSensors() {
+        if (DriveConstants.STEER_CONTROL == SteerControl.ONBOARD) {
+            resyncSteerEncoder();
+        }
+        currentAngle = readCurrentAngle();
+        rawDrivePosition = readRawDrivePosition();
+        driveVelocity = readDriveVelocity();
     }
 
     public void set(final SwerveModuleState state) {
-        goToAngle(wrapDegrees(state.angle.getDegrees()));
-        drive(state.speedMetersPerSecond);
+        set(state.speedMetersPerSecond, state.angle.getDegrees());
+    }
+
+    public void set(final double speed, final double angleDegrees) {
+        goToAngle(wrapDegrees(angleDegrees));
+        drive(speed);
     }
 
     public void directSet(final double driveSpeed, final double angleSpeed) {
@@ -60,27 +198,105 @@ public class SwervePod {
     private boolean reversed = false;
 
     private void drive(double speed) {
-        table.getEntry("Input Speed").setDouble(speed);
-        table.getEntry("Roll Reversed?").setBoolean(reversed);
+        inputSpeedEntry.set(speed);
+        reversedEntry.set(reversed);
 
         if (reversed) {
             speed = -speed;
         }
 
-        final var inverted = table.getEntry("Inverted");
-        if (inverted.getBoolean(false)) {
+        if (driveMotorInverted) {
             speed = -speed;
         }
 
-        driveMotor.set(driveSlewrate.calculate(speed));
+        final var limited = driveSlewrate.calculate(speed);
+        if (DriveConstants.DRIVE_CONTROL == DriveControl.VELOCITY) {
+            driveVelocity(limited * AutoConstants.MAX_SPEED);
+        } else {
+            driveOutput = limited;
+            driveMotor.set(driveOutput);
+        }
+    }
+
+    private void driveVelocity(final double metersPerSecond) {
+        // Setpoints only change once a loop, so this is the acceleration asked for
+        final var acceleration = (metersPerSecond - velocitySetpoint) / TimedRobot.kDefaultPeriod;
+        final var volts = driveFeedforward.calculate(metersPerSecond, acceleration);
+        velocitySetpoint = metersPerSecond;
+        velocitySetpointEntry.set(metersPerSecond);
+        velocityEntry.set(driveVelocity);
+
+        driveVelocityPid.setReference(metersPerSecond, CANSparkMax.ControlType.kVelocity, 0, volts,
+                SparkMaxPIDController.ArbFFUnits.kVoltage);
+
+        // Reading the applied output back would cost a CAN frame, so estimate it
+        // the same way the SparkMax works it out
+        final var output = volts / RobotController.getBatteryVoltage()
+                + DriveConstants.DRIVE_VELOCITY_KP * (metersPerSecond - driveVelocity);
+        driveOutput = Math.max(-1, Math.min(1, output));
+    }
+
+    /**
+     * Drive with a fixed voltage while holding the wheel straight, for
+     * characterization. The voltage is flipped the same way as a drive speed.
+     */
+    public void setDriveVoltage(double volts) {
+        goToAngle(0);
+        if (reversed) {
+            volts = -volts;
+        }
+        if (driveMotorInverted) {
+            volts = -volts;
+        }
+
+        driveSlewrate.reset(0);
+        velocitySetpoint = 0;
+        driveOutput = volts / RobotController.getBatteryVoltage();
+        driveMotor.setVoltage(volts);
     }
 
     public void resetDrivePosition() {
-        driveMotor.getEncoder().setPosition(0);
+        driveEncoder.setPosition(0);
+        if (simDriveRotations != null) {
+            simDriveRotations.set(0);
+        }
+    }
+
+    /** @return What the drive motor was last set to */
+    public double getDriveOutput() {
+        return driveOutput;
+    }
+
+    /** @return What the angle motor was last set to */
+    public double getAngleOutput() {
+        return angleOutput;
+    }
+
+    /** @return How fast the drive motor is turning, in meters per second of wheel travel */
+    public double getDriveVelocity() {
+        return driveVelocity;
+    }
+
+    public double readDriveVelocity() {
+        if (simDriveVelocity != null) {
+            return simDriveVelocity.get() * distancePerRotation;
+        }
+        return driveEncoder.getVelocity();
+    }
+
+    public double getDistancePerRotation() {
+        return distancePerRotation;
     }
 
     public double getRawDrivePosition() {
-        return driveMotor.getEncoder().getPosition();
+        return rawDrivePosition;
+    }
+
+    public double readRawDrivePosition() {
+        if (simDriveRotations != null) {
+            return simDriveRotations.get() * distancePerRotation;
+        }
+        return driveEncoder.getPosition();
     }
 
     private double wrapDegrees(final double degrees) {
@@ -95,32 +311,108 @@ public class SwervePod {
     }
 
     public double getCurrentAngle() {
+        return currentAngle;
+    }
+
+    public double readCurrentAngle() {
+        if (DriveConstants.STEER_CONTROL == SteerControl.ONBOARD) {
+            return wrapDegrees(-readSteerDegrees());
+        }
+        return readAbsoluteAngle();
+    }
+
+    private double readAbsoluteAngle() {
+        if (simAngle != null) {
+            return simAngle.get();
+        }
         return angleEncoder.getAbsolutePosition();
     }
 
+    private double readSteerDegrees() {
+        if (simSteerDegrees != null) {
+            return simSteerDegrees.get() + simSteerOffset;
+        }
+        return steerEncoder.getPosition();
+    }
+
+    /** Set the steering encoder so it reads the same angle as the CANCoder. */
+    private void seedSteerEncoder(final double absoluteDegrees) {
+        if (simSteerDegrees != null) {
+            simSteerOffset = -absoluteDegrees - simSteerDegrees.get();
+        } else {
+            steerEncoder.setPosition(-absoluteDegrees);
+        }
+    }
+
+    // Only reads the CANCoder once every resync period, every other read comes
+    // from the SparkMax's status frames
+    private void resyncSteerEncoder() {
+        final var now = Timer.getFPGATimestamp();
+        if (now - lastResync < DriveConstants.STEER_RESYNC_SECONDS) {
+            return;
+        }
+        final var velocity = simSteerDegrees != null ? 0 : steerEncoder.getVelocity();
+        if (Math.abs(velocity) > DriveConstants.STEER_RESYNC_MAX_VELOCITY_DEG) {
+            return;
+        }
+        lastResync = now;
+
+        final var absolute = readAbsoluteAngle();
+        final var drift = (computeInitialDelta(absolute, wrapDegrees(-readSteerDegrees())) + 180) % 360 - 180;
+        steerDriftEntry.set(drift);
+        if (Math.abs(drift) > DriveConstants.STEER_RESYNC_TOLERANCE_DEG) {
+            seedSteerEncoder(absolute);
+        }
+    }
+
     private void setAngleSpeed(final double speed) {
+        angleOutput = speed;
         angleMotor.set(speed);
     }
 
-    // Next 3 methods are used to find the shortest distance to get to a given angle
+    // Next methods are used to find the shortest distance to get to a given angle
     private void goToAngle(final double target) {
-        table.getEntry("Input Angle").setDouble(target);
-        table.getEntry("Current Angle").setDouble(getCurrentAngle());
+        inputAngleEntry.set(target);
+        currentAngleEntry.set(getCurrentAngle());
 
-        final var initialDelta = computeInitialDelta(target);
-        table.getEntry("Initial Delta").setDouble(initialDelta);
+        final var initialDelta = computeInitialDelta(target, getCurrentAngle());
+        initialDeltaEntry.set(initialDelta);
 
+        reversed = isReversed(initialDelta);
         final var shortestDelta = computeShortestDelta(initialDelta);
-        table.getEntry("Shorted Delta").setDouble(shortestDelta);
+        shortestDeltaEntry.set(shortestDelta);
+
+        if (DriveConstants.STEER_CONTROL == SteerControl.ONBOARD) {
+            setAngleReference(getCurrentAngle() + shortestDelta);
+            return;
+        }
 
         final var pidOutput = computeAnglePidOutput(shortestDelta);
-        table.getEntry("PID Output").setDouble(pidOutput);
+        pidOutputEntry.set(pidOutput);
         setAngleSpeed(pidOutput);
     }
 
-    private double computeInitialDelta(final double target) {
-        final double initial = getCurrentAngle();
+    // Mirrors the SparkMax's steering loop
+    private final PIDController onboardSteerPid = new PIDController(DriveConstants.ANGLE_ONBOARD_KP, 0, 0);
+
+    private void setAngleReference(final double targetDegrees) {
+        // The steering encoder counts the other way to the CANCoder
+        final var reference = -targetDegrees;
+        final var output = onboardSteerPid.calculate(-getCurrentAngle(), reference);
+        pidOutputEntry.set(output);
+
+        if (simSteerDegrees != null) {
+            // The SparkMax's loop doesn't run in simulation, so the same loop runs here at 50 Hz
+            setAngleSpeed(output);
+        } else {
+            // Only an estimate of what the SparkMax will output, for telemetry and simulation
+            angleOutput = output;
+            steerPid.setReference(reference, CANSparkMax.ControlType.kPosition);
+        }
+    }
 
+    // Static so the angle math can be benchmarked without hardware
+    static double computeInitialDelta(final double target, final double initial) {
         Expect.number(target).greaterOrEqual(0).lessOrEqual(360);
         Expect.number(initial).greaterOrEqual(0).lessOrEqual(360);
 
@@ -135,25 +427,27 @@ public class SwervePod {
         return initialDelta;
     }
 
-    private double computeShortestDelta(final double initialDelta) {
+    static double computeShortestDelta(final double initialDelta) {
         Expect.number(initialDelta).greaterOrEqual(0).lessOrEqual(360);
 
         if (initialDelta < 90) {
-            reversed = false;
             return initialDelta;
 
         } else if (initialDelta < 270) {
-            reversed = true;
             return initialDelta - 180;
 
         } else if (initialDelta <= 360) {
-            reversed = false;
             return initialDelta - 360;
         }
 
         throw new RuntimeException("Above Expect.number() should have covered this.");
     }
 
+    // Going more than a quarter turn either way is shorter backwards
+    static boolean isReversed(final double initialDelta) {
+        return initialDelta >= 90 && initialDelta < 270;
+    }
+
     private final PIDController anglePid = new PIDController(DriveConstants.ANGLE_KP, 0, DriveConstants.ANGLE_KD);
 
     private double computeAnglePidOutput(final double shortestDelta) {
@@ -165,7 +459,17 @@ public class SwervePod {
         return new SwerveModulePosition(getRawDrivePosition(), Rotation2d.fromDegrees(getCurrentAngle()));
     }
 
+    // Reads the hardware directly so the odometry thread isn't limited to the
+    // loop's snapshot
+    public void updatePosition(final SwerveModulePosition position) {
+        position.distanceMeters = readRawDrivePosition();
+        position.angle = Rotation2d.fromDegrees(readCurrentAngle());
+    }
+
     public void setDistancePerRotation(double distancePerRotation) {
-        driveMotor.getEncoder().setPositionConversionFactor(distancePerRotation); // this is in meters
+        this.distancePerRotation = distancePerRotation;
+        driveEncoder.setPositionConversionFactor(distancePerRotation); // this is in meters
+        // Velocity comes back per minute
+        driveEncoder.setVelocityConversionFactor(distancePerRotation / 60);
     }
 }
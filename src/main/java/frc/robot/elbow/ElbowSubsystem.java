@@ -8,9 +8,11 @@ import com.revrobotics.CANSparkMax;
 import com.revrobotics.CANSparkMax.IdleMode;
 import com.revrobotics.CANSparkMaxLowLevel.MotorType;
 
-import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.controller.ArmFeedforward;
 import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.hal.SimDevice;
+import edu.wpi.first.hal.SimDouble;
 import edu.wpi.first.wpilibj.Counter;
 import edu.wpi.first.wpilibj.Servo;
 import edu.wpi.first.wpilibj.Counter.Mode;
@@ -21,13 +23,25 @@ import frc.robot.Constants;
 import frc.robot.Constants.ElbowConstants;
 import frc.robot.input.DriverInputs;
 import frc.robot.lib.NumberUtil;
+import frc.robot.lib.ProfiledJoint;
+import frc.robot.sensors.SensorSnapshot;
 import frc.robot.statemachines.SubsystemGroup.SafetyLogic;
+import frc.robot.telemetry.LoopProfiler;
+import frc.robot.telemetry.Telemetry;
 
-public class ElbowSubsystem extends SubsystemBase {
+public class ElbowSubsystem extends SubsystemBase implements SensorSnapshot.Source {
 
     private final CANSparkMax elbowMotor = new CANSparkMax(ElbowConstants.MOTOR_ID, MotorType.kBrushless);
     private final Counter elbowAbsEncoder = new Counter(Mode.kSemiperiod);
     private double elbowSpeed = 0.0;
+    private double elbowOutput = 0.0;
+    private double elbowPosition = 0.0;
+
+    // Counter has no simulation support, so in simulation the period comes from here
+    private final SimDevice simEncoder = SimDevice.create("Elbow Encoder");
+    private final SimDouble simPeriod = simEncoder != null
+            ? simEncoder.createDouble("Period", SimDevice.Direction.kInput, 0)
+            : null;
 
     public ElbowSubsystem() {
         elbowMotor.setInverted(true);
@@ -37,11 +51,19 @@ public class ElbowSubsystem extends SubsystemBase {
         elbowAbsEncoder.setSemiPeriodMode(true);
         elbowAbsEncoder.setUpSource(ElbowConstants.ABS_ENCODER_ROTATION_ID);
         elbowAbsEncoder.reset();
+        sampleSensors();
+    }
+
+    @Override
+    public void sampleSensors() {
+        final var period = simPeriod != null ? simPeriod.get() : elbowAbsEncoder.getPeriod();
+        elbowPosition = 360 - NumberUtil.ticksToDegs(period);
     }
 
     public Command runElbow(final DriverInputs inputs) {
+        final var axis = inputs.axis(DriverInputs.rotateElbow);
         return runEnd(() -> {
-            final double speed = inputs.axis(DriverInputs.rotateElbow).get();
+            final double speed = axis.get();
             rotateElbow(speed);
         }, () -> rotateElbow(0));
     }
@@ -51,7 +73,7 @@ public class ElbowSubsystem extends SubsystemBase {
     }
 
     public double getElbowRotationPosition() {
-        return 360 - NumberUtil.ticksToDegs(elbowAbsEncoder.getPeriod());
+        return elbowPosition;
     }
 
     public void rotateElbow(final double speed) {
@@ -59,45 +81,54 @@ public class ElbowSubsystem extends SubsystemBase {
 
         final double limitedSpeed = ElbowConstants.ROTATE_LIMITS.limitMotionWithinRange(
                 speed, getElbowRotationPosition());
+        elbowOutput = limitedSpeed;
         elbowMotor.set(limitedSpeed);
     }
 
+    /** @return What the motor was last set to, after limits */
+    public double getMotorOutput() {
+        return elbowOutput;
+    }
+
     private final NetworkTable table = NetworkTableInstance.getDefault().getTable("157/Elbow");
+    private final Telemetry.DoubleChannel elbowEntry = Telemetry.doubleChannel(table, "Elbow");
+    private final Telemetry.DoubleChannel elbowSpeedEntry = Telemetry.doubleChannel(table, "ElbowSpeed");
 
     public static class ElbowState implements SafetyLogic {
 
         private double elbowPosition;
-        private static PIDController mainPID = new PIDController(0.03, 0, 0);
+        public static final ProfiledJoint profile = new ProfiledJoint("Elbow", ElbowConstants.KP,
+                ElbowConstants.PROFILE, ProfiledJoint.arm(new ArmFeedforward(ElbowConstants.KS, ElbowConstants.KG,
+                        ElbowConstants.KV), ElbowConstants.HORIZONTAL_DEG),
+                ElbowConstants.TOLERANCE);
         private double minCarriagePos;
         private double minWristPos;
-        private PIDController elbowDownPid;
         private ElbowStates state;
 
         public enum ElbowStates {
             start, low, mid, loading, high
         }
 
-        public ElbowState(final double elbowPosition, final PIDController elbowDownPid,
-                final double minCarriagePos, double minWristPos, ElbowStates state) {
+        public ElbowState(final double elbowPosition, final double minCarriagePos, double minWristPos,
+                ElbowStates state) {
             this.elbowPosition = elbowPosition;
-            this.elbowDownPid = elbowDownPid;
             this.minCarriagePos = minCarriagePos;
             this.minWristPos = minWristPos;
             this.state = state;
         }
 
-        public static final ElbowState start = new ElbowState(ElbowConstants.START_POS, mainPID,
+        public static final ElbowState start = new ElbowState(ElbowConstants.START_POS,
                 ElbowConstants.START_POS_MIN_CARRIAGE,
                 ElbowConstants.START_POS_MIN_WRIST, ElbowStates.start);
-        public static final ElbowState low = new ElbowState(ElbowConstants.LOW_POS, mainPID,
+        public static final ElbowState low = new ElbowState(ElbowConstants.LOW_POS,
                 ElbowConstants.LOW_POS_MIN_CARRIAGE,
                 ElbowConstants.LOW_POS_MIN_WRIST, ElbowStates.low);
-        public static final ElbowState mid = new ElbowState(ElbowConstants.MID_POS, mainPID,
+        public static final ElbowState mid = new ElbowState(ElbowConstants.MID_POS,
                 ElbowConstants.MID_POS_MIN_CARRIAGE,
                 ElbowConstants.MID_POS_MIN_WRIST, ElbowStates.mid);
-        public static final ElbowState loading = new ElbowState(ElbowConstants.LOADING_POS, mainPID,
+        public static final ElbowState loading = new ElbowState(ElbowConstants.LOADING_POS,
                 ElbowConstants.LOADING_POS_MIN_CARRIAGE, ElbowConstants.LOADING_POS_MIN_WRIST, ElbowStates.loading);
-        public static final ElbowState high = new ElbowState(ElbowConstants.HIGH_POS, mainPID,
+        public static final ElbowState high = new ElbowState(ElbowConstants.HIGH_POS,
                 ElbowConstants.HIGH_POS_MIN_CARRIAGE,
                 ElbowConstants.HIGH_POS_MIN_WRIST, ElbowStates.high);
 
@@ -126,6 +157,11 @@ public class ElbowSubsystem extends SubsystemBase {
             return start;
         }
 
+        @Override
+        public double getTarget() {
+            return elbowPosition;
+        }
+
         @Override
         public double stateCalculate(double speed, double elbowPosition, double wristPosition, double elevatorPosition,
                 double carriagePosition) {
@@ -138,13 +174,13 @@ public class ElbowSubsystem extends SubsystemBase {
                 case mid:
                 case loading:
                     if (carriagePosition > this.minCarriagePos && wristPosition > this.minWristPos) {
-                        s = this.elbowDownPid.calculate(elbowPosition, this.elbowPosition);
+                        s = profile.calculate(elbowPosition, this.elbowPosition);
                     }
                     break;
                 case high:
                     if (elevatorPosition < ElbowConstants.SAFETY_ELEVATOR_LIMIT_HIGH
                             || elbowPosition < this.elbowPosition) {
-                        s = this.elbowDownPid.calculate(elbowPosition, this.elbowPosition);
+                        s = profile.calculate(elbowPosition, this.elbowPosition);
                     }
                     break;
                 default:
@@ -155,10 +191,14 @@ public class ElbowSubsystem extends SubsystemBase {
 
     }
 
+    private final LoopProfiler.Section periodicSection = LoopProfiler.section("ElbowSubsystem.periodic()");
+
     @Override
     public void periodic() {
-        table.getEntry("Elbow").setNumber(getElbowRotationPosition());
-        table.getEntry("ElbowSpeed").setNumber(elbowSpeed);
+        periodicSection.start();
+        elbowEntry.set(getElbowRotationPosition());
+        elbowSpeedEntry.set(elbowSpeed);
+        periodicSection.stop();
     }
 
 }
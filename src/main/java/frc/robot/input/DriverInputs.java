@@ -41,7 +41,7 @@ public class DriverInputs extends DynamicLayout {
     private static final NetworkTableEntry entry = NetworkTableInstance.getDefault().getEntry("157/Drive/StickEnabled");
 
     public DriverInputs() {
-        super(() -> true ? flightStickLayout() : dualLogitechLayout());
+        super(() -> true ? flightStick : dualLogitech);
 
         entry.setDefaultBoolean(false);
         entry.setPersistent();
@@ -50,6 +50,11 @@ public class DriverInputs extends DynamicLayout {
     private static final Deadzone deadzone = Deadzone.forAxis(new Range(-0.2, 0.2));
     private static final Rotation2d maxRotationPerSecond = Rotation2d.fromDegrees(65);
 
+    // Built once, DynamicLayout only looks inputs up again when the layout
+    // instance changes
+    private static final Layout flightStick = flightStickLayout();
+    private static final Layout dualLogitech = dualLogitechLayout();
+
     private static Layout dualLogitechLayout() {
         final var layout = new MapLayout("Default Eric/Connor Layout");
         final var driver = new LogitechGamepadF310(0);
@@ -57,9 +62,9 @@ public class DriverInputs extends DynamicLayout {
 
         final var speedModifier = 0.80;
 
-        layout.assign(driveSpeedX, driver.leftStickX.map(deadzone::apply).scaledBy(speedModifier));
-        layout.assign(driveSpeedY, driver.leftStickY.map(deadzone::apply).scaledBy(speedModifier));
-        layout.assign(driveRotation, driver.rightStickX.map(deadzone::apply).scaledBy(speedModifier)
+        layout.assign(driveSpeedX, driver.leftStickX.deadzone(deadzone).scaledBy(speedModifier));
+        layout.assign(driveSpeedY, driver.leftStickY.deadzone(deadzone).scaledBy(speedModifier));
+        layout.assign(driveRotation, driver.rightStickX.deadzone(deadzone).scaledBy(speedModifier)
                 .scaledBy(maxRotationPerSecond.getDegrees()));
         layout.assign(autoBalance, driver.a);
         layout.assign(runIntakeMotorInDriver, driver.rightTriggerHeld);
@@ -82,8 +87,8 @@ public class DriverInputs extends DynamicLayout {
         layout.assign(loadingPosition, operator.b);
         layout.assign(startPosition, operator.start);
 
-        layout.assign(rotateWrist, operator.rightStickY.map(deadzone::apply).scaledBy(-0.5));
-        layout.assign(rotateElbow, operator.leftStickY.map(deadzone::apply).scaledBy(-0.5));
+        layout.assign(rotateWrist, operator.rightStickY.deadzone(deadzone).scaledBy(-0.5));
+        layout.assign(rotateElbow, operator.leftStickY.deadzone(deadzone).scaledBy(-0.5));
 
         layout.assign(elevator, operator.pov.y.scaledBy(-0.25));
         layout.assign(carriage, operator.pov.x.scaledBy(0.75));
@@ -98,9 +103,9 @@ public class DriverInputs extends DynamicLayout {
 
         final var speedModifier = 0.80;
 
-        layout.assign(driveSpeedX, driver.stickX.map(deadzone::apply).scaledBy(speedModifier));
-        layout.assign(driveSpeedY, driver.stickY.map(deadzone::apply).scaledBy(speedModifier));
-        layout.assign(driveRotation, driver.stickRotate.map(deadzone::apply).scaledBy(speedModifier)
+        layout.assign(driveSpeedX, driver.stickX.deadzone(deadzone).scaledBy(speedModifier));
+        layout.assign(driveSpeedY, driver.stickY.deadzone(deadzone).scaledBy(speedModifier));
+        layout.assign(driveRotation, driver.stickRotate.deadzone(deadzone).scaledBy(speedModifier)
                 .scaledBy(maxRotationPerSecond.getDegrees()));
         layout.assign(autoBalance, driver.button4);
         layout.assign(intakeSpeed, new Axis("Operator and driver triggers", () -> {
@@ -121,8 +126,8 @@ public class DriverInputs extends DynamicLayout {
         layout.assign(loadingPosition, operator.b);
         layout.assign(startPosition, operator.start);
 
-        layout.assign(rotateWrist, operator.rightStickY.map(deadzone::apply).scaledBy(-0.5));
-        layout.assign(rotateElbow, operator.leftStickY.map(deadzone::apply).scaledBy(-0.5));
+        layout.assign(rotateWrist, operator.rightStickY.deadzone(deadzone).scaledBy(-0.5));
+        layout.assign(rotateElbow, operator.leftStickY.deadzone(deadzone).scaledBy(-0.5));
 
         layout.assign(elevator, operator.pov.y.scaledBy(-0.25));
         layout.assign(carriage, operator.pov.x.scaledBy(0.75));
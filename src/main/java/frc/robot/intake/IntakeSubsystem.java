@@ -17,8 +17,10 @@ import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants.IntakeConstants;
 import frc.robot.cosmetics.PwmLEDs;
 import frc.robot.input.DriverInputs;
+import frc.robot.sensors.SensorSnapshot;
+import frc.robot.telemetry.Timeline;
 
-public class IntakeSubsystem extends SubsystemBase {
+public class IntakeSubsystem extends SubsystemBase implements SensorSnapshot.Source {
     private final CANSparkMax motor = new CANSparkMax(IntakeConstants.MOTOR_ID, MotorType.kBrushless);
     private final DoubleSolenoid solenoid = new DoubleSolenoid(
             IntakeConstants.PNEUMATICS_HUB_ID,
@@ -29,22 +31,30 @@ public class IntakeSubsystem extends SubsystemBase {
     private final Compressor airCompressor = new Compressor(IntakeConstants.PNEUMATICS_HUB_ID,
             PneumaticsModuleType.REVPH);
     private boolean isOpen = false;
+    private boolean sensorTripped = false;
     private final PwmLEDs lights;
 
     public IntakeSubsystem(PwmLEDs lights) {
         airCompressor.enableDigital();
         this.lights = lights;
+        sampleSensors();
+    }
+
+    @Override
+    public void sampleSensors() {
+        sensorTripped = !intakeSensor.get();
     }
 
     public Command runIntake(final DriverInputs inputs) {
+        final var axis = inputs.axis(DriverInputs.intakeSpeed);
         return runEnd(() -> {
-            final var speed = inputs.axis(DriverInputs.intakeSpeed).get();
+            final var speed = axis.get();
             motor.set(-speed);
         }, () -> motor.set(0));
     }
 
     public Command runMotor(final double speed) {
-        return runEnd(() -> motor.set(speed), () -> motor.set(0));
+        return Timeline.stage(runEnd(() -> motor.set(speed), () -> motor.set(0)).withName("Intake " + speed));
     }
 
     public Command intake(final double speed) {
@@ -64,7 +74,7 @@ public class IntakeSubsystem extends SubsystemBase {
     }
 
     private boolean getSensor() {
-        return !intakeSensor.get();
+        return sensorTripped;
     }
 
     // private final NetworkTableEntry sensorEntry =
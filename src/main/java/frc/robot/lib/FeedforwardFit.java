@@ -0,0 +1,120 @@
+package frc.robot.lib;
+
+/**
+ * Least squares fit of a motor feedforward, volts = kS * sign(velocity) + kV *
+ * velocity + kA * acceleration, to samples from characterization runs. Only
+ * running sums are kept, so a fit can take any number of samples without
+ * storing them.
+ */
+public class FeedforwardFit {
+    private static final int TERMS = 3;
+
+    // Normal equations, (X^T X) gains = X^T y
+    private final double[][] xtx = new double[TERMS][TERMS];
+    private final double[] xty = new double[TERMS];
+    private final double[] row = new double[TERMS];
+    private double ySum = 0;
+    private double yySum = 0;
+    private int count = 0;
+
+    private double kS = 0;
+    private double kV = 0;
+    private double kA = 0;
+    private double rSquared = 0;
+
+    public void add(final double volts, final double velocity, final double acceleration) {
+        row[0] = Math.signum(velocity);
+        row[1] = velocity;
+        row[2] = acceleration;
+        for (var i = 0; i < TERMS; i++) {
+            for (var j = 0; j < TERMS; j++) {
+                xtx[i][j] += row[i] * row[j];
+            }
+            xty[i] += row[i] * volts;
+        }
+        ySum += volts;
+        yySum += volts * volts;
+        count++;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Fit the gains to every sample added so far.
+     *
+     * @return Whether the samples were enough to fit all three gains. They
+     *         need both directions, a range of speeds and some acceleration.
+     */
+    public boolean solve() {
+        final var a = new double[TERMS][TERMS + 1];
+        for (var i = 0; i < TERMS; i++) {
+            System.arraycopy(xtx[i], 0, a[i], 0, TERMS);
+            a[i][TERMS] = xty[i];
+        }
+
+        // Gaussian elimination with partial pivoting
+        for (var column = 0; column < TERMS; column++) {
+            var pivot = column;
+            for (var r = column + 1; r < TERMS; r++) {
+                if (Math.abs(a[r][column]) > Math.abs(a[pivot][column])) {
+                    pivot = r;
+                }
+            }
+            if (Math.abs(a[pivot][column]) < 1e-9) {
+                return false;
+            }
+            final var swap = a[column];
+            a[column] = a[pivot];
+            a[pivot] = swap;
+
+            for (var r = 0; r < TERMS; r++) {
+                if (r != column) {
+                    final var factor = a[r][column] / a[column][column];
+                    for (var c = column; c <= TERMS; c++) {
+                        a[r][c] -= factor * a[column][c];
+                    }
+                }
+            }
+        }
+        kS = a[0][TERMS] / a[0][0];
+        kV = a[1][TERMS] / a[1][1];
+        kA = a[2][TERMS] / a[2][2];
+
+        // Residual sum of squares from the sums, so no samples are needed
+        final var gains = new double[] { kS, kV, kA };
+        var fitted = 0.0;
+        var fittedSquared = 0.0;
+        for (var i = 0; i < TERMS; i++) {
+            fitted += gains[i] * xty[i];
+            for (var j = 0; j < TERMS; j++) {
+                fittedSquared += gains[i] * gains[j] * xtx[i][j];
+            }
+        }
+        final var residual = yySum - 2 * fitted + fittedSquared;
+        final var total = yySum - ySum * ySum / count;
+        rSquared = total > 0 ? 1 - residual / total : 0;
+        return true;
+    }
+
+    /** @return Volts to overcome friction */
+    public double getKS() {
+        return kS;
+    }
+
+    /** @return Volts per unit of velocity */
+    public double getKV() {
+        return kV;
+    }
+
+    /** @return Volts per unit of acceleration */
+    public double getKA() {
+        return kA;
+    }
+
+    /** @return How much of the variation in voltage the fit explains, from 0 to 1 */
+    public double getRSquared() {
+        return rSquared;
+    }
+}
@@ -29,4 +29,8 @@ public class NumberUtil {
     public static double ticksToDegs(double ticks) {
         return ticks * (360.0 / 1024.0) * 1000000;
     }
+
+    public static double degsToTicks(double degs) {
+        return degs / ((360.0 / 1024.0) * 1000000);
+    }
 }
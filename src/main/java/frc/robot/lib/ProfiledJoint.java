@@ -0,0 +1,148 @@
+package frc.robot.lib;
+
+import edu.wpi.first.math.controller.ArmFeedforward;
+import edu.wpi.first.math.controller.ElevatorFeedforward;
+import edu.wpi.first.math.controller.ProfiledPIDController;
+import edu.wpi.first.math.controller.SimpleMotorFeedforward;
+import edu.wpi.first.math.trajectory.TrapezoidProfile;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.telemetry.Telemetry;
+
+/**
+ * Drives one joint to a goal along a trapezoidal profile, with feedforward on
+ * the profile's velocity and P feedback on the profile's position. Works in the
+ * joint's raw sensor units, and returns a motor output from -1 to 1.
+ *
+ * <p>
+ * The profile restarts from the measured position whenever the goal changes or
+ * the joint hasn't been driven for a while (e.g. a safety check held it), so it
+ * never starts from a stale setpoint. A setpoint from elsewhere, like a
+ * planned path, can be followed with the same feedforward and feedback.
+ */
+public class ProfiledJoint {
+    /** Volts needed to follow a profile at a position and velocity. */
+    public interface Feedforward {
+        double calculate(double position, double velocity);
+    }
+
+    // Anything longer than a couple of loops without being driven restarts the profile
+    private static final double STALE_SECONDS = 0.1;
+
+    private final ProfiledPIDController controller;
+    private final TrapezoidProfile.Constraints constraints;
+    private final Feedforward feedforward;
+    private final double tolerance;
+
+    private double goal = Double.NaN;
+    private double lastCall = Double.NEGATIVE_INFINITY;
+    private double goalStart = 0;
+    private boolean reached = false;
+
+    private final Telemetry.DoubleChannel setpointEntry;
+    private final Telemetry.DoubleChannel timeToGoalEntry;
+    private final Telemetry.DoubleChannel profileTimeEntry;
+
+    /**
+     * @param name        Shown under 157/Profiles
+     * @param kP          Output per sensor unit of error
+     * @param constraints Max velocity and acceleration in sensor units
+     * @param feedforward Volts to follow the profile
+     * @param tolerance   How close counts as at the goal, in sensor units
+     */
+    public ProfiledJoint(final String name, final double kP, final TrapezoidProfile.Constraints constraints,
+            final Feedforward feedforward, final double tolerance) {
+        controller = new ProfiledPIDController(kP, 0, 0, constraints);
+        this.constraints = constraints;
+        this.feedforward = feedforward;
+        this.tolerance = tolerance;
+
+        final NetworkTable table = NetworkTableInstance.getDefault().getTable("157/Profiles/" + name);
+        setpointEntry = Telemetry.doubleChannel(table, "Setpoint");
+        timeToGoalEntry = Telemetry.doubleChannel(table, "Time To Goal");
+        profileTimeEntry = Telemetry.doubleChannel(table, "Profile Time");
+    }
+
+    /** For joints that only move along gravity, like the lift. */
+    public static Feedforward elevator(final ElevatorFeedforward feedforward) {
+        return (position, velocity) -> feedforward.calculate(velocity);
+    }
+
+    /**
+     * For joints that swing through gravity. Positions are in degrees.
+     *
+     * @param feedforward   Gains in radians
+     * @param horizontalDeg The sensor reading when the joint is level
+     */
+    public static Feedforward arm(final ArmFeedforward feedforward, final double horizontalDeg) {
+        return (position, velocity) -> feedforward.calculate(
+                Units.degreesToRadians(position - horizontalDeg), Units.degreesToRadians(velocity));
+    }
+
+    /** For joints where gravity can be ignored. */
+    public static Feedforward simple(final SimpleMotorFeedforward feedforward) {
+        return (position, velocity) -> feedforward.calculate(velocity);
+    }
+
+    /** Restart the profile from a position on the next call. */
+    public void reset() {
+        goal = Double.NaN;
+    }
+
+    /**
+     * @param measurement Where the joint is now
+     * @param goal        Where it should end up
+     * @return Motor output from -1 to 1
+     */
+    public double calculate(final double measurement, final double goal) {
+        final var now = Timer.getFPGATimestamp();
+        if (goal != this.goal || now - lastCall > STALE_SECONDS) {
+            controller.reset(measurement);
+            if (goal != this.goal) {
+                goalStart = now;
+                reached = false;
+                profileTimeEntry.set(new TrapezoidProfile(constraints,
+                        new TrapezoidProfile.State(goal, 0), new TrapezoidProfile.State(measurement, 0))
+                        .totalTime());
+            }
+            this.goal = goal;
+        }
+        lastCall = now;
+
+        final var feedback = controller.calculate(measurement, goal);
+        final var setpoint = controller.getSetpoint();
+        final var volts = feedforward.calculate(setpoint.position, setpoint.velocity);
+        setpointEntry.set(setpoint.position);
+
+        if (!reached && Math.abs(goal - measurement) <= tolerance) {
+            reached = true;
+            timeToGoalEntry.set(now - goalStart);
+        }
+
+        final var output = feedback + volts / RobotController.getBatteryVoltage();
+        return Math.max(-1, Math.min(1, output));
+    }
+
+    /**
+     * Follow a setpoint that comes from somewhere else instead of this joint's
+     * own profile. The profile restarts from the measured position on the
+     * next {@link #calculate(double, double)}.
+     *
+     * @param measurement Where the joint is now
+     * @param position    Where it should be now
+     * @param velocity    How fast it should be going, in sensor units per second
+     * @return Motor output from -1 to 1
+     */
+    public double follow(final double measurement, final double position, final double velocity) {
+        reset();
+        setpointEntry.set(position);
+
+        final var feedback = controller.getP() * (position - measurement);
+        final var volts = feedforward.calculate(position, velocity);
+        final var output = feedback + volts / RobotController.getBatteryVoltage();
+        return Math.max(-1, Math.min(1, output));
+    }
+}
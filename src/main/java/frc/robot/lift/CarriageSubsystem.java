@@ -8,7 +8,7 @@ import com.revrobotics.CANSparkMax;
 import com.revrobotics.CANSparkMax.IdleMode;
 import com.revrobotics.CANSparkMaxLowLevel.MotorType;
 
-import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.controller.ElevatorFeedforward;
 import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.wpilibj.AnalogInput;
@@ -16,22 +16,35 @@ import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants.CarriageConstants;
 import frc.robot.input.DriverInputs;
+import frc.robot.lib.ProfiledJoint;
+import frc.robot.sensors.SensorSnapshot;
 import frc.robot.statemachines.SubsystemGroup.SafetyLogic;
+import frc.robot.telemetry.LoopProfiler;
+import frc.robot.telemetry.Telemetry;
 
-public class CarriageSubsystem extends SubsystemBase {
+public class CarriageSubsystem extends SubsystemBase implements SensorSnapshot.Source {
     private final CANSparkMax carriageMotor = new CANSparkMax(CarriageConstants.CARRIAGE_MOTOR_ID,
             MotorType.kBrushless);
     private final AnalogInput carriage10Pot = new AnalogInput(CarriageConstants.CARRIAGE_ANALOG_ID);
     private double carriageSpeed = 0.0;
+    private double carriageOutput = 0.0;
+    private double carriagePosition = 0.0;
 
     /** Creates a new CarriageSubsystem. */
     public CarriageSubsystem() {
         carriageMotor.setIdleMode(IdleMode.kBrake);
+        sampleSensors();
+    }
+
+    @Override
+    public void sampleSensors() {
+        carriagePosition = 4000 - carriage10Pot.getValue(); // is a hack, idk keep it I guess?
     }
 
     public Command runCarriage(final DriverInputs inputs) {
+        final var axis = inputs.axis(DriverInputs.carriage);
         return runEnd(() -> {
-            final double speed = inputs.axis(DriverInputs.carriage).get();
+            final double speed = axis.get();
             runCarriageMotor(speed);
         }, () -> runCarriageMotor(0));
     }
@@ -41,7 +54,7 @@ public class CarriageSubsystem extends SubsystemBase {
     }
 
     public double getCarriagePosition() {
-        return 4000 - carriage10Pot.getValue(); // is a hack, idk keep it I guess?
+        return carriagePosition;
     }
 
     public void runCarriageMotor(final double speed) {
@@ -49,40 +62,52 @@ public class CarriageSubsystem extends SubsystemBase {
 
         final double carriageLimits = CarriageConstants.CARRIAGE_LIMITS.limitMotionWithinRange(speed,
                 getCarriagePosition());
+        carriageOutput = carriageLimits;
         carriageMotor.set(carriageLimits);
     }
 
+    /** @return What the motor was last set to, after limits */
+    public double getMotorOutput() {
+        return carriageOutput;
+    }
+
     private final NetworkTable table = NetworkTableInstance.getDefault().getTable("157/Carriage");
+    private final Telemetry.DoubleChannel carriageEntry = Telemetry.doubleChannel(table, "Carriage");
+    private final Telemetry.DoubleChannel carriageSpeedEntry = Telemetry.doubleChannel(table, "CarriageSpeed");
+
+    private final LoopProfiler.Section periodicSection = LoopProfiler.section("CarriageSubsystem.periodic()");
 
     @Override
     public void periodic() {
-        table.getEntry("Carriage").setNumber(getCarriagePosition());
-        table.getEntry("CarriageSpeed").setNumber(carriageSpeed);
+        periodicSection.start();
+        carriageEntry.set(getCarriagePosition());
+        carriageSpeedEntry.set(carriageSpeed);
+        periodicSection.stop();
     }
 
     public static class CarriageState implements SafetyLogic {
-        private static PIDController mainPID = new PIDController(0.01, 0, 0.00);
+        public static final ProfiledJoint profile = new ProfiledJoint("Carriage", CarriageConstants.KP,
+                CarriageConstants.PROFILE, ProfiledJoint.elevator(new ElevatorFeedforward(CarriageConstants.KS,
+                        CarriageConstants.KG, CarriageConstants.KV)),
+                CarriageConstants.TOLERANCE);
 
         private double carriagePosition;
-        private PIDController carriageDownPid;
         private double minElbowPos;
 
-        public CarriageState(final double carriagePosition, final PIDController carriageDownPid,
-                final double minElbowPos) {
+        public CarriageState(final double carriagePosition, final double minElbowPos) {
             this.carriagePosition = carriagePosition;
-            this.carriageDownPid = carriageDownPid;
             this.minElbowPos = minElbowPos;
         }
 
-        public static final CarriageState start = new CarriageState(CarriageConstants.START_POS, mainPID,
+        public static final CarriageState start = new CarriageState(CarriageConstants.START_POS,
                 CarriageConstants.START_POS_MIN_ELBOW);
-        public static final CarriageState low = new CarriageState(CarriageConstants.LOW_POS, mainPID,
+        public static final CarriageState low = new CarriageState(CarriageConstants.LOW_POS,
                 CarriageConstants.LOW_POS_MIN_ELBOW);
-        public static final CarriageState mid = new CarriageState(CarriageConstants.MID_POS, mainPID,
+        public static final CarriageState mid = new CarriageState(CarriageConstants.MID_POS,
                 CarriageConstants.MID_POS_MIN_ELBOW);
-        public static final CarriageState loading = new CarriageState(CarriageConstants.LOADING_POS, mainPID,
+        public static final CarriageState loading = new CarriageState(CarriageConstants.LOADING_POS,
                 CarriageConstants.LOADING_POS_MIN_ELBOW);
-        public static final CarriageState high = new CarriageState(CarriageConstants.HIGH_POS, mainPID,
+        public static final CarriageState high = new CarriageState(CarriageConstants.HIGH_POS,
                 CarriageConstants.HIGH_POS_MIN_ELBOW);
 
         @Override
@@ -110,6 +135,11 @@ public class CarriageSubsystem extends SubsystemBase {
             return start;
         }
 
+        @Override
+        public double getTarget() {
+            return carriagePosition;
+        }
+
         @Override
         public double stateCalculate(double speed, double elbowPosition, double wristPosition, double elevatorPosition,
                 double carriagePosition) {
@@ -120,7 +150,7 @@ public class CarriageSubsystem extends SubsystemBase {
                 // } else if (carriagePosition > this.carriagePosition + 100) {
                 // return -0.2;
                 //
-                return this.carriageDownPid.calculate(carriagePosition, this.carriagePosition);
+                return profile.calculate(carriagePosition, this.carriagePosition);
             }
             return 0;
         }
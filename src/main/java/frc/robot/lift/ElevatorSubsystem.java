@@ -8,8 +8,7 @@ import com.revrobotics.CANSparkMax;
 import com.revrobotics.CANSparkMax.IdleMode;
 import com.revrobotics.CANSparkMaxLowLevel.MotorType;
 
-import edu.wpi.first.math.controller.PIDController;
-import edu.wpi.first.math.filter.SlewRateLimiter;
+import edu.wpi.first.math.controller.ElevatorFeedforward;
 import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.wpilibj.AnalogInput;
@@ -17,32 +16,45 @@ import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants.ElevatorConstants;
 import frc.robot.input.DriverInputs;
+import frc.robot.lib.ProfiledJoint;
+import frc.robot.sensors.SensorSnapshot;
 import frc.robot.statemachines.SubsystemGroup.SafetyLogic;
+import frc.robot.telemetry.LoopProfiler;
+import frc.robot.telemetry.Telemetry;
 
-public class ElevatorSubsystem extends SubsystemBase {
+public class ElevatorSubsystem extends SubsystemBase implements SensorSnapshot.Source {
     private final CANSparkMax elevatorMotor = new CANSparkMax(ElevatorConstants.ELEVATOR_MOTOR_ID,
             MotorType.kBrushless);
     private final AnalogInput elevator10Pot = new AnalogInput(ElevatorConstants.ELEVATOR_ANALOG_ID);
     private double elevatorSpeed = 0.0;
+    private double elevatorOutput = 0.0;
+    private double elevatorPosition = 0.0;
 
     public void reset() {
-        ElevatorState.slew.reset(0);
+        ElevatorState.profile.reset();
     }
 
     /** Creates a new ElevatorSubsystem. */
     public ElevatorSubsystem() {
         elevatorMotor.setIdleMode(IdleMode.kBrake);
+        sampleSensors();
+    }
+
+    @Override
+    public void sampleSensors() {
+        elevatorPosition = 2500 - elevator10Pot.getValue(); // kinda a hack, same dealio as carriage
     }
 
     public Command runElevator(final DriverInputs inputs) {
+        final var axis = inputs.axis(DriverInputs.elevator);
         return runEnd(() -> {
-            final double speed = inputs.axis(DriverInputs.elevator).get();
+            final double speed = axis.get();
             runElevatorMotor(speed);
         }, () -> runElevatorMotor(0));
     }
 
     public double getElevatorPosition() {
-        return 2500 - elevator10Pot.getValue(); // kinda a hack, same dealio as carriage
+        return elevatorPosition;
     }
 
     public void runElevatorMotor(final double speed) {
@@ -50,55 +62,62 @@ public class ElevatorSubsystem extends SubsystemBase {
 
         final double elevatorLimits = ElevatorConstants.ELEVATOR_LIMITS.limitMotionWithinRange(speed,
                 getElevatorPosition());
+        elevatorOutput = elevatorLimits;
         elevatorMotor.set(elevatorLimits);
     }
 
+    /** @return What the motor was last set to, after limits */
+    public double getMotorOutput() {
+        return elevatorOutput;
+    }
+
     public void stop() {
         runElevatorMotor(0);
     }
 
     private final NetworkTable table = NetworkTableInstance.getDefault().getTable("157/Elevator");
+    private final Telemetry.DoubleChannel elevatorEntry = Telemetry.doubleChannel(table, "Elevator");
+    private final Telemetry.DoubleChannel elevatorSpeedEntry = Telemetry.doubleChannel(table, "ElevatorSpeed");
+
+    private final LoopProfiler.Section periodicSection = LoopProfiler.section("ElevatorSubsystem.periodic()");
 
     @Override
     public void periodic() {
-        table.getEntry("Elevator").setNumber(getElevatorPosition());
-        table.getEntry("ElevatorSpeed").setNumber(elevatorSpeed);
+        periodicSection.start();
+        elevatorEntry.set(getElevatorPosition());
+        elevatorSpeedEntry.set(elevatorSpeed);
+        periodicSection.stop();
     }
 
-    public static final PIDController mainPid = new PIDController(0.01, 0, 0);
-
     public static class ElevatorState implements SafetyLogic {
         public final double elevatorPosition;
-        public final PIDController elevatorUpPid;
-        public final PIDController elevatorDownPid;
-        public static final SlewRateLimiter slew = new SlewRateLimiter(ElevatorConstants.SLEW_POSITIVE_VAL,
-                ElevatorConstants.SLEW_NEGATIVE_VAL, 0);
+        public static final ProfiledJoint profile = new ProfiledJoint("Elevator", ElevatorConstants.KP,
+                ElevatorConstants.PROFILE, ProfiledJoint.elevator(new ElevatorFeedforward(ElevatorConstants.KS,
+                        ElevatorConstants.KG, ElevatorConstants.KV)),
+                ElevatorConstants.TOLERANCE);
         private ElevatorStates state;
 
         public enum ElevatorStates {
             start, low, high, mid, loading
         }
 
-        public ElevatorState(final double elevatorPosition, final PIDController elevatorUpPid,
-                final PIDController elevatorDownPid, ElevatorStates state) {
+        public ElevatorState(final double elevatorPosition, ElevatorStates state) {
             this.elevatorPosition = elevatorPosition;
-            this.elevatorUpPid = elevatorUpPid;
-            this.elevatorDownPid = elevatorDownPid;
             this.state = state;
         }
 
         public static final ElevatorState start = new ElevatorState(
-                ElevatorConstants.START_POS, mainPid, mainPid, ElevatorStates.start);
+                ElevatorConstants.START_POS, ElevatorStates.start);
         public static final ElevatorState low = new ElevatorState(
-                ElevatorConstants.LOW_POS, mainPid, mainPid, ElevatorStates.low);
+                ElevatorConstants.LOW_POS, ElevatorStates.low);
         // the min wrist position theoretically will work at 157, however, may not be
         // safe, so will likely need some testing and logic for a safer min pos.
         public static final ElevatorState mid = new ElevatorState(
-                ElevatorConstants.MID_POS, mainPid, mainPid, ElevatorStates.mid);
+                ElevatorConstants.MID_POS, ElevatorStates.mid);
         public static final ElevatorState loading = new ElevatorState(
-                ElevatorConstants.LOADING_POS, mainPid, mainPid, ElevatorStates.loading);
+                ElevatorConstants.LOADING_POS, ElevatorStates.loading);
         public static final ElevatorState high = new ElevatorState(
-                ElevatorConstants.HIGH_POS, mainPid, mainPid, ElevatorStates.high);
+                ElevatorConstants.HIGH_POS, ElevatorStates.high);
 
         @Override
         public SafetyLogic lowPosition() {
@@ -125,6 +144,11 @@ public class ElevatorSubsystem extends SubsystemBase {
             return start;
         }
 
+        @Override
+        public double getTarget() {
+            return elevatorPosition;
+        }
+
         @Override
         public double stateCalculate(double speed, double elbowPosition, double wristPosition, double elevatorPosition,
                 double carriagePosition) {
@@ -136,7 +160,7 @@ public class ElevatorSubsystem extends SubsystemBase {
                 case start:
                     if (elbowPosition > ElevatorConstants.SAFETY_ELBOW_LIMIT_START_MID
                             && wristPosition > ElevatorConstants.SAFETY_WRIST_LIMIT_START_MID) {
-                        return mainPid.calculate(elevatorPosition, this.elevatorPosition);
+                        return profile.calculate(elevatorPosition, this.elevatorPosition);
                     }
                     break;
                 // Ensures everything is safe to move before elevator goes too low
@@ -144,7 +168,7 @@ public class ElevatorSubsystem extends SubsystemBase {
                     if (elbowPosition > ElevatorConstants.SAFETY_ELBOW_LIMIT_LOW
                             && wristPosition > ElevatorConstants.SAFETY_WRIST_LIMIT_LOW
                             && carriagePosition > ElevatorConstants.SAFETY_CARRIAGE_LIMIT_LOW) {
-                        return mainPid.calculate(elevatorPosition, this.elevatorPosition);
+                        return profile.calculate(elevatorPosition, this.elevatorPosition);
                     }
                     break;
                 // Will run the elbow up if already too low to ensure it won't collide with the
@@ -152,13 +176,13 @@ public class ElevatorSubsystem extends SubsystemBase {
                 case high:
                     if (elbowPosition > ElevatorConstants.SAFETY_ELBOW_LIMIT_HIGH
                             && wristPosition < ElevatorConstants.SAFETY_WRIST_LIMIT_HIGH) {
-                        return mainPid.calculate(elevatorPosition, this.elevatorPosition);
+                        return profile.calculate(elevatorPosition, this.elevatorPosition);
                     }
                     break;
                 // Runs the elevator up to loading as there are no safety limits we need to keep
                 // in mind for loading
                 case loading:
-                    return mainPid.calculate(elevatorPosition, this.elevatorPosition);
+                    return profile.calculate(elevatorPosition, this.elevatorPosition);
 
                 default:
 
@@ -0,0 +1,185 @@
+package frc.robot.sensors;
+
+import com.kauailabs.navx.AHRSProtocol.AHRSUpdateBase;
+import com.kauailabs.navx.frc.AHRS;
+
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.SPI;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants.DriveConstants;
+
+/**
+ * Records every update the navX sends, at its own rate, with the FPGA time it
+ * arrived. Angles and how fast they're changing go into a single-producer
+ * ring buffer, so any thread can look up the latest values, or the values at
+ * any time in the last second or so, interpolated between updates, without
+ * taking a lock. Odometry uses this to pair each wheel sample with the
+ * heading at the same moment.
+ *
+ * <p>
+ * The navX's update callbacks don't run in simulation, so there a
+ * {@link Notifier} reads the simulated navX at the same rate instead.
+ */
+public class GyroService {
+    public enum Axis {
+        YAW, PITCH, ROLL
+    }
+
+    // Must be a power of two so the index can be masked
+    private static final int CAPACITY = DriveConstants.GYRO_HISTORY_SIZE;
+    private static final int MASK = CAPACITY - 1;
+    // Only the newer half can be looked up, so the writer has the other half
+    // to fill before a lookup in progress has to start again
+    private static final int READABLE = CAPACITY / 2;
+    private static final int AXES = Axis.values().length;
+
+    private final AHRS ahrs = new AHRS(SPI.Port.kMXP, (byte) DriveConstants.GYRO_UPDATE_RATE_HZ);
+    private final Notifier simNotifier;
+
+    private final double[] timestamps = new double[CAPACITY];
+    // When the navX took each sample by its own clock, rates are worked out
+    // from these so they don't pick up jitter in getting the data to the roboRIO
+    private final double[] sensorTimes = new double[CAPACITY];
+    private final double[][] angles = new double[AXES][CAPACITY];
+    private final double[][] rates = new double[AXES][CAPACITY];
+    // Number of samples written so far. Written only by the navX's thread, and
+    // always after the sample it publishes.
+    private volatile long writeCount = 0;
+
+    public GyroService() {
+        if (RobotBase.isSimulation()) {
+            simNotifier = new Notifier(() -> record(Timer.getFPGATimestamp()));
+            simNotifier.setName("Gyro");
+            simNotifier.startPeriodic(1.0 / DriveConstants.GYRO_UPDATE_RATE_HZ);
+        } else {
+            simNotifier = null;
+            ahrs.registerCallback(this::received, null);
+        }
+    }
+
+    private void received(final long systemTimestamp, final long sensorTimestamp, final AHRSUpdateBase update,
+            final Object context) {
+        record(sensorTimestamp / 1000.0);
+    }
+
+    private void record(final double sensorTime) {
+        final var count = writeCount;
+        final var index = (int) (count & MASK);
+        timestamps[index] = Timer.getFPGATimestamp();
+        sensorTimes[index] = sensorTime;
+        // The AHRS has already taken in this update, reading it back keeps any yaw zeroing it applies
+        angles[Axis.YAW.ordinal()][index] = ahrs.getYaw();
+        angles[Axis.PITCH.ordinal()][index] = ahrs.getPitch();
+        angles[Axis.ROLL.ordinal()][index] = ahrs.getRoll();
+
+        // Rates span a few updates, over one the angles barely move and the timestamps are coarse
+        final var span = (int) Math.min(count, DriveConstants.GYRO_RATE_SPAN);
+        final var previous = (int) ((count - span) & MASK);
+        final var dt = sensorTimes[index] - sensorTimes[previous];
+        for (var axis = 0; axis < AXES; axis++) {
+            rates[axis][index] = dt > 0 ? wrap(angles[axis][index] - angles[axis][previous]) / dt : 0;
+        }
+        writeCount = count + 1;
+    }
+
+    // Angles go from -180 to 180 degrees
+    private static double wrap(final double degrees) {
+        return degrees - 360 * Math.floor((degrees + 180) / 360);
+    }
+
+    /** @return The most recent angle in degrees, or 0 before the first update */
+    public double getAngle(final Axis axis) {
+        return getAngle(axis, Double.POSITIVE_INFINITY);
+    }
+
+    /** @return How fast the angle was changing at the latest update, in degrees per second */
+    public double getRate(final Axis axis) {
+        return getRate(axis, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Look up an angle in the past.
+     *
+     * @param axis      Which angle
+     * @param timestamp FPGA time in seconds. Times before the oldest update
+     *                  kept or after the latest get those updates.
+     * @return The angle in degrees, interpolated between the updates either
+     *         side of the time, or 0 before the first update
+     */
+    public double getAngle(final Axis axis, final double timestamp) {
+        return lookup(angles[axis.ordinal()], timestamp, true);
+    }
+
+    /**
+     * Look up how fast an angle was changing in the past.
+     *
+     * @see #getAngle(Axis, double)
+     * @return The rate in degrees per second, or 0 before the first update
+     */
+    public double getRate(final Axis axis, final double timestamp) {
+        return lookup(rates[axis.ordinal()], timestamp, false);
+    }
+
+    private double lookup(final double[] values, final double timestamp, final boolean angle) {
+        while (true) {
+            final var count = writeCount;
+            if (count == 0) {
+                return 0;
+            }
+            final var oldest = Math.max(0, count - READABLE);
+
+            // Binary search for the last update at or before the time
+            var low = oldest;
+            var high = count - 1;
+            while (low < high) {
+                final var middle = (low + high + 1) >>> 1;
+                if (timestamps[(int) (middle & MASK)] <= timestamp) {
+                    low = middle;
+                } else {
+                    high = middle - 1;
+                }
+            }
+
+            final var before = (int) (low & MASK);
+            final var after = (int) (Math.min(low + 1, count - 1) & MASK);
+            final var start = timestamps[before];
+            final var end = timestamps[after];
+            final var t = end > start ? Math.max(0, Math.min(1, (timestamp - start) / (end - start))) : 0;
+            final var value = angle
+                    ? wrap(values[before] + t * wrap(values[after] - values[before]))
+                    : values[before] + t * (values[after] - values[before]);
+
+            // If the writer lapped the slots while we read them, try again
+            if (writeCount - oldest < CAPACITY) {
+                return value;
+            }
+        }
+    }
+
+    /** @return The FPGA timestamp of the latest update in seconds, or 0 before the first */
+    public double getLatestTimestamp() {
+        final var count = writeCount;
+        return count == 0 ? 0 : timestamps[(int) ((count - 1) & MASK)];
+    }
+
+    /**
+     * Make the current yaw zero. Yaws recorded before this aren't changed, so
+     * looking one up from before gives it from before the reset.
+     */
+    public void zeroYaw() {
+        ahrs.zeroYaw();
+    }
+
+    public void resetDisplacement() {
+        ahrs.resetDisplacement();
+    }
+
+    public double getDisplacementX() {
+        return ahrs.getDisplacementX();
+    }
+
+    public double getDisplacementY() {
+        return ahrs.getDisplacementY();
+    }
+}
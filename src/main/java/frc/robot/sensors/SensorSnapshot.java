@@ -0,0 +1,51 @@
+package frc.robot.sensors;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Samples every registered sensor exactly once at the start of a loop. Each
+ * {@link Source} keeps the primitive values it read, and its getters return
+ * those values until the next sample, so every consumer in the same loop sees
+ * the same readings and the hardware is only touched once.
+ */
+public class SensorSnapshot {
+    public interface Source {
+        /** Read the hardware and keep the values until the next call. */
+        public void sampleSensors();
+    }
+
+    private final List<Source> sources = new ArrayList<>();
+    private double timestamp = 0.0;
+    private long sampleCount = 0;
+
+    public SensorSnapshot(final Source... sources) {
+        for (final var source : sources) {
+            this.sources.add(source);
+        }
+    }
+
+    /**
+     * Sample every source. Call once per loop before the scheduler runs.
+     */
+    public void sample() {
+        timestamp = Timer.getFPGATimestamp();
+        for (var i = 0; i < sources.size(); i++) {
+            sources.get(i).sampleSensors();
+        }
+        sampleCount++;
+    }
+
+    /**
+     * @return The FPGA timestamp in seconds of the most recent sample
+     */
+    public double getTimestamp() {
+        return timestamp;
+    }
+
+    public long getSampleCount() {
+        return sampleCount;
+    }
+}
@@ -0,0 +1,97 @@
+package frc.robot.sim;
+
+import java.util.Random;
+import java.util.function.DoubleSupplier;
+import java.util.function.DoubleUnaryOperator;
+
+import org.assabet.aztechs157.numbers.Range;
+
+import edu.wpi.first.hal.SimDouble;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.SimDeviceSim;
+import edu.wpi.first.wpilibj.simulation.SingleJointedArmSim;
+import frc.robot.Constants.SimConstants;
+
+/**
+ * Simulates a rotating joint with a {@link SingleJointedArmSim} and writes the
+ * result as the pulse period the joint's semi-period counter would measure.
+ * The subsystem publishes that period on a sim device because Counter has no
+ * simulation support of its own.
+ */
+public class ArmSim {
+    private final SingleJointedArmSim sim;
+    private final SimDouble period;
+    private final DoubleUnaryOperator degreesToPeriod;
+    private final DoubleSupplier output;
+    private final double levelDegrees;
+    private final double start;
+
+    private Random noise = null;
+    private double noiseStdDev = 0;
+
+    /**
+     * @param gearbox         Motors driving the joint
+     * @param gearing         Reduction from the motor to the joint
+     * @param lengthMeters    Length of the arm
+     * @param massKg          Mass of the arm
+     * @param limits          The joint's soft limits in degrees
+     * @param levelDegrees    The sensor reading when the arm is level
+     * @param gravity         Whether the joint swings through gravity
+     * @param deviceName      The subsystem's encoder sim device
+     * @param degreesToPeriod Turns a reading in degrees into the counter's period
+     * @param output          The motor output the subsystem last set
+     * @param start           Where the joint starts, in degrees
+     */
+    public ArmSim(final DCMotor gearbox, final double gearing, final double lengthMeters, final double massKg,
+            final Range limits, final double levelDegrees, final boolean gravity, final String deviceName,
+            final DoubleUnaryOperator degreesToPeriod, final DoubleSupplier output, final double start) {
+        this.levelDegrees = levelDegrees;
+        this.degreesToPeriod = degreesToPeriod;
+        this.output = output;
+        this.start = start;
+
+        sim = new SingleJointedArmSim(gearbox, gearing, SingleJointedArmSim.estimateMOI(lengthMeters, massKg),
+                lengthMeters,
+                Units.degreesToRadians(limits.start() - SimConstants.ARM_RANGE_MARGIN_DEG - levelDegrees),
+                Units.degreesToRadians(limits.end() + SimConstants.ARM_RANGE_MARGIN_DEG - levelDegrees),
+                gravity);
+        period = new SimDeviceSim(deviceName).getDouble("Period");
+        reset();
+    }
+
+    /** Put the joint back where it started, at rest. */
+    public void reset() {
+        sim.setState(VecBuilder.fill(Units.degreesToRadians(start - levelDegrees), 0));
+        writeSensor();
+    }
+
+    /**
+     * Add gaussian noise to every sensor reading.
+     *
+     * @param random Where the noise comes from, or null for none
+     * @param stdDev Standard deviation in degrees
+     */
+    public void setNoise(final Random random, final double stdDev) {
+        noise = random;
+        noiseStdDev = stdDev;
+    }
+
+    public void update(final double dtSeconds) {
+        sim.setInputVoltage(output.getAsDouble() * RobotController.getBatteryVoltage());
+        sim.update(dtSeconds);
+        writeSensor();
+    }
+
+    /** @return Where the joint is, in degrees as the subsystem reads it */
+    public double getPosition() {
+        return levelDegrees + Units.radiansToDegrees(sim.getAngleRads());
+    }
+
+    private void writeSensor() {
+        final var reading = noise != null ? getPosition() + noise.nextGaussian() * noiseStdDev : getPosition();
+        period.set(degreesToPeriod.applyAsDouble(reading));
+    }
+}
@@ -0,0 +1,187 @@
+package frc.robot.sim;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.assabet.aztechs157.input.InputSnapshot;
+
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.RobotContainer;
+import frc.robot.telemetry.Telemetry;
+import frc.robot.telemetry.Timeline;
+
+/**
+ * Runs every autonomous routine many times against {@link RobotSim} and
+ * prints where the time goes. Time is simulated, so the robot loop runs as
+ * fast as the machine allows. Every run adds fresh sensor noise, so the report
+ * shows how much each stage varies as well as how long it takes.
+ *
+ * <p>
+ * Run with {@code ./gradlew simulateAutos -Pruns=1000 -Pauto=<name>}, leaving
+ * out the auto to run all of them.
+ */
+public final class AutoSimulator {
+    private static final double PERIOD_SECONDS = 0.02;
+    private static final double AUTO_SECONDS = 15;
+    private static final int DEFAULT_RUNS = 1000;
+    private static final long SEED = 157;
+
+    /** Everything seen of one stage across all runs of a routine. */
+    private static class StageStats {
+        private final String name;
+        private final List<Double> durations = new ArrayList<>();
+        private double startSum = 0;
+        private double idleSum = 0;
+        private int cutShort = 0;
+
+        private StageStats(final String name) {
+            this.name = name;
+        }
+
+        private void add(final Timeline.Event event, final double autoStart) {
+            durations.add(event.duration());
+            startSum += event.start() - autoStart;
+            idleSum += event.idleSeconds();
+            if (event.cutShort()) {
+                cutShort++;
+            }
+        }
+
+        private double meanStart() {
+            return startSum / durations.size();
+        }
+    }
+
+    private final RobotContainer container;
+    private final RobotSim sim;
+
+    private AutoSimulator() {
+        container = new RobotContainer();
+        sim = container.createSimulation();
+        sim.setNoise(new Random(SEED));
+    }
+
+    public static void main(final String[] args) {
+        final var runs = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_RUNS;
+        final var only = args.length > 1 ? args[1] : null;
+
+        if (!HAL.initialize(500, 0)) {
+            throw new IllegalStateException("Failed to initialize the HAL");
+        }
+        // Time only moves when the simulator steps it
+        SimHooks.pauseTiming();
+        DriverStationSim.setAllianceStationId(AllianceStationID.Red1);
+        DriverStationSim.setDsAttached(true);
+        DriverStationSim.setAutonomous(true);
+        DriverStationSim.setEnabled(true);
+        DriverStationSim.notifyNewData();
+        DriverStation.refreshData();
+
+        final var simulator = new AutoSimulator();
+        for (final var name : simulator.container.autos.getNames()) {
+            if (only == null || only.equals(name)) {
+                simulator.report(name, runs);
+            }
+        }
+        System.exit(0);
+    }
+
+    private void step() {
+        DriverStation.refreshData();
+        InputSnapshot.sample();
+        container.sensors.sample();
+        CommandScheduler.getInstance().run();
+        Telemetry.flush();
+        sim.update(PERIOD_SECONDS);
+        SimHooks.stepTiming(PERIOD_SECONDS);
+    }
+
+    private void report(final String name, final int runs) {
+        final var stages = new LinkedHashMap<String, StageStats>();
+        final var totals = new ArrayList<Double>();
+        var outOfTime = 0;
+        var xSum = 0.0;
+        var ySum = 0.0;
+        var headingSum = 0.0;
+
+        for (var run = 0; run < runs; run++) {
+            CommandScheduler.getInstance().cancelAll();
+            sim.reset();
+            container.startAuto();
+            // Let the subsystems see the reset before the routine starts
+            step();
+
+            final var command = container.autos.get(name);
+            Timeline.begin();
+            command.schedule();
+            final var start = Timer.getFPGATimestamp();
+            while (command.isScheduled() && Timer.getFPGATimestamp() - start < AUTO_SECONDS) {
+                step();
+            }
+            final var total = Timer.getFPGATimestamp() - start;
+            if (command.isScheduled()) {
+                outOfTime++;
+            }
+            // Anything still running is recorded as cut short by the end of auto
+            CommandScheduler.getInstance().cancelAll();
+            totals.add(total);
+
+            // The same stage can run more than once, so number each occurrence
+            final var occurrences = new HashMap<String, Integer>();
+            for (final var event : Timeline.end()) {
+                final var count = occurrences.merge(event.name(), 1, Integer::sum);
+                final var key = count > 1 ? event.name() + " #" + count : event.name();
+                stages.computeIfAbsent(key, StageStats::new).add(event, start);
+            }
+
+            final var pose = sim.getPose();
+            xSum += pose.getX();
+            ySum += pose.getY();
+            headingSum += pose.getRotation().getDegrees();
+        }
+
+        System.out.printf("%n== %s (%d runs) ==%n", name, runs);
+        System.out.printf("total %.2f s mean, %.2f s p95, %.0f%% still running at %.0f s%n",
+                mean(totals), percentile(totals, 0.95), 100.0 * outOfTime / runs, AUTO_SECONDS);
+        System.out.printf("final pose x %.2f m, y %.2f m, heading %.1f deg (mean)%n",
+                xSum / runs, ySum / runs, headingSum / runs);
+        System.out.printf("%7s %-30s %7s %7s %7s %9s %6s%n",
+                "start", "stage", "mean", "p95", "short", "interlock", "ran");
+
+        final var sorted = new ArrayList<>(stages.values());
+        sorted.sort((a, b) -> Double.compare(a.meanStart(), b.meanStart()));
+        for (final var stage : sorted) {
+            final var count = stage.durations.size();
+            System.out.printf("%6.2fs %-30s %6.2fs %6.2fs %6.0f%% %8.2fs %6.0f%%%n",
+                    stage.meanStart(), stage.name, mean(stage.durations), percentile(stage.durations, 0.95),
+                    100.0 * stage.cutShort / count, stage.idleSum / count, 100.0 * count / runs);
+        }
+    }
+
+    private static double mean(final List<Double> values) {
+        var sum = 0.0;
+        for (final var value : values) {
+            sum += value;
+        }
+        return values.isEmpty() ? 0 : sum / values.size();
+    }
+
+    private static double percentile(final List<Double> values, final double fraction) {
+        if (values.isEmpty()) {
+            return 0;
+        }
+        final var sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted.get((int) Math.ceil(fraction * sorted.size()) - 1);
+    }
+}
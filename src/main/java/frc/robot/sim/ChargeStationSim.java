@@ -0,0 +1,84 @@
+package frc.robot.sim;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import frc.robot.Constants.SimConstants;
+
+/**
+ * The charge station, running across the field in front of where the robot
+ * starts. The platform pivots on a hinge through its middle, tipped by the
+ * robot's weight and slowed by damping and friction, until it hits its stops. The ramps on
+ * either side are fixed at the platform's full tilt.
+ *
+ * <p>
+ * Only the robot's middle is checked against the station, and the robot's
+ * wheels are assumed to hold it on a slope, so the model is for tuning how
+ * the balance reacts rather than for the last degree of accuracy.
+ */
+public class ChargeStationSim {
+    private static final double GRAVITY = 9.81;
+
+    private final double maxTilt = Math.toRadians(SimConstants.CHARGE_STATION_MAX_TILT_DEG);
+    // Platform tilt, positive when the far edge is up. Empty, it rests on the
+    // near stop, in line with the near ramp.
+    private double tilt = maxTilt;
+    private double tiltRate = 0;
+
+    public void reset() {
+        tilt = maxTilt;
+        tiltRate = 0;
+    }
+
+    /**
+     * Move the platform on by a step.
+     *
+     * @param dtSeconds How long the step is
+     * @param robotPose Where the robot is now
+     * @return How far the robot's nose is tipped up, in degrees
+     */
+    public double update(final double dtSeconds, final Pose2d robotPose) {
+        final var offset = robotPose.getX() - SimConstants.CHARGE_STATION_CENTER_X;
+        final var onStation = Math.abs(robotPose.getY()) < SimConstants.CHARGE_STATION_WIDTH / 2;
+        final var onPlatform = onStation && Math.abs(offset) <= SimConstants.CHARGE_STATION_PLATFORM_DEPTH / 2;
+
+        // The robot's weight pushes its side of the platform down
+        var torque = -SimConstants.CHARGE_STATION_DAMPING * tiltRate;
+        var inertia = SimConstants.CHARGE_STATION_MOI;
+        if (onPlatform) {
+            torque -= SimConstants.ROBOT_MASS_KG * GRAVITY * offset * Math.cos(tilt);
+            inertia += SimConstants.ROBOT_MASS_KG * offset * offset;
+        }
+        // Friction holds a still platform unless the robot outweighs it, and can
+        // stop a moving one but never push it back
+        if (tiltRate != 0 || Math.abs(torque) > SimConstants.CHARGE_STATION_FRICTION) {
+            torque -= Math.copySign(SimConstants.CHARGE_STATION_FRICTION, tiltRate != 0 ? tiltRate : torque);
+            final var nextRate = tiltRate + torque / inertia * dtSeconds;
+            tiltRate = tiltRate != 0 && Math.signum(nextRate) != Math.signum(tiltRate) ? 0 : nextRate;
+            tilt += tiltRate * dtSeconds;
+            if (Math.abs(tilt) >= maxTilt) {
+                tilt = Math.copySign(maxTilt, tilt);
+                tiltRate = 0;
+            }
+        }
+
+        return robotTilt(robotPose, offset, onStation, onPlatform);
+    }
+
+    private double robotTilt(final Pose2d robotPose, final double offset, final boolean onStation,
+            final boolean onPlatform) {
+        // Slope of the ground under the robot going across the field, up is positive
+        final var halfPlatform = SimConstants.CHARGE_STATION_PLATFORM_DEPTH / 2;
+        double slope = 0;
+        if (onPlatform) {
+            slope = tilt;
+        } else if (onStation && Math.abs(offset) <= halfPlatform + SimConstants.CHARGE_STATION_RAMP_DEPTH) {
+            // Ramps rise towards the platform
+            slope = -Math.copySign(maxTilt, offset);
+        }
+        return Math.toDegrees(slope * robotPose.getRotation().getCos());
+    }
+
+    /** @return The platform's tilt in degrees, positive when the far edge is up */
+    public double getTiltDegrees() {
+        return Math.toDegrees(tilt);
+    }
+}
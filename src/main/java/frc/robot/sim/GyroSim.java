@@ -0,0 +1,70 @@
+package frc.robot.sim;
+
+import java.util.Random;
+
+import edu.wpi.first.hal.SimDouble;
+import edu.wpi.first.hal.simulation.SimDeviceDataJNI;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.simulation.SimDeviceSim;
+
+/**
+ * Drives the navX's own sim device. The navX is mounted on its side, so the
+ * robot's heading shows up as pitch and tipping on the charge station shows up
+ * as roll, matching what DriveSubsystem reads.
+ */
+public class GyroSim {
+    private final SimDouble yaw;
+    private final SimDouble pitch;
+    private final SimDouble roll;
+
+    private Random noise = null;
+    private double noiseStdDev = 0;
+
+    public GyroSim() {
+        final var devices = SimDeviceDataJNI.enumerateSimDevices("navX-Sensor");
+        if (devices.length == 0) {
+            DriverStation.reportWarning("No navX sim device, the simulated gyro won't move", false);
+            yaw = null;
+            pitch = null;
+            roll = null;
+            return;
+        }
+
+        final var device = new SimDeviceSim(devices[0].name);
+        yaw = device.getDouble("Yaw");
+        pitch = device.getDouble("Pitch");
+        roll = device.getDouble("Roll");
+    }
+
+    /**
+     * Add gaussian noise to every angle.
+     *
+     * @param random Where the noise comes from, or null for none
+     * @param stdDev Standard deviation in degrees
+     */
+    public void setNoise(final Random random, final double stdDev) {
+        noise = random;
+        noiseStdDev = stdDev;
+    }
+
+    /**
+     * @param headingDegrees Counterclockwise robot heading
+     * @param rollDegrees    How far the robot is tipped
+     */
+    public void set(double headingDegrees, double rollDegrees) {
+        if (noise != null) {
+            headingDegrees += noise.nextGaussian() * noiseStdDev;
+            rollDegrees += noise.nextGaussian() * noiseStdDev;
+        }
+        if (pitch != null) {
+            pitch.set(headingDegrees);
+        }
+        if (yaw != null) {
+            // The navX counts yaw clockwise
+            yaw.set(-headingDegrees);
+        }
+        if (roll != null) {
+            roll.set(rollDegrees);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package frc.robot.sim;
+
+import java.util.Random;
+import java.util.function.DoubleSupplier;
+
+import org.assabet.aztechs157.numbers.Range;
+
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.AnalogInputSim;
+import edu.wpi.first.wpilibj.simulation.ElevatorSim;
+import frc.robot.Constants.SimConstants;
+
+/**
+ * Simulates a lift joint with an {@link ElevatorSim} and writes the result to
+ * the potentiometer's simulated analog input, so the subsystem reads it the
+ * same way it reads the real sensor.
+ */
+public class LiftSim {
+    // 12 bit ADC over 5 V
+    private static final double VOLTS_PER_COUNT = 5.0 / 4096;
+
+    private final ElevatorSim sim;
+    private final AnalogInputSim analog;
+    private final DoubleSupplier output;
+    private final double sensorOffset;
+    private final double unitsPerMeter;
+    private final double zero;
+    private final double start;
+
+    private Random noise = null;
+    private double noiseStdDev = 0;
+
+    /**
+     * @param gearbox       Motors driving the joint
+     * @param gearing       Reduction from the motor to the drum
+     * @param massKg        Mass being lifted
+     * @param drumRadius    Drum radius in meters
+     * @param limits        The joint's soft limits in sensor units
+     * @param unitsPerMeter Sensor units per meter of travel, negative if the
+     *                      sensor reads smaller as the joint goes up
+     * @param gravity       Whether the joint is lifting against gravity
+     * @param analogChannel The potentiometer's channel
+     * @param sensorOffset  The subsystem reads this minus the raw value
+     * @param output        The motor output the subsystem last set
+     * @param start         Where the joint starts, in sensor units
+     */
+    public LiftSim(final DCMotor gearbox, final double gearing, final double massKg, final double drumRadius,
+            final Range limits, final double unitsPerMeter, final boolean gravity, final int analogChannel,
+            final double sensorOffset, final DoubleSupplier output, final double start) {
+        final var low = limits.start() - SimConstants.LIFT_RANGE_MARGIN;
+        final var high = limits.end() + SimConstants.LIFT_RANGE_MARGIN;
+        // Height zero is whichever end of the range the sensor counts away from
+        zero = unitsPerMeter > 0 ? low : high;
+        this.unitsPerMeter = unitsPerMeter;
+        this.sensorOffset = sensorOffset;
+        this.output = output;
+        this.start = start;
+
+        sim = new ElevatorSim(gearbox, gearing, massKg, drumRadius, 0, (high - low) / Math.abs(unitsPerMeter),
+                gravity);
+        analog = new AnalogInputSim(analogChannel);
+        reset();
+    }
+
+    /** Put the joint back where it started, at rest. */
+    public void reset() {
+        sim.setState(VecBuilder.fill((start - zero) / unitsPerMeter, 0));
+        writeSensor();
+    }
+
+    /**
+     * Add gaussian noise to every sensor reading.
+     *
+     * @param random Where the noise comes from, or null for none
+     * @param stdDev Standard deviation in sensor units
+     */
+    public void setNoise(final Random random, final double stdDev) {
+        noise = random;
+        noiseStdDev = stdDev;
+    }
+
+    public void update(final double dtSeconds) {
+        // Positive output always moves the sensor reading up
+        sim.setInputVoltage(output.getAsDouble() * Math.signum(unitsPerMeter)
+                * RobotController.getBatteryVoltage());
+        sim.update(dtSeconds);
+        writeSensor();
+    }
+
+    /** @return Where the joint is, in the subsystem's sensor units */
+    public double getPosition() {
+        return zero + sim.getPositionMeters() * unitsPerMeter;
+    }
+
+    private void writeSensor() {
+        final var reading = noise != null ? getPosition() + noise.nextGaussian() * noiseStdDev : getPosition();
+        analog.setVoltage((sensorOffset - reading) * VOLTS_PER_COUNT);
+    }
+}
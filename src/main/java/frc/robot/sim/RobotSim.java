@@ -0,0 +1,147 @@
+package frc.robot.sim;
+
+import java.util.Random;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Twist2d;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.math.system.plant.DCMotor;
+import frc.robot.Constants.CarriageConstants;
+import frc.robot.Constants.DriveConstants;
+import frc.robot.Constants.ElbowConstants;
+import frc.robot.Constants.ElevatorConstants;
+import frc.robot.Constants.SimConstants;
+import frc.robot.Constants.WristConstants;
+import frc.robot.drive.DriveSubsystem;
+import frc.robot.elbow.ElbowSubsystem;
+import frc.robot.lib.NumberUtil;
+import frc.robot.lift.CarriageSubsystem;
+import frc.robot.lift.ElevatorSubsystem;
+import frc.robot.wrist.WristSubsystem;
+
+/**
+ * Physics for the whole robot in simulation. Each mechanism reads the motor
+ * output its subsystem last set and writes simulated sensor values back, so
+ * the robot code runs unchanged. Everything steps by an explicit time, so a
+ * harness can run it faster than real time.
+ */
+public class RobotSim {
+    private final SwerveDriveKinematics kinematics = new SwerveDriveKinematics(DriveConstants.WHEEL_LOCATIONS);
+    private final SwervePodSim[] pods;
+    private final SwerveModuleState[] states;
+    private final GyroSim gyro = new GyroSim();
+    private final ChargeStationSim chargeStation = new ChargeStationSim();
+
+    private final LiftSim elevator;
+    private final LiftSim carriage;
+    private final ArmSim elbow;
+    private final ArmSim wrist;
+
+    private final DriveSubsystem drive;
+    private Pose2d pose = new Pose2d();
+
+    public RobotSim(final DriveSubsystem drive, final ElevatorSubsystem elevator, final CarriageSubsystem carriage,
+            final ElbowSubsystem elbow, final WristSubsystem wrist) {
+        this.drive = drive;
+        pods = new SwervePodSim[drive.swervePods.length];
+        states = new SwerveModuleState[pods.length];
+        for (var i = 0; i < pods.length; i++) {
+            pods[i] = new SwervePodSim(drive.swervePods[i], DriveConstants.POD_CONFIGS[i].angleEncoderId());
+        }
+
+        this.elevator = new LiftSim(DCMotor.getNEO(1), SimConstants.ELEVATOR_GEARING, SimConstants.ELEVATOR_MASS_KG,
+                SimConstants.ELEVATOR_DRUM_RADIUS_METERS, ElevatorConstants.ELEVATOR_LIMITS,
+                SimConstants.ELEVATOR_UNITS_PER_METER, true, ElevatorConstants.ELEVATOR_ANALOG_ID, 2500,
+                elevator::getMotorOutput, ElevatorConstants.START_POS);
+        this.carriage = new LiftSim(DCMotor.getNEO(1), SimConstants.CARRIAGE_GEARING, SimConstants.CARRIAGE_MASS_KG,
+                SimConstants.CARRIAGE_DRUM_RADIUS_METERS, CarriageConstants.CARRIAGE_LIMITS,
+                SimConstants.CARRIAGE_UNITS_PER_METER, false, CarriageConstants.CARRIAGE_ANALOG_ID, 4000,
+                carriage::getMotorOutput, CarriageConstants.START_POS);
+        this.elbow = new ArmSim(DCMotor.getNEO(1), SimConstants.ELBOW_GEARING, SimConstants.ELBOW_LENGTH_METERS,
+                SimConstants.ELBOW_MASS_KG, ElbowConstants.ROTATE_LIMITS, ElbowConstants.HORIZONTAL_DEG, true,
+                "Elbow Encoder", degrees -> NumberUtil.degsToTicks(360 - degrees), elbow::getMotorOutput,
+                ElbowConstants.START_POS);
+        // The wrist rides on the elbow, so its gravity load isn't modelled
+        this.wrist = new ArmSim(DCMotor.getNEO(1), SimConstants.WRIST_GEARING, SimConstants.WRIST_LENGTH_METERS,
+                SimConstants.WRIST_MASS_KG, WristConstants.ROTATE_LIMITS, 0, false,
+                "Wrist Encoder", NumberUtil::degsToTicks, wrist::getMotorOutput, WristConstants.START_POS);
+    }
+
+    public void update(final double dtSeconds) {
+        for (var i = 0; i < pods.length; i++) {
+            states[i] = pods[i].update(dtSeconds);
+        }
+        final var speeds = kinematics.toChassisSpeeds(states);
+        pose = pose.exp(new Twist2d(speeds.vxMetersPerSecond * dtSeconds, speeds.vyMetersPerSecond * dtSeconds,
+                speeds.omegaRadiansPerSecond * dtSeconds));
+        gyro.set(pose.getRotation().getDegrees(), chargeStation.update(dtSeconds, pose));
+
+        elevator.update(dtSeconds);
+        carriage.update(dtSeconds);
+        elbow.update(dtSeconds);
+        wrist.update(dtSeconds);
+    }
+
+    /** @return Where the robot really is, relative to where it started */
+    public Pose2d getPose() {
+        return pose;
+    }
+
+    public void setPose(final Pose2d pose) {
+        this.pose = pose;
+    }
+
+    /**
+     * Put the robot back at the origin with everything in its start position,
+     * and drop the gyro offset the last auto left behind.
+     */
+    public void reset() {
+        for (final var pod : pods) {
+            pod.reset();
+        }
+        pose = new Pose2d();
+        drive.resetGyroOffset();
+        chargeStation.reset();
+        elevator.reset();
+        carriage.reset();
+        elbow.reset();
+        wrist.reset();
+    }
+
+    /**
+     * Add gaussian noise from {@link SimConstants} to every sensor.
+     *
+     * @param random Where the noise comes from, or null for none
+     */
+    public void setNoise(final Random random) {
+        for (final var pod : pods) {
+            pod.setNoise(random, SimConstants.POD_ANGLE_NOISE_DEG);
+        }
+        gyro.setNoise(random, SimConstants.GYRO_NOISE_DEG);
+        elevator.setNoise(random, SimConstants.LIFT_NOISE);
+        carriage.setNoise(random, SimConstants.LIFT_NOISE);
+        elbow.setNoise(random, SimConstants.ARM_NOISE_DEG);
+        wrist.setNoise(random, SimConstants.ARM_NOISE_DEG);
+    }
+
+    public ChargeStationSim getChargeStation() {
+        return chargeStation;
+    }
+
+    public LiftSim getElevator() {
+        return elevator;
+    }
+
+    public LiftSim getCarriage() {
+        return carriage;
+    }
+
+    public ArmSim getElbow() {
+        return elbow;
+    }
+
+    public ArmSim getWrist() {
+        return wrist;
+    }
+}
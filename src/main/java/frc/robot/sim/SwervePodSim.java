@@ -0,0 +1,97 @@
+package frc.robot.sim;
+
+import java.util.Random;
+
+import edu.wpi.first.hal.SimDouble;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.DCMotorSim;
+import edu.wpi.first.wpilibj.simulation.FlywheelSim;
+import edu.wpi.first.wpilibj.simulation.SimDeviceSim;
+import frc.robot.Constants.SimConstants;
+import frc.robot.drive.SwervePod;
+
+/**
+ * Simulates one swerve pod. The drive wheel is a flywheel carrying its share of
+ * the robot's inertia and the steering is a plain DC motor. Results go to the
+ * pod's sim device in place of the drive encoder and CANCoder.
+ */
+public class SwervePodSim {
+    private final SwervePod pod;
+    private final FlywheelSim drive = new FlywheelSim(DCMotor.getNEO(1), SimConstants.SWERVE_DRIVE_GEARING,
+            SimConstants.SWERVE_DRIVE_MOI);
+    private final DCMotorSim steer = new DCMotorSim(DCMotor.getNEO(1), SimConstants.SWERVE_STEER_GEARING,
+            SimConstants.SWERVE_STEER_MOI);
+
+    private final SimDouble angle;
+    private final SimDouble driveRotations;
+    private final SimDouble driveVelocity;
+    private final SimDouble steerDegrees;
+    private final SwerveModuleState state = new SwerveModuleState();
+
+    private Random noise = null;
+    private double noiseStdDev = 0;
+
+    public SwervePodSim(final SwervePod pod, final int angleEncoderId) {
+        this.pod = pod;
+        final var device = new SimDeviceSim("SwervePod", angleEncoderId);
+        angle = device.getDouble("Angle");
+        driveRotations = device.getDouble("Drive Rotations");
+        driveVelocity = device.getDouble("Drive Velocity");
+        steerDegrees = device.getDouble("Steer Degrees");
+    }
+
+    /** Stop the wheel and point it straight ahead. */
+    public void reset() {
+        drive.setState(VecBuilder.fill(0));
+        steer.setState(VecBuilder.fill(0, 0));
+    }
+
+    /**
+     * Add gaussian noise to the angle reading.
+     *
+     * @param random Where the noise comes from, or null for none
+     * @param stdDev Standard deviation in degrees
+     */
+    public void setNoise(final Random random, final double stdDev) {
+        noise = random;
+        noiseStdDev = stdDev;
+    }
+
+    /**
+     * Step the pod forward.
+     *
+     * @return How the wheel is moving now
+     */
+    public SwerveModuleState update(final double dtSeconds) {
+        final var battery = RobotController.getBatteryVoltage();
+
+        drive.setInputVoltage(pod.getDriveOutput() * battery);
+        drive.update(dtSeconds);
+        final var motorRotationsPerSecond = drive.getAngularVelocityRPM() / 60 * SimConstants.SWERVE_DRIVE_GEARING;
+        driveRotations.set(driveRotations.get() + motorRotationsPerSecond * dtSeconds);
+        driveVelocity.set(motorRotationsPerSecond);
+
+        steer.setInputVoltage(pod.getAngleOutput() * battery);
+        steer.update(dtSeconds);
+        // The angle motor is inverted, positive output turns the CANCoder backwards
+        // The steering encoder isn't absolute, so it keeps counting past a full turn
+        steerDegrees.set(Units.radiansToDegrees(steer.getAngularPositionRad()));
+        final var degrees = wrap(-Units.radiansToDegrees(steer.getAngularPositionRad()));
+        angle.set(noise != null ? wrap(degrees + noise.nextGaussian() * noiseStdDev) : degrees);
+
+        state.speedMetersPerSecond = motorRotationsPerSecond * pod.getDistancePerRotation();
+        state.angle = Rotation2d.fromDegrees(degrees);
+        return state;
+    }
+
+    /** @return The angle from 0 to 360, like the CANCoder reads */
+    private static double wrap(final double degrees) {
+        final var wrapped = degrees % 360;
+        return wrapped < 0 ? wrapped + 360 : wrapped;
+    }
+}
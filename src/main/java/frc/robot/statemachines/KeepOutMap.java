@@ -0,0 +1,161 @@
+package frc.robot.statemachines;
+
+import static frc.robot.statemachines.SubsystemGroup.CARRIAGE;
+import static frc.robot.statemachines.SubsystemGroup.ELBOW;
+import static frc.robot.statemachines.SubsystemGroup.ELEVATOR;
+import static frc.robot.statemachines.SubsystemGroup.JOINT_COUNT;
+import static frc.robot.statemachines.SubsystemGroup.WRIST;
+
+import frc.robot.Constants.CarriageConstants;
+import frc.robot.Constants.ElbowConstants;
+import frc.robot.Constants.ElevatorConstants;
+import frc.robot.Constants.WristConstants;
+import frc.robot.statemachines.SubsystemGroup.Goal;
+
+/**
+ * Where in joint space each joint may move, built from the safety limits in
+ * Constants. These are the same limits the per-joint states check, written
+ * down as data so a planner can look ahead instead of only refusing motion.
+ *
+ * <p>
+ * While heading to a goal, a joint may move if any of its clauses holds, and a
+ * clause holds if every bound in it does. A joint with no clauses may always
+ * move. The limits depend on the goal because the original safety logic does,
+ * e.g. the elbow only guards against the pole when going high.
+ */
+final class KeepOutMap {
+    /** One side of a threshold on one joint, compared strictly. */
+    record Bound(int joint, double threshold, boolean above) {
+        boolean holds(final double[] positions) {
+            return above ? positions[joint] > threshold : positions[joint] < threshold;
+        }
+    }
+
+    private static final Bound[][] FREE = new Bound[0][];
+
+    // [goal][joint][clause][bound]
+    private final Bound[][][][] clauses = new Bound[Goal.values().length][JOINT_COUNT][][];
+
+    private KeepOutMap() {
+    }
+
+    /** @return The limits the per-joint safety logic enforces */
+    static KeepOutMap fromConstants() {
+        final var map = new KeepOutMap();
+        for (final var goal : Goal.values()) {
+            map.set(goal, ELEVATOR, elevatorClauses(goal));
+            map.set(goal, CARRIAGE, clauses(new Bound[] {
+                    above(ELBOW, pick(goal, CarriageConstants.START_POS_MIN_ELBOW,
+                            CarriageConstants.LOW_POS_MIN_ELBOW, CarriageConstants.MID_POS_MIN_ELBOW,
+                            CarriageConstants.LOADING_POS_MIN_ELBOW, CarriageConstants.HIGH_POS_MIN_ELBOW)) }));
+            map.set(goal, ELBOW, elbowClauses(goal));
+            map.set(goal, WRIST, clauses(
+                    new Bound[] { above(ELBOW, pick(goal, WristConstants.START_POS_MIN_ARM,
+                            WristConstants.LOW_POS_MIN_ARM, WristConstants.MID_POS_MIN_ARM,
+                            WristConstants.LOADING_POS_MIN_ARM, WristConstants.HIGH_POS_MIN_ARM)) },
+                    // The wrist may always lift towards its target
+                    new Bound[] { below(WRIST, goal.joints[WRIST].getTarget()) }));
+        }
+        return map;
+    }
+
+    private static Bound[][] elevatorClauses(final Goal goal) {
+        switch (goal) {
+            case START:
+            case MID:
+                return clauses(new Bound[] {
+                        above(ELBOW, ElevatorConstants.SAFETY_ELBOW_LIMIT_START_MID),
+                        above(WRIST, ElevatorConstants.SAFETY_WRIST_LIMIT_START_MID) });
+            case LOW:
+                return clauses(new Bound[] {
+                        above(ELBOW, ElevatorConstants.SAFETY_ELBOW_LIMIT_LOW),
+                        above(WRIST, ElevatorConstants.SAFETY_WRIST_LIMIT_LOW),
+                        above(CARRIAGE, ElevatorConstants.SAFETY_CARRIAGE_LIMIT_LOW) });
+            case HIGH:
+                return clauses(new Bound[] {
+                        above(ELBOW, ElevatorConstants.SAFETY_ELBOW_LIMIT_HIGH),
+                        below(WRIST, ElevatorConstants.SAFETY_WRIST_LIMIT_HIGH) });
+            default:
+                return FREE;
+        }
+    }
+
+    private static Bound[][] elbowClauses(final Goal goal) {
+        if (goal == Goal.HIGH) {
+            // Clear of the pole once the elevator is up, and lifting is always safe
+            return clauses(
+                    new Bound[] { below(ELEVATOR, ElbowConstants.SAFETY_ELEVATOR_LIMIT_HIGH) },
+                    new Bound[] { below(ELBOW, goal.joints[ELBOW].getTarget()) });
+        }
+        return clauses(new Bound[] {
+                above(CARRIAGE, pick(goal, ElbowConstants.START_POS_MIN_CARRIAGE,
+                        ElbowConstants.LOW_POS_MIN_CARRIAGE, ElbowConstants.MID_POS_MIN_CARRIAGE,
+                        ElbowConstants.LOADING_POS_MIN_CARRIAGE, ElbowConstants.HIGH_POS_MIN_CARRIAGE)),
+                above(WRIST, pick(goal, ElbowConstants.START_POS_MIN_WRIST,
+                        ElbowConstants.LOW_POS_MIN_WRIST, ElbowConstants.MID_POS_MIN_WRIST,
+                        ElbowConstants.LOADING_POS_MIN_WRIST, ElbowConstants.HIGH_POS_MIN_WRIST)) });
+    }
+
+    private static double pick(final Goal goal, final double start, final double low, final double mid,
+            final double loading, final double high) {
+        switch (goal) {
+            case LOW:
+                return low;
+            case MID:
+                return mid;
+            case LOADING:
+                return loading;
+            case HIGH:
+                return high;
+            default:
+                return start;
+        }
+    }
+
+    private static Bound above(final int joint, final double threshold) {
+        return new Bound(joint, threshold, true);
+    }
+
+    private static Bound below(final int joint, final double threshold) {
+        return new Bound(joint, threshold, false);
+    }
+
+    private static Bound[][] clauses(final Bound[]... jointClauses) {
+        return jointClauses;
+    }
+
+    private void set(final Goal goal, final int joint, final Bound[][] jointClauses) {
+        clauses[goal.ordinal()][joint] = jointClauses;
+    }
+
+    /** @return Every clause that lets a joint move while heading to a goal */
+    Bound[][] clauses(final Goal goal, final int joint) {
+        return clauses[goal.ordinal()][joint];
+    }
+
+    /**
+     * @return Whether a joint may move while heading to a goal, with every joint
+     *         at the given positions
+     */
+    boolean allows(final Goal goal, final int joint, final double[] positions) {
+        final var jointClauses = clauses(goal, joint);
+        if (jointClauses.length == 0) {
+            return true;
+        }
+        for (final var clause : jointClauses) {
+            if (holds(clause, positions)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean holds(final Bound[] clause, final double[] positions) {
+        for (final var bound : clause) {
+            if (!bound.holds(positions)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
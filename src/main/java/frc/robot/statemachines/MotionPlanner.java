@@ -0,0 +1,513 @@
+package frc.robot.statemachines;
+
+import static frc.robot.statemachines.SubsystemGroup.JOINT_COUNT;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.wpi.first.math.trajectory.TrapezoidProfile;
+import frc.robot.Constants.PlannerConstants;
+import frc.robot.statemachines.KeepOutMap.Bound;
+import frc.robot.statemachines.SubsystemGroup.Goal;
+
+/**
+ * Plans collision free joint motions for the superstructure against a
+ * {@link KeepOutMap}. A plan is a list of rest to rest moves per joint, each
+ * along that joint's trapezoidal profile from
+ * {@link PlannerConstants#JOINT_PROFILES}, so the plan never asks a joint for
+ * more speed or acceleration than its own profile would. Joints run together
+ * whenever it is safe instead of each one waiting for the last to settle. If a
+ * joint is blocked by another joint that isn't heading past the blocking
+ * threshold, the other joint is parked just past it (a via point) until the
+ * blocked joint is through.
+ *
+ * <p>
+ * Moves are added greedily, one joint at a time, but each one starts at the
+ * earliest time the map allows given the moves already planned. The map only
+ * changes when a joint crosses one of its thresholds, so that time is always
+ * one where the new move lines up a start, an end or a crossing with one
+ * already planned, and only those times are tried. The order joints are tried
+ * in is fixed, so plans aren't guaranteed to be the fastest possible, only
+ * faster than moving the joints one at a time. It is plain Java with no
+ * hardware, so plans can be checked against the constants in simulation. Plans
+ * between every pair of goals are built up front.
+ */
+public class MotionPlanner {
+    private static final double EPSILON = 1e-6;
+    // Intervals shorter than this are where two events line up, nothing moves in them
+    private static final double MIN_INTERVAL = 1e-9;
+
+    /** One joint's rest to rest move along a trapezoidal profile. */
+    static final class Move {
+        final int joint;
+        final double start;
+        final double from;
+        final double to;
+
+        private final double distance;
+        private final double direction;
+        private final double acceleration;
+        private final double accelTime;
+        private final double cruiseTime;
+        private final double peakVelocity;
+        private final double accelDistance;
+        private final double duration;
+
+        Move(final int joint, final double start, final double from, final double to,
+                final TrapezoidProfile.Constraints constraints) {
+            this.joint = joint;
+            this.start = start;
+            this.from = from;
+            this.to = to;
+
+            distance = Math.abs(to - from);
+            direction = Math.signum(to - from);
+            acceleration = constraints.maxAcceleration;
+            // Too short to reach full speed makes a triangle instead
+            final var fullSpeedDistance = constraints.maxVelocity * constraints.maxVelocity / acceleration;
+            if (distance < fullSpeedDistance) {
+                accelTime = Math.sqrt(distance / acceleration);
+                cruiseTime = 0;
+            } else {
+                accelTime = constraints.maxVelocity / acceleration;
+                cruiseTime = (distance - fullSpeedDistance) / constraints.maxVelocity;
+            }
+            peakVelocity = acceleration * accelTime;
+            accelDistance = acceleration * accelTime * accelTime / 2;
+            duration = 2 * accelTime + cruiseTime;
+        }
+
+        double end() {
+            return start + duration;
+        }
+
+        boolean isMoving(final double time) {
+            return time > start && time < end();
+        }
+
+        double position(final double time) {
+            final var t = time - start;
+            if (t <= 0) {
+                return from;
+            }
+            if (t >= duration) {
+                return to;
+            }
+            final double travelled;
+            if (t < accelTime) {
+                travelled = acceleration * t * t / 2;
+            } else if (t < accelTime + cruiseTime) {
+                travelled = accelDistance + peakVelocity * (t - accelTime);
+            } else {
+                final var left = duration - t;
+                travelled = distance - acceleration * left * left / 2;
+            }
+            return from + direction * travelled;
+        }
+
+        double velocity(final double time) {
+            final var t = time - start;
+            if (t <= 0 || t >= duration) {
+                return 0;
+            }
+            if (t < accelTime) {
+                return direction * acceleration * t;
+            }
+            if (t < accelTime + cruiseTime) {
+                return direction * peakVelocity;
+            }
+            return direction * acceleration * (duration - t);
+        }
+
+        /** @return When the move passes a position, or NaN if it doesn't pass strictly through it */
+        double timeAt(final double position) {
+            final var travelled = (position - from) * direction;
+            if (travelled <= 0 || travelled >= distance) {
+                return Double.NaN;
+            }
+            if (travelled <= accelDistance) {
+                return start + Math.sqrt(2 * travelled / acceleration);
+            }
+            if (travelled <= distance - accelDistance) {
+                return start + accelTime + (travelled - accelDistance) / peakVelocity;
+            }
+            return start + duration - Math.sqrt(2 * (distance - travelled) / acceleration);
+        }
+    }
+
+    /** Rest to rest moves for every joint, each joint's in order. */
+    public static final class Plan {
+        private final double[] start;
+        private final double[] end;
+        private final Move[][] moves;
+        private final double duration;
+        private final boolean complete;
+
+        private Plan(final double[] start, final List<List<Move>> moves, final boolean complete) {
+            this.start = start;
+            this.complete = complete;
+            this.moves = new Move[JOINT_COUNT][];
+            end = start.clone();
+            var duration = 0.0;
+            for (var joint = 0; joint < JOINT_COUNT; joint++) {
+                this.moves[joint] = moves.get(joint).toArray(new Move[0]);
+                for (final var move : this.moves[joint]) {
+                    end[joint] = move.to;
+                    duration = Math.max(duration, move.end());
+                }
+            }
+            this.duration = duration;
+        }
+
+        /** @return Whether the plan reaches its goal, otherwise it stops where the joints got stuck */
+        public boolean isComplete() {
+            return complete;
+        }
+
+        public double getDuration() {
+            return duration;
+        }
+
+        /**
+         * Where every joint should be at a time into the plan.
+         *
+         * @param time     Seconds since the plan started
+         * @param setpoint Filled with a position per joint
+         * @param velocity Filled with a velocity per joint, in units per second
+         */
+        public void sample(final double time, final double[] setpoint, final double[] velocity) {
+            for (var joint = 0; joint < JOINT_COUNT; joint++) {
+                setpoint[joint] = start[joint];
+                velocity[joint] = 0;
+                for (final var move : moves[joint]) {
+                    if (time <= move.start) {
+                        break;
+                    }
+                    setpoint[joint] = move.position(time);
+                    velocity[joint] = move.velocity(time);
+                    if (time < move.end()) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        double[] getStart() {
+            return start;
+        }
+
+        double[] getEnd() {
+            return end;
+        }
+
+        Move[] getMoves(final int joint) {
+            return moves[joint];
+        }
+    }
+
+    private final KeepOutMap map;
+    private final TrapezoidProfile.Constraints[] profiles;
+    private final Plan[][] presets;
+
+    public MotionPlanner() {
+        this(KeepOutMap.fromConstants(), PlannerConstants.JOINT_PROFILES);
+    }
+
+    MotionPlanner(final KeepOutMap map, final TrapezoidProfile.Constraints[] profiles) {
+        this.map = map;
+        this.profiles = profiles;
+
+        final var goals = Goal.values();
+        presets = new Plan[goals.length][goals.length];
+        for (final var from : goals) {
+            for (final var to : goals) {
+                presets[from.ordinal()][to.ordinal()] = plan(targets(from), to);
+            }
+        }
+    }
+
+    KeepOutMap getMap() {
+        return map;
+    }
+
+    /** @return A move along a joint's profile */
+    Move move(final int joint, final double start, final double from, final double to) {
+        return new Move(joint, start, from, to, profiles[joint]);
+    }
+
+    /** @return The precomputed plan between two goals */
+    public Plan getPreset(final Goal from, final Goal to) {
+        return presets[from.ordinal()][to.ordinal()];
+    }
+
+    /**
+     * Get a plan from wherever the joints are now. The precomputed plan is used
+     * when the joints are still at the last goal, otherwise a new one is built.
+     *
+     * @param from      The goal the joints were last sent to
+     * @param positions Where every joint is now
+     * @param to        The goal to go to
+     * @return The plan
+     */
+    public Plan planFrom(final Goal from, final double[] positions, final Goal to) {
+        final var fromTargets = targets(from);
+        for (var joint = 0; joint < JOINT_COUNT; joint++) {
+            if (Math.abs(positions[joint] - fromTargets[joint]) > PlannerConstants.TRACKING_TOLERANCES[joint]) {
+                return plan(positions, to);
+            }
+        }
+        return getPreset(from, to);
+    }
+
+    static double[] targets(final Goal goal) {
+        final var targets = new double[JOINT_COUNT];
+        for (var joint = 0; joint < JOINT_COUNT; joint++) {
+            targets[joint] = goal.joints[joint].getTarget();
+        }
+        return targets;
+    }
+
+    /**
+     * Plan a path from a set of joint positions to a goal.
+     *
+     * @param start Where every joint starts
+     * @param goal  The goal to go to
+     * @return The plan
+     */
+    public Plan plan(final double[] start, final Goal goal) {
+        final var thresholds = thresholds(goal);
+        final var finalTargets = targets(goal);
+        final var targets = finalTargets.clone();
+        // Where each joint ends up after its last planned move, and when
+        final var current = start.clone();
+        final var free = new double[JOINT_COUNT];
+        final var moves = new ArrayList<List<Move>>();
+        for (var joint = 0; joint < JOINT_COUNT; joint++) {
+            moves.add(new ArrayList<>());
+        }
+        var parked = false;
+        var viaPoints = 0;
+
+        for (var event = 0; event < PlannerConstants.MAX_PLAN_EVENTS; event++) {
+            var progressed = false;
+            for (var joint = 0; joint < JOINT_COUNT; joint++) {
+                if (arrived(current, targets, joint)) {
+                    continue;
+                }
+                final var move = earliestMove(goal, thresholds, start, moves, joint, free[joint],
+                        current[joint], targets[joint]);
+                if (move != null) {
+                    current[joint] = move.to;
+                    free[joint] = move.end();
+                    progressed = true;
+                }
+            }
+            if (progressed) {
+                continue;
+            }
+
+            if (parked) {
+                // Everything that was waiting on the parked joints is done
+                System.arraycopy(finalTargets, 0, targets, 0, JOINT_COUNT);
+                parked = false;
+                continue;
+            }
+            if (allArrived(current, finalTargets)) {
+                return new Plan(start.clone(), moves, true);
+            }
+            if (viaPoints >= PlannerConstants.MAX_VIA_POINTS || !park(goal, current, targets)) {
+                return new Plan(start.clone(), moves, false);
+            }
+            parked = true;
+            viaPoints++;
+        }
+        return new Plan(start.clone(), moves, false);
+    }
+
+    /**
+     * Find the earliest time a joint can make a move without breaking the map
+     * for itself or any joint already planned to be moving, and add the move
+     * there.
+     *
+     * @return The move, or null if there is no such time
+     */
+    private Move earliestMove(final Goal goal, final double[][] thresholds, final double[] start,
+            final List<List<Move>> moves, final int joint, final double notBefore, final double from,
+            final double to) {
+        // Offsets into the move where it starts, ends or crosses a threshold
+        final var probe = move(joint, 0, from, to);
+        final var offsets = new ArrayList<Double>();
+        offsets.add(0.0);
+        offsets.add(probe.end());
+        for (final var threshold : thresholds[joint]) {
+            final var time = probe.timeAt(threshold);
+            if (!Double.isNaN(time)) {
+                offsets.add(time);
+            }
+        }
+
+        final var candidates = new ArrayList<Double>();
+        candidates.add(notBefore);
+        for (final var event : events(thresholds, moves)) {
+            for (final var offset : offsets) {
+                if (event - offset > notBefore) {
+                    candidates.add(event - offset);
+                }
+            }
+        }
+        candidates.sort(null);
+
+        final var jointMoves = moves.get(joint);
+        for (final var candidate : candidates) {
+            final var move = move(joint, candidate, from, to);
+            jointMoves.add(move);
+            if (allowed(goal, thresholds, start, moves, candidate)) {
+                return move;
+            }
+            jointMoves.remove(jointMoves.size() - 1);
+        }
+        return null;
+    }
+
+    /** @return Every threshold in the map's clauses for a goal, by the joint it's on */
+    private double[][] thresholds(final Goal goal) {
+        final var thresholds = new double[JOINT_COUNT][0];
+        for (var gated = 0; gated < JOINT_COUNT; gated++) {
+            for (final var clause : map.clauses(goal, gated)) {
+                for (final var bound : clause) {
+                    final var list = thresholds[bound.joint()];
+                    thresholds[bound.joint()] = Arrays.copyOf(list, list.length + 1);
+                    thresholds[bound.joint()][list.length] = bound.threshold();
+                }
+            }
+        }
+        return thresholds;
+    }
+
+    /** @return Every time a joint starts, stops or crosses a threshold, sorted */
+    private static double[] events(final double[][] thresholds, final List<List<Move>> moves) {
+        final var events = new ArrayList<Double>();
+        for (var joint = 0; joint < JOINT_COUNT; joint++) {
+            for (final var move : moves.get(joint)) {
+                events.add(move.start);
+                events.add(move.end());
+                for (final var threshold : thresholds[joint]) {
+                    final var time = move.timeAt(threshold);
+                    if (!Double.isNaN(time)) {
+                        events.add(time);
+                    }
+                }
+            }
+        }
+        final var sorted = new double[events.size()];
+        for (var i = 0; i < sorted.length; i++) {
+            sorted[i] = events.get(i);
+        }
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Check that every joint only moves where the map allows it, from a time
+     * on. Nothing in the map changes between events, so checking the middle
+     * of each interval between them covers the whole plan.
+     */
+    private boolean allowed(final Goal goal, final double[][] thresholds, final double[] start,
+            final List<List<Move>> moves, final double from) {
+        final var events = events(thresholds, moves);
+        final var positions = new double[JOINT_COUNT];
+        final var moving = new boolean[JOINT_COUNT];
+        for (var i = 0; i < events.length - 1; i++) {
+            if (events[i + 1] <= from || events[i + 1] - events[i] < MIN_INTERVAL) {
+                continue;
+            }
+            final var middle = (events[i] + events[i + 1]) / 2;
+            for (var joint = 0; joint < JOINT_COUNT; joint++) {
+                positions[joint] = start[joint];
+                moving[joint] = false;
+                for (final var move : moves.get(joint)) {
+                    if (middle <= move.start) {
+                        break;
+                    }
+                    positions[joint] = move.position(middle);
+                    moving[joint] = move.isMoving(middle);
+                }
+            }
+            for (var joint = 0; joint < JOINT_COUNT; joint++) {
+                if (moving[joint] && !map.allows(goal, joint, positions)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Find a blocked joint and send whatever is blocking it just past the
+     * threshold in its way.
+     *
+     * @return Whether anything could be moved out of the way
+     */
+    private boolean park(final Goal goal, final double[] current, final double[] targets) {
+        for (var blocked = 0; blocked < JOINT_COUNT; blocked++) {
+            if (arrived(current, targets, blocked)) {
+                continue;
+            }
+            for (final var clause : map.clauses(goal, blocked)) {
+                if (canClear(goal, current, clause, blocked)) {
+                    for (final var bound : clause) {
+                        if (!bound.holds(current)) {
+                            final var margin = PlannerConstants.VIA_MARGINS[bound.joint()];
+                            targets[bound.joint()] = bound.threshold() + (bound.above() ? margin : -margin);
+                        }
+                    }
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean canClear(final Goal goal, final double[] current, final Bound[] clause, final int blocked) {
+        for (final var bound : clause) {
+            if (!bound.holds(current) && (bound.joint() == blocked || !map.allows(goal, bound.joint(), current))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean arrived(final double[] current, final double[] targets, final int joint) {
+        return Math.abs(targets[joint] - current[joint]) <= EPSILON;
+    }
+
+    private static boolean allArrived(final double[] current, final double[] targets) {
+        for (var joint = 0; joint < JOINT_COUNT; joint++) {
+            if (!arrived(current, targets, joint)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check that a plan only moves joints where the map allows them to move,
+     * and never starts a joint's move before its last one is done.
+     *
+     * @return Whether the plan is collision free
+     */
+    public boolean verify(final Plan plan, final Goal goal) {
+        final var moves = new ArrayList<List<Move>>();
+        for (var joint = 0; joint < JOINT_COUNT; joint++) {
+            final var jointMoves = plan.getMoves(joint);
+            for (var i = 1; i < jointMoves.length; i++) {
+                if (jointMoves[i].start < jointMoves[i - 1].end() - EPSILON) {
+                    return false;
+                }
+            }
+            moves.add(Arrays.asList(jointMoves));
+        }
+        return allowed(goal, thresholds(goal), plan.getStart(), moves, Double.NEGATIVE_INFINITY);
+    }
+}
@@ -4,42 +4,88 @@
 
 package frc.robot.statemachines;
 
+import java.util.function.DoubleConsumer;
+
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.Constants.PlannerConstants;
 import frc.robot.elbow.ElbowSubsystem;
 import frc.robot.lift.CarriageSubsystem;
+import frc.robot.lib.ProfiledJoint;
 import frc.robot.lift.ElevatorSubsystem;
+import frc.robot.telemetry.Telemetry;
+import frc.robot.telemetry.Timeline;
 import frc.robot.wrist.WristSubsystem;
 
 public class SubsystemGroup extends SubsystemBase {
-    private ElevatorSubsystem elevator;
-    private CarriageSubsystem carriage;
-    private ElbowSubsystem elbow;
-    private WristSubsystem wrist;
-
-    private SafetyLogic elevatorStart = ElevatorSubsystem.ElevatorState.start;
-    private SafetyLogic elevatorLow = ElevatorSubsystem.ElevatorState.low;
-    private SafetyLogic elevatorMid = ElevatorSubsystem.ElevatorState.mid;
-    private SafetyLogic elevatorLoading = ElevatorSubsystem.ElevatorState.loading;
-    private SafetyLogic elevatorHigh = ElevatorSubsystem.ElevatorState.high;
-
-    private SafetyLogic carriageStart = CarriageSubsystem.CarriageState.start;
-    private SafetyLogic carriageLow = CarriageSubsystem.CarriageState.low;
-    private SafetyLogic carriageMid = CarriageSubsystem.CarriageState.mid;
-    private SafetyLogic carriageLoading = CarriageSubsystem.CarriageState.loading;
-    private SafetyLogic carriageHigh = CarriageSubsystem.CarriageState.high;
-
-    private SafetyLogic elbowStart = ElbowSubsystem.ElbowState.start;
-    private SafetyLogic elbowLow = ElbowSubsystem.ElbowState.low;
-    private SafetyLogic elbowMid = ElbowSubsystem.ElbowState.mid;
-    private SafetyLogic elbowLoading = ElbowSubsystem.ElbowState.loading;
-    private SafetyLogic elbowHigh = ElbowSubsystem.ElbowState.high;
-
-    private SafetyLogic wristStart = WristSubsystem.WristState.start;
-    private SafetyLogic wristLow = WristSubsystem.WristState.low;
-    private SafetyLogic wristMid = WristSubsystem.WristState.mid;
-    private SafetyLogic wristLoading = WristSubsystem.WristState.loading;
-    private SafetyLogic wristHigh = WristSubsystem.WristState.high;
+    static final int ELEVATOR = 0;
+    static final int CARRIAGE = 1;
+    static final int ELBOW = 2;
+    static final int WRIST = 3;
+    static final int JOINT_COUNT = 4;
+
+    /**
+     * Every position the superstructure can go to. Each row holds the safety
+     * logic for the elevator, carriage, elbow and wrist in that order, so a new
+     * position is a new row.
+     */
+    public enum Goal {
+        START(ElevatorSubsystem.ElevatorState.start, CarriageSubsystem.CarriageState.start,
+                ElbowSubsystem.ElbowState.start, WristSubsystem.WristState.start),
+        LOW(ElevatorSubsystem.ElevatorState.low, CarriageSubsystem.CarriageState.low,
+                ElbowSubsystem.ElbowState.low, WristSubsystem.WristState.low),
+        MID(ElevatorSubsystem.ElevatorState.mid, CarriageSubsystem.CarriageState.mid,
+                ElbowSubsystem.ElbowState.mid, WristSubsystem.WristState.mid),
+        LOADING(ElevatorSubsystem.ElevatorState.loading, CarriageSubsystem.CarriageState.loading,
+                ElbowSubsystem.ElbowState.loading, WristSubsystem.WristState.loading),
+        HIGH(ElevatorSubsystem.ElevatorState.high, CarriageSubsystem.CarriageState.high,
+                ElbowSubsystem.ElbowState.high, WristSubsystem.WristState.high);
+
+        final SafetyLogic[] joints;
+
+        Goal(final SafetyLogic elevator, final SafetyLogic carriage, final SafetyLogic elbow,
+                final SafetyLogic wrist) {
+            joints = new SafetyLogic[JOINT_COUNT];
+            joints[ELEVATOR] = elevator;
+            joints[CARRIAGE] = carriage;
+            joints[ELBOW] = elbow;
+            joints[WRIST] = wrist;
+        }
+    }
+
+    private final ElevatorSubsystem elevator;
+    private final CarriageSubsystem carriage;
+    private final ElbowSubsystem elbow;
+    private final WristSubsystem wrist;
+
+    private final DoubleConsumer[] outputs;
+    private final ProfiledJoint[] profiles;
+    private final double[] speeds = new double[JOINT_COUNT];
+    private Goal goal = Goal.START;
+
+    private final MotionPlanner planner = new MotionPlanner();
+    private final double[] positions = new double[JOINT_COUNT];
+    private final double[] setpoint = new double[JOINT_COUNT];
+    private final double[] velocity = new double[JOINT_COUNT];
+    private MotionPlanner.Plan plan = null;
+    private double planTime = 0;
+    private double lastTimestamp = 0;
+    private double stalledSeconds = 0;
+
+    // Gaps longer than this between calls weren't spent waiting on an interlock
+    private static final double MAX_INTERLOCK_STEP = 0.1;
+    private double interlockSeconds = 0;
+    private double lastInterlockCheck = 0;
+
+    private final NetworkTable table = NetworkTableInstance.getDefault().getTable("157/Superstructure");
+    private final Telemetry.DoubleChannel planTimeEntry = Telemetry.doubleChannel(table, "Plan Time");
+    private final Telemetry.DoubleChannel planDurationEntry = Telemetry.doubleChannel(table, "Plan Duration");
+    private final Telemetry.BooleanChannel trackingEntry = Telemetry.booleanChannel(table, "Tracking");
+    private final Telemetry.DoubleChannel interlockEntry = Telemetry.doubleChannel(table, "Interlock Seconds");
 
     public interface SafetyLogic {
         public SafetyLogic lowPosition();
@@ -52,6 +98,9 @@ public class SubsystemGroup extends SubsystemBase {
 
         public SafetyLogic defaultPosition();
 
+        /** @return Where this state drives its joint to */
+        public double getTarget();
+
         public double stateCalculate(double speed, double elbowPosition, double wristPosition,
                 double elevatorPosition, double carriagePosition);
     }
@@ -63,154 +112,199 @@ public class SubsystemGroup extends SubsystemBase {
         this.carriage = carriage;
         this.elbow = elbow;
         this.wrist = wrist;
-    }
 
-    public void startPosition(double speed) {
-
-        double elevatorPosition = elevator.getElevatorPosition();
-        double carriagePosition = carriage.getCarriagePosition();
-        double elbowPosition = elbow.getElbowRotationPosition();
-        double wristPosition = wrist.getWristRotationPosition();
-
-        double elevatorSpeed = elevatorStart.stateCalculate(speed, elbowPosition, wristPosition, elevatorPosition,
-                carriagePosition) * speed;
-        double carriageSpeed = carriageStart.stateCalculate(speed, elbowPosition, wristPosition, elevatorPosition,
-                carriagePosition) * speed;
-        double elbowSpeed = elbowStart.stateCalculate(speed, elbowPosition, wristPosition, elevatorPosition,
-                carriagePosition) * speed;
-        double wristSpeed = wristStart.stateCalculate(speed, elbowPosition, wristPosition, elevatorPosition,
-                carriagePosition) * speed;
-
-        elevator.runElevatorMotor(elevatorSpeed);
-        carriage.runCarriageMotor(carriageSpeed);
-        elbow.rotateElbow(elbowSpeed);
-        wrist.rotateWrist(wristSpeed);
+        outputs = new DoubleConsumer[JOINT_COUNT];
+        outputs[ELEVATOR] = elevator::runElevatorMotor;
+        outputs[CARRIAGE] = carriage::runCarriageMotor;
+        outputs[ELBOW] = elbow::rotateElbow;
+        outputs[WRIST] = wrist::rotateWrist;
+
+        profiles = new ProfiledJoint[JOINT_COUNT];
+        profiles[ELEVATOR] = ElevatorSubsystem.ElevatorState.profile;
+        profiles[CARRIAGE] = CarriageSubsystem.CarriageState.profile;
+        profiles[ELBOW] = ElbowSubsystem.ElbowState.profile;
+        profiles[WRIST] = WristSubsystem.WristState.profile;
+
+        for (final var from : Goal.values()) {
+            for (final var to : Goal.values()) {
+                final var preset = planner.getPreset(from, to);
+                if (!preset.isComplete() || !planner.verify(preset, to)) {
+                    DriverStation.reportWarning("No safe plan from " + from + " to " + to
+                            + ", it will use the reactive safety logic", false);
+                }
+            }
+        }
     }
 
-    public void stopAll() {
-        elevator.stop();
-        carriage.stop();
-        elbow.stop();
-        wrist.stop();
+    public Goal getGoal() {
+        return goal;
     }
 
-    public void reset() {
-        elevator.reset();
+    /**
+     * Switch which row of the goal table the joints drive towards. The joints
+     * pick the new goal up on the next {@link #evaluate(double)}.
+     */
+    public void transitionTo(final Goal next) {
+        goal = next;
     }
 
-    public Command lowPosCommand(double speed) {
-        var retval = runOnce(() -> reset()).andThen(runEnd(() -> lowPosition(speed), () -> stopAll()));
-        retval.addRequirements(wrist, elbow, elevator, carriage);
-        return retval;
-
+    /**
+     * Run every joint one step towards the current goal. All joints see the
+     * same sensor readings, and all speeds are worked out before any motor is
+     * set.
+     */
+    public void evaluate(final double speed) {
+        readPositions();
+
+        final var joints = goal.joints;
+        var held = false;
+        for (var joint = 0; joint < JOINT_COUNT; joint++) {
+            speeds[joint] = joints[joint].stateCalculate(speed, positions[ELBOW], positions[WRIST],
+                    positions[ELEVATOR], positions[CARRIAGE]) * speed;
+            // Safety checks hold a joint by returning exactly zero
+            held |= speeds[joint] == 0 && Math.abs(joints[joint].getTarget()
+                    - positions[joint]) > PlannerConstants.TRACKING_TOLERANCES[joint];
+        }
+        recordInterlock(held);
+        for (var joint = 0; joint < JOINT_COUNT; joint++) {
+            outputs[joint].accept(speeds[joint]);
+        }
     }
 
-    public Command midPosConeCommand(double speed) {
-        var retval = runOnce(() -> reset()).andThen(runEnd(() -> midPosition(speed), () -> stopAll()));
-        retval.addRequirements(wrist, elbow, elevator, carriage);
-        return retval;
+    private void readPositions() {
+        positions[ELEVATOR] = elevator.getElevatorPosition();
+        positions[CARRIAGE] = carriage.getCarriagePosition();
+        positions[ELBOW] = elbow.getElbowRotationPosition();
+        positions[WRIST] = wrist.getWristRotationPosition();
     }
 
-    public Command highPosCommand(double speed) {
-        var retval = runOnce(() -> reset()).andThen(runEnd(() -> highPosition(speed), () -> stopAll()));
-        retval.addRequirements(wrist, elbow, elevator, carriage);
-        return retval;
+    /**
+     * Plan a path from where the joints are to a new goal, then switch to it.
+     * If the planner can't find a safe path the joints fall back to
+     * {@link #evaluate(double)}.
+     */
+    public void startPlan(final Goal next) {
+        readPositions();
+        final var candidate = planner.planFrom(goal, positions, next);
+        plan = candidate.isComplete() ? candidate : null;
+        planTime = 0;
+        stalledSeconds = 0;
+        lastTimestamp = Timer.getFPGATimestamp();
+        transitionTo(next);
+        planDurationEntry.set(plan != null ? plan.getDuration() : -1);
     }
 
-    public Command startingPosCommand(double speed) {
-        var retval = runOnce(() -> reset()).andThen(runEnd(() -> startPosition(speed), () -> stopAll()));
-        retval.addRequirements(wrist, elbow, elevator, carriage);
-        return retval;
+    /**
+     * Run every joint one step along the current plan, through each joint's
+     * {@link ProfiledJoint} so the plan's velocity gets the same feedforward
+     * as the joint's own profile. The plan clock only runs while every joint
+     * is keeping up, so a slow joint holds the others at the plan's safe
+     * positions instead of letting them run ahead. The keep out map is still
+     * checked before every output. Once the plan is done the joints hold the
+     * goal with {@link #evaluate(double)}. If the joints stop keeping up for
+     * {@link PlannerConstants#STALL_SECONDS}, say because a joint's profile is
+     * faster than it can really go or the map blocks a joint where it really
+     * is, the plan is dropped for {@link #evaluate(double)} as well.
+     */
+    public void followPlan(final double speed) {
+        if (plan == null) {
+            evaluate(speed);
+            return;
+        }
+
+        readPositions();
+        final var now = Timer.getFPGATimestamp();
+        final var elapsed = now - lastTimestamp;
+        lastTimestamp = now;
+
+        plan.sample(planTime, setpoint, velocity);
+        var tracking = true;
+        for (var joint = 0; joint < JOINT_COUNT; joint++) {
+            tracking &= Math.abs(setpoint[joint] - positions[joint]) <= PlannerConstants.TRACKING_TOLERANCES[joint];
+        }
+        trackingEntry.set(tracking);
+
+        if (tracking && planTime >= plan.getDuration()) {
+            plan = null;
+            evaluate(speed);
+            return;
+        }
+        if (tracking) {
+            stalledSeconds = 0;
+            planTime = Math.min(planTime + elapsed * speed, plan.getDuration());
+        } else {
+            stalledSeconds += Math.min(elapsed, MAX_INTERLOCK_STEP);
+            if (stalledSeconds >= PlannerConstants.STALL_SECONDS) {
+                DriverStation.reportWarning("Plan to " + goal + " stalled, using the reactive safety logic", false);
+                plan = null;
+                planDurationEntry.set(-1);
+                evaluate(speed);
+                return;
+            }
+        }
+        planTimeEntry.set(planTime);
+        // The plan runs at speed, and its setpoints stand still while the clock is held
+        final var clockRate = tracking ? speed : 0;
+
+        final var map = planner.getMap();
+        var held = false;
+        for (var joint = 0; joint < JOINT_COUNT; joint++) {
+            if (!map.allows(goal, joint, positions)) {
+                // Held where it is, still against gravity
+                speeds[joint] = profiles[joint].follow(positions[joint], positions[joint], 0);
+                held = true;
+                continue;
+            }
+            speeds[joint] = profiles[joint].follow(positions[joint], setpoint[joint], velocity[joint] * clockRate);
+        }
+        recordInterlock(held);
+        for (var joint = 0; joint < JOINT_COUNT; joint++) {
+            outputs[joint].accept(speeds[joint]);
+        }
     }
 
-    public Command loadingPosCommand(double speed) {
-        var retval = runOnce(() -> reset()).andThen(runEnd(() -> loadingPosition(speed), () -> stopAll()));
-        retval.addRequirements(wrist, elbow, elevator, carriage);
-        return retval;
+    private void recordInterlock(final boolean held) {
+        final var now = Timer.getFPGATimestamp();
+        if (held) {
+            interlockSeconds += Math.min(now - lastInterlockCheck, MAX_INTERLOCK_STEP);
+            interlockEntry.set(interlockSeconds);
+        }
+        lastInterlockCheck = now;
     }
 
-    public void lowPosition(double speed) {
-        double elevatorPosition = elevator.getElevatorPosition();
-        double carriagePosition = carriage.getCarriagePosition();
-        double elbowPosition = elbow.getElbowRotationPosition();
-        double wristPosition = wrist.getWristRotationPosition();
-
-        double elevatorSpeed = elevatorLow.stateCalculate(speed, elbowPosition, wristPosition, elevatorPosition,
-                carriagePosition) * speed;
-        double carriageSpeed = carriageLow.stateCalculate(speed, elbowPosition, wristPosition, elevatorPosition,
-                carriagePosition) * speed;
-        double elbowSpeed = elbowLow.stateCalculate(speed, elbowPosition, wristPosition, elevatorPosition,
-                carriagePosition) * speed;
-        double wristSpeed = wristLow.stateCalculate(speed, elbowPosition, wristPosition, elevatorPosition,
-                carriagePosition) * speed;
-
-        elevator.runElevatorMotor(elevatorSpeed);
-        carriage.runCarriageMotor(carriageSpeed);
-        elbow.rotateElbow(elbowSpeed);
-        wrist.rotateWrist(wristSpeed);
+    /**
+     * @return Total time any joint has spent held still by a safety check
+     *         while away from its goal, since the robot started
+     */
+    public double getInterlockSeconds() {
+        return interlockSeconds;
     }
 
-    public void midPosition(double speed) {
-        double elevatorPosition = elevator.getElevatorPosition();
-        double carriagePosition = carriage.getCarriagePosition();
-        double elbowPosition = elbow.getElbowRotationPosition();
-        double wristPosition = wrist.getWristRotationPosition();
-
-        double elevatorSpeed = elevatorMid.stateCalculate(speed, elbowPosition, wristPosition, elevatorPosition,
-                carriagePosition) * speed;
-        double carriageSpeed = carriageMid.stateCalculate(speed, elbowPosition, wristPosition, elevatorPosition,
-                carriagePosition) * speed;
-        double elbowSpeed = elbowMid.stateCalculate(speed, elbowPosition, wristPosition, elevatorPosition,
-                carriagePosition) * speed;
-        double wristSpeed = wristMid.stateCalculate(speed, elbowPosition, wristPosition, elevatorPosition,
-                carriagePosition) * speed;
-
-        elevator.runElevatorMotor(elevatorSpeed);
-        carriage.runCarriageMotor(carriageSpeed);
-        elbow.rotateElbow(elbowSpeed);
-        wrist.rotateWrist(wristSpeed);
+    public void stopAll() {
+        elevator.stop();
+        carriage.stop();
+        elbow.stop();
+        wrist.stop();
     }
 
-    public void loadingPosition(double speed) {
-        double elevatorPosition = elevator.getElevatorPosition();
-        double carriagePosition = carriage.getCarriagePosition();
-        double elbowPosition = elbow.getElbowRotationPosition();
-        double wristPosition = wrist.getWristRotationPosition();
-
-        double elevatorSpeed = elevatorLoading.stateCalculate(speed, elbowPosition, wristPosition, elevatorPosition,
-                carriagePosition) * speed;
-        double carriageSpeed = carriageLoading.stateCalculate(speed, elbowPosition, wristPosition, elevatorPosition,
-                carriagePosition) * speed;
-        double elbowSpeed = elbowLoading.stateCalculate(speed, elbowPosition, wristPosition, elevatorPosition,
-                carriagePosition) * speed;
-        double wristSpeed = wristLoading.stateCalculate(speed, elbowPosition, wristPosition, elevatorPosition,
-                carriagePosition) * speed;
-
-        elevator.runElevatorMotor(elevatorSpeed);
-        carriage.runCarriageMotor(carriageSpeed);
-        elbow.rotateElbow(elbowSpeed);
-        wrist.rotateWrist(wristSpeed);
+    public void reset() {
+        elevator.reset();
     }
 
-    public void highPosition(double speed) {
-        double elevatorPosition = elevator.getElevatorPosition();
-        double carriagePosition = carriage.getCarriagePosition();
-        double elbowPosition = elbow.getElbowRotationPosition();
-        double wristPosition = wrist.getWristRotationPosition();
-
-        double elevatorSpeed = elevatorHigh.stateCalculate(speed, elbowPosition, wristPosition, elevatorPosition,
-                carriagePosition) * speed;
-        double carriageSpeed = carriageHigh.stateCalculate(speed, elbowPosition, wristPosition, elevatorPosition,
-                carriagePosition) * speed;
-        double elbowSpeed = elbowHigh.stateCalculate(speed, elbowPosition, wristPosition, elevatorPosition,
-                carriagePosition) * speed;
-        double wristSpeed = wristHigh.stateCalculate(speed, elbowPosition, wristPosition, elevatorPosition,
-                carriagePosition) * speed;
-
-        elevator.runElevatorMotor(elevatorSpeed);
-        carriage.runCarriageMotor(carriageSpeed);
-        elbow.rotateElbow(elbowSpeed);
-        wrist.rotateWrist(wristSpeed);
+    /**
+     * Drive every joint to a goal along a planned path until interrupted.
+     *
+     * @param goal  Which row of the goal table to go to
+     * @param speed Multiplier on every joint's output
+     * @return The command
+     */
+    public Command positionCommand(final Goal goal, final double speed) {
+        var retval = runOnce(() -> {
+            reset();
+            startPlan(goal);
+        }).andThen(runEnd(() -> followPlan(speed), () -> stopAll()));
+        retval.addRequirements(wrist, elbow, elevator, carriage);
+        return Timeline.stage(retval.withName("Position " + goal), this::getInterlockSeconds);
     }
 
     @Override
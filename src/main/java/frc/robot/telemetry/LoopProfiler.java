@@ -0,0 +1,155 @@
+package frc.robot.telemetry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.WrapperCommand;
+import frc.robot.Constants.TelemetryConstants;
+
+/**
+ * Always-on timing of the robot loop. Each {@link Section} records how long
+ * it took into a {@link LatencyHistogram} without allocating. Summaries
+ * (p50, p99 and max in microseconds) are published to "157/Profiler" once per
+ * summary window. When a loop goes over budget, the time each section took
+ * in that loop is printed to the driver station.
+ */
+public final class LoopProfiler {
+    private LoopProfiler() {
+        throw new UnsupportedOperationException("LoopProfiler is a utility class");
+    }
+
+    private static final NetworkTable table = NetworkTableInstance.getDefault().getTable("157/Profiler");
+    private static final List<Section> sections = new ArrayList<>();
+    private static long loopCount = 0;
+
+    public static class Section {
+        public final String name;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final Telemetry.DoubleChannel p50Entry;
+        private final Telemetry.DoubleChannel p99Entry;
+        private final Telemetry.DoubleChannel maxEntry;
+
+        private long startNanos = 0;
+        private long lastNanos = 0;
+        private long lastLoop = -1;
+
+        private Section(final String name) {
+            this.name = name;
+            final var subTable = table.getSubTable(name);
+            p50Entry = Telemetry.doubleChannel(subTable, "p50 (us)");
+            p99Entry = Telemetry.doubleChannel(subTable, "p99 (us)");
+            maxEntry = Telemetry.doubleChannel(subTable, "max (us)");
+        }
+
+        public void start() {
+            startNanos = System.nanoTime();
+        }
+
+        public void stop() {
+            final var elapsed = System.nanoTime() - startNanos;
+            // A section may run more than once per loop, the breakdown shows the
+            // total for the loop
+            lastNanos = lastLoop == loopCount ? lastNanos + elapsed : elapsed;
+            lastLoop = loopCount;
+            histogram.record(elapsed);
+        }
+
+        public long getLastNanos() {
+            return lastNanos;
+        }
+
+        private void publish() {
+            p50Entry.set(histogram.getPercentile(0.50) / 1e3);
+            p99Entry.set(histogram.getPercentile(0.99) / 1e3);
+            maxEntry.set(histogram.getMax() / 1e3);
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Create a section that shows up in the profiler. Meant to be called once
+     * and kept in a field. Sections with the same name are shared.
+     *
+     * @param name How the section is labeled in NetworkTables and breakdowns
+     * @return The section to start and stop around the timed code
+     */
+    public static Section section(final String name) {
+        for (final var existing : sections) {
+            if (existing.name.equals(name)) {
+                return existing;
+            }
+        }
+
+        final var section = new Section(name);
+        sections.add(section);
+        return section;
+    }
+
+    private static final Section loop = section("Loop");
+
+    /**
+     * Wrap a command so the time spent in its execute() is profiled.
+     *
+     * @param name    How the command is labeled in the profiler
+     * @param command The command to profile
+     * @return A command that behaves the same as the one passed in
+     */
+    public static Command profiled(final String name, final Command command) {
+        return new ProfiledCommand(name, command);
+    }
+
+    private static class ProfiledCommand extends WrapperCommand {
+        private final Section section;
+
+        private ProfiledCommand(final String name, final Command command) {
+            super(command);
+            section = section(name + ".execute()");
+        }
+
+        @Override
+        public void execute() {
+            section.start();
+            super.execute();
+            section.stop();
+        }
+    }
+
+    /** @return How long the last whole robot loop took */
+    public static long getLastLoopNanos() {
+        return loop.getLastNanos();
+    }
+
+    public static void startLoop() {
+        loop.start();
+    }
+
+    public static void endLoop() {
+        loop.stop();
+
+        if (loop.getLastNanos() > TelemetryConstants.LOOP_BUDGET_NANOS) {
+            reportOverrun();
+        }
+
+        loopCount++;
+        if (loopCount % TelemetryConstants.PROFILER_SUMMARY_LOOPS == 0) {
+            for (var i = 0; i < sections.size(); i++) {
+                sections.get(i).publish();
+            }
+        }
+    }
+
+    private static void reportOverrun() {
+        final var builder = new StringBuilder();
+        builder.append(String.format("Loop overrun: %.3f ms\n", loop.getLastNanos() / 1e6));
+        for (final var section : sections) {
+            if (section != loop && section.lastLoop == loopCount) {
+                builder.append(String.format("  %s: %.3f ms\n", section.name, section.getLastNanos() / 1e6));
+            }
+        }
+        DriverStation.reportWarning(builder.toString(), false);
+    }
+}
@@ -0,0 +1,223 @@
+package frc.robot.telemetry;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+import edu.wpi.first.util.datalog.BooleanLogEntry;
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.DoubleLogEntry;
+import edu.wpi.first.wpilibj.DriverStation;
+import frc.robot.Constants.LogConstants;
+
+/**
+ * Writes timestamped signal samples to WPILib DataLog files on the robot.
+ * The control loop only copies each sample into a preallocated ring buffer;
+ * a background thread moves them into the log, so flash writes never stall a
+ * loop. Files are rotated at a fixed size and the oldest ones are deleted to
+ * stay inside the disk budget. If the writer falls behind, new samples are
+ * dropped and counted.
+ */
+public final class SignalLogger {
+    private SignalLogger() {
+        throw new UnsupportedOperationException("SignalLogger is a utility class");
+    }
+
+    private static final String FILE_PREFIX = "signals-";
+    private static final String FILE_SUFFIX = ".wpilog";
+    private static final int CAPACITY = LogConstants.SIGNAL_BUFFER_SIZE;
+    private static final int MASK = CAPACITY - 1;
+    // Rough size of one record in the file, header plus payload
+    private static final int DOUBLE_RECORD_BYTES = 16;
+    private static final int BOOLEAN_RECORD_BYTES = 9;
+
+    private record Signal(String name, boolean isBoolean) {
+    }
+
+    private static final List<Signal> signals = new CopyOnWriteArrayList<>();
+
+    private static final int[] ids = new int[CAPACITY];
+    private static final long[] timestamps = new long[CAPACITY];
+    private static final double[] values = new double[CAPACITY];
+    // Written only by the loop and the writer thread respectively
+    private static volatile long written = 0;
+    private static volatile long read = 0;
+    private static long dropped = 0;
+
+    private static volatile boolean running = false;
+
+    /**
+     * @param name      Full name of the signal in the log
+     * @param isBoolean Whether values should be logged as booleans
+     * @return The id to pass to {@link #record(int, long, double)}
+     */
+    public static int register(final String name, final boolean isBoolean) {
+        signals.add(new Signal(name, isBoolean));
+        return signals.size() - 1;
+    }
+
+    /**
+     * Queue a sample. Does nothing until {@link #start(Path)} is called.
+     *
+     * @param id        From {@link #register(String, boolean)}
+     * @param timestamp FPGA time in microseconds
+     * @param value     The sample, booleans are 1 or 0
+     */
+    public static void record(final int id, final long timestamp, final double value) {
+        if (!running) {
+            return;
+        }
+
+        final var slot = written;
+        if (slot - read >= CAPACITY) {
+            dropped++;
+            return;
+        }
+
+        final var index = (int) (slot & MASK);
+        ids[index] = id;
+        timestamps[index] = timestamp;
+        values[index] = value;
+        // Publishes the slot to the writer
+        written = slot + 1;
+    }
+
+    public static long getDroppedCount() {
+        return dropped;
+    }
+
+    /**
+     * Start the writer thread.
+     *
+     * @param directory Where log files go
+     */
+    public static void start(final Path directory) {
+        if (running) {
+            return;
+        }
+
+        try {
+            Files.createDirectories(directory);
+        } catch (final IOException e) {
+            DriverStation.reportError("Couldn't create log directory: " + e, e.getStackTrace());
+            return;
+        }
+
+        final var writer = new Thread(() -> write(directory), "Signal Logger");
+        writer.setDaemon(true);
+        writer.setPriority(Thread.MIN_PRIORITY);
+        running = true;
+        writer.start();
+    }
+
+    private static class LogFile {
+        private final DataLog log;
+        private final List<Object> entries = new ArrayList<>();
+        private long bytes = 0;
+
+        private LogFile(final Path directory, final long sequence) {
+            // The sequence number comes first so files sort oldest first, even
+            // when the clock hasn't been set by the driver station yet
+            final var name = String.format("%s%06d-%s%s", FILE_PREFIX, sequence,
+                    LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")), FILE_SUFFIX);
+            log = new DataLog(directory.toString(), name);
+        }
+
+        private void append(final int id, final long timestamp, final double value) {
+            // Entries are created lazily so signals registered late still get one
+            while (entries.size() <= id) {
+                final var signal = signals.get(entries.size());
+                entries.add(signal.isBoolean()
+                        ? new BooleanLogEntry(log, signal.name())
+                        : new DoubleLogEntry(log, signal.name()));
+            }
+
+            final var entry = entries.get(id);
+            if (entry instanceof BooleanLogEntry booleanEntry) {
+                booleanEntry.append(value != 0, timestamp);
+                bytes += BOOLEAN_RECORD_BYTES;
+            } else {
+                ((DoubleLogEntry) entry).append(value, timestamp);
+                bytes += DOUBLE_RECORD_BYTES;
+            }
+        }
+    }
+
+    private static void write(final Path directory) {
+        final var existing = listLogs(directory);
+        var sequence = existing.isEmpty() ? 0 : sequenceOf(existing.get(existing.size() - 1)) + 1;
+        var file = new LogFile(directory, sequence++);
+        enforceBudget(directory);
+
+        while (true) {
+            final var available = written;
+            if (read == available) {
+                LockSupport.parkNanos(LogConstants.WRITER_IDLE_NANOS);
+                continue;
+            }
+
+            for (var slot = read; slot < available; slot++) {
+                final var index = (int) (slot & MASK);
+                file.append(ids[index], timestamps[index], values[index]);
+            }
+            // Frees the slots for the loop to reuse
+            read = available;
+
+            if (file.bytes >= LogConstants.LOG_FILE_BYTES) {
+                file.log.close();
+                file = new LogFile(directory, sequence++);
+                enforceBudget(directory);
+            }
+        }
+    }
+
+    private static long sequenceOf(final Path path) {
+        final var name = path.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(FILE_PREFIX.length(), name.indexOf('-', FILE_PREFIX.length())));
+        } catch (final RuntimeException e) {
+            return -1;
+        }
+    }
+
+    // Signal logs in this directory, oldest first
+    private static List<Path> listLogs(final Path directory) {
+        try (var stream = Files.list(directory)) {
+            return stream
+                    .filter(path -> {
+                        final var name = path.getFileName().toString();
+                        return name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX);
+                    })
+                    .sorted(Comparator.comparingLong(SignalLogger::sequenceOf))
+                    .toList();
+        } catch (final IOException e) {
+            DriverStation.reportWarning("Couldn't list old logs: " + e, false);
+            return List.of();
+        }
+    }
+
+    // Delete the oldest signal logs until everything fits in the budget
+    private static void enforceBudget(final Path directory) {
+        try {
+            final var files = listLogs(directory);
+
+            var total = 0L;
+            for (final var path : files) {
+                total += Files.size(path);
+            }
+            for (var i = 0; i < files.size() - 1 && total > LogConstants.LOG_DISK_BUDGET_BYTES; i++) {
+                total -= Files.size(files.get(i));
+                Files.delete(files.get(i));
+            }
+        } catch (final IOException e) {
+            DriverStation.reportWarning("Couldn't clean up old logs: " + e, false);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package frc.robot.telemetry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.assabet.aztechs157.Expect;
+
+import edu.wpi.first.networktables.BooleanPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.wpilibj.RobotController;
+import frc.robot.Constants.LogConstants;
+
+/**
+ * Buffers values that subsystems publish during a loop and sends them to
+ * NetworkTables in one batch from {@link #flush()}, which {@link frc.robot.Robot}
+ * calls at the end of robotPeriodic(). Publishers are resolved once when a
+ * channel is created, so the control loop never does a string lookup. Every
+ * channel is also recorded by the {@link SignalLogger} under its topic name.
+ */
+public final class Telemetry {
+    private Telemetry() {
+        throw new UnsupportedOperationException("Telemetry is a utility class");
+    }
+
+    private static final List<Channel> channels = new ArrayList<>();
+
+    public static abstract class Channel {
+        private final int rateDivisor;
+        private int loopsSincePublish;
+        private boolean dirty = false;
+
+        private final int logId;
+        private int logDivisor = LogConstants.DEFAULT_LOG_DIVISOR;
+        private int loopsSinceLog;
+        private boolean logDirty = false;
+
+        protected Channel(final int rateDivisor, final int logId) {
+            Expect.number(rateDivisor).greaterOrEqual(1);
+            this.rateDivisor = rateDivisor;
+            // Let the first value through on the first flush
+            this.loopsSincePublish = rateDivisor;
+            this.logId = logId;
+            this.loopsSinceLog = logDivisor;
+        }
+
+        protected void markDirty() {
+            dirty = true;
+            logDirty = true;
+        }
+
+        /**
+         * Log this channel at most once every `logDivisor` loops instead of
+         * every loop.
+         */
+        public void setLogDivisor(final int logDivisor) {
+            Expect.number(logDivisor).greaterOrEqual(1);
+            this.logDivisor = logDivisor;
+            this.loopsSinceLog = logDivisor;
+        }
+
+        private void log(final long timestamp) {
+            if (loopsSinceLog < logDivisor) {
+                loopsSinceLog++;
+            }
+            if (!logDirty || loopsSinceLog < logDivisor) {
+                return;
+            }
+
+            loopsSinceLog = 0;
+            logDirty = false;
+            SignalLogger.record(logId, timestamp, logValue());
+        }
+
+        private void flush() {
+            if (loopsSincePublish < rateDivisor) {
+                loopsSincePublish++;
+            }
+            if (!dirty || loopsSincePublish < rateDivisor) {
+                return;
+            }
+
+            loopsSincePublish = 0;
+            dirty = false;
+            publish();
+        }
+
+        protected abstract void publish();
+
+        protected abstract double logValue();
+    }
+
+    public static class DoubleChannel extends Channel {
+        private final DoublePublisher publisher;
+        private double value = 0.0;
+
+        private DoubleChannel(final DoublePublisher publisher, final int rateDivisor) {
+            super(rateDivisor, SignalLogger.register(publisher.getTopic().getName(), false));
+            this.publisher = publisher;
+        }
+
+        public void set(final double value) {
+            this.value = value;
+            markDirty();
+        }
+
+        public double get() {
+            return value;
+        }
+
+        @Override
+        protected void publish() {
+            publisher.set(value);
+        }
+
+        @Override
+        protected double logValue() {
+            return value;
+        }
+    }
+
+    public static class BooleanChannel extends Channel {
+        private final BooleanPublisher publisher;
+        private boolean value = false;
+
+        private BooleanChannel(final BooleanPublisher publisher, final int rateDivisor) {
+            super(rateDivisor, SignalLogger.register(publisher.getTopic().getName(), true));
+            this.publisher = publisher;
+        }
+
+        public void set(final boolean value) {
+            this.value = value;
+            markDirty();
+        }
+
+        public boolean get() {
+            return value;
+        }
+
+        @Override
+        protected void publish() {
+            publisher.set(value);
+        }
+
+        @Override
+        protected double logValue() {
+            return value ? 1 : 0;
+        }
+    }
+
+    /**
+     * Create a channel that publishes every loop.
+     *
+     * @param table The table the topic lives in
+     * @param name  The topic name within the table
+     * @return The channel to buffer values into
+     */
+    public static DoubleChannel doubleChannel(final NetworkTable table, final String name) {
+        return doubleChannel(table, name, 1);
+    }
+
+    /**
+     * Create a channel that publishes at most once every `rateDivisor` loops.
+     *
+     * @param table       The table the topic lives in
+     * @param name        The topic name within the table
+     * @param rateDivisor How many loops to wait between publishes
+     * @return The channel to buffer values into
+     */
+    public static DoubleChannel doubleChannel(final NetworkTable table, final String name, final int rateDivisor) {
+        final var channel = new DoubleChannel(table.getDoubleTopic(name).publish(), rateDivisor);
+        channels.add(channel);
+        return channel;
+    }
+
+    public static BooleanChannel booleanChannel(final NetworkTable table, final String name) {
+        return booleanChannel(table, name, 1);
+    }
+
+    public static BooleanChannel booleanChannel(final NetworkTable table, final String name,
+            final int rateDivisor) {
+        final var channel = new BooleanChannel(table.getBooleanTopic(name).publish(), rateDivisor);
+        channels.add(channel);
+        return channel;
+    }
+
+    /**
+     * Publish every channel that has a new value and is due this loop. Call
+     * once at the end of each robot loop.
+     */
+    public static void flush() {
+        final var timestamp = RobotController.getFPGATime();
+        for (var i = 0; i < channels.size(); i++) {
+            final var channel = channels.get(i);
+            channel.flush();
+            channel.log(timestamp);
+        }
+    }
+}
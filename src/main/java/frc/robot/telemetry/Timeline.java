@@ -0,0 +1,91 @@
+package frc.robot.telemetry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.WrapperCommand;
+
+/**
+ * Records when each stage of a routine started and how long it ran. Stages
+ * are commands wrapped with {@link #stage(Command)}, which costs nothing
+ * unless a recording is in progress. Used by the auto simulator to find where
+ * autonomous time goes.
+ */
+public final class Timeline {
+    private Timeline() {
+        throw new UnsupportedOperationException("Timeline is a utility class");
+    }
+
+    /**
+     * One stage that ran.
+     *
+     * @param name        The stage's command name
+     * @param start       When it started, in seconds of FPGA time
+     * @param duration    How long it ran in seconds
+     * @param cutShort    Whether a timeout, race or interruption ended it
+     *                    instead of the stage finishing on its own
+     * @param idleSeconds How long it spent held by safety interlocks
+     */
+    public record Event(String name, double start, double duration, boolean cutShort, double idleSeconds) {
+    }
+
+    private static List<Event> events = null;
+
+    /** Start recording stages, dropping anything from a previous recording. */
+    public static void begin() {
+        events = new ArrayList<>();
+    }
+
+    /** @return Every stage that ended since {@link #begin()}, in order */
+    public static List<Event> end() {
+        final var recorded = events;
+        events = null;
+        return recorded != null ? recorded : List.of();
+    }
+
+    public static Command stage(final Command command) {
+        return stage(command, () -> 0);
+    }
+
+    /**
+     * @param command     The stage
+     * @param idleSeconds A running total of time spent held by interlocks, the
+     *                    stage records how much it went up while it ran
+     * @return The command, recorded as a stage
+     */
+    public static Command stage(final Command command, final DoubleSupplier idleSeconds) {
+        return new StageCommand(command, idleSeconds);
+    }
+
+    private static class StageCommand extends WrapperCommand {
+        private final DoubleSupplier idleSeconds;
+        private double start = 0;
+        private double idleAtStart = 0;
+
+        private StageCommand(final Command command, final DoubleSupplier idleSeconds) {
+            super(command);
+            this.idleSeconds = idleSeconds;
+        }
+
+        @Override
+        public void initialize() {
+            if (events != null) {
+                start = Timer.getFPGATimestamp();
+                idleAtStart = idleSeconds.getAsDouble();
+            }
+            super.initialize();
+        }
+
+        @Override
+        public void end(final boolean interrupted) {
+            super.end(interrupted);
+            if (events != null) {
+                events.add(new Event(getName(), start, Timer.getFPGATimestamp() - start, interrupted,
+                        idleSeconds.getAsDouble() - idleAtStart));
+            }
+        }
+    }
+}
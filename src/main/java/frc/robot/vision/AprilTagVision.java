@@ -0,0 +1,252 @@
+package frc.robot.vision;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+import edu.wpi.first.apriltag.AprilTagDetection;
+import edu.wpi.first.apriltag.AprilTagDetector;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.apriltag.AprilTagFields;
+import edu.wpi.first.apriltag.AprilTagPoseEstimator;
+import edu.wpi.first.cameraserver.CameraServer;
+import edu.wpi.first.cscore.CameraServerCvJNI;
+import edu.wpi.first.cscore.CvSink;
+import edu.wpi.first.cscore.UsbCamera;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Transform2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.util.WPIUtilJNI;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants.VisionConstants;
+import frc.robot.telemetry.LatencyHistogram;
+
+/**
+ * Finds AprilTags on its own thread and turns each one into a field pose for
+ * the robot. Frames come from the driver camera, or from a directory of images
+ * when timing the pipeline. The newest frame's poses wait in a mailbox that
+ * the robot loop empties with {@link #poll(Consumer)}, so neither side ever
+ * waits on the other. An unread frame is replaced by the next one.
+ *
+ * <p>
+ * Latency from capture to result and the time spent detecting are published
+ * under 157/Vision once every {@link VisionConstants#STATS_PERIOD_SECONDS}.
+ */
+public class AprilTagVision implements VisionSource {
+    /** Where frames come from. */
+    private interface FrameSource {
+        /**
+         * Wait for the next frame.
+         *
+         * @return When it was captured in seconds of FPGA time, or NaN if there
+         *         was no frame
+         */
+        double grab(Mat frame);
+    }
+
+    private static final VisionMeasurement[] NONE = new VisionMeasurement[0];
+
+    private final FrameSource source;
+    private final AprilTagDetector detector = new AprilTagDetector();
+    private final AprilTagPoseEstimator poseEstimator = new AprilTagPoseEstimator(new AprilTagPoseEstimator.Config(
+            VisionConstants.TAG_SIZE_METERS, VisionConstants.CAMERA_FX, VisionConstants.CAMERA_FY,
+            VisionConstants.CAMERA_CX, VisionConstants.CAMERA_CY));
+    private final AprilTagFieldLayout layout;
+    private final AtomicReference<VisionMeasurement[]> mailbox = new AtomicReference<>(NONE);
+
+    // Only touched by the vision thread
+    private final Mat frame = new Mat();
+    private final Mat gray = new Mat();
+    private final List<VisionMeasurement> found = new ArrayList<>();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram detectTime = new LatencyHistogram();
+    private long tagCount = 0;
+    private double lastStats = 0;
+
+    private final NetworkTable table = NetworkTableInstance.getDefault().getTable("157/Vision");
+    // Publishers rather than Telemetry channels, they're safe to use off the main thread
+    private final DoublePublisher fpsEntry = table.getDoubleTopic("FPS").publish();
+    private final DoublePublisher tagsEntry = table.getDoubleTopic("Tags Per Frame").publish();
+    private final DoublePublisher latencyP50Entry = table.getDoubleTopic("Latency p50 (ms)").publish();
+    private final DoublePublisher latencyP99Entry = table.getDoubleTopic("Latency p99 (ms)").publish();
+    private final DoublePublisher latencyMaxEntry = table.getDoubleTopic("Latency max (ms)").publish();
+    private final DoublePublisher detectP50Entry = table.getDoubleTopic("Detect p50 (ms)").publish();
+    private final DoublePublisher detectP99Entry = table.getDoubleTopic("Detect p99 (ms)").publish();
+
+    private AprilTagVision(final FrameSource source) {
+        this.source = source;
+
+        detector.addFamily(VisionConstants.TAG_FAMILY);
+        final var config = detector.getConfig();
+        config.quadDecimate = VisionConstants.DECIMATION;
+        config.numThreads = VisionConstants.DETECTOR_THREADS;
+        detector.setConfig(config);
+
+        try {
+            layout = AprilTagFields.k2023ChargedUp.loadAprilTagLayoutField();
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Couldn't load the AprilTag field layout", e);
+        }
+    }
+
+    /**
+     * Detect tags on a camera that's already streaming. The camera is switched
+     * to the resolution in {@link VisionConstants}, which the dashboard stream
+     * picks up as well.
+     */
+    public static AprilTagVision fromCamera(final UsbCamera camera) {
+        camera.setResolution(VisionConstants.CAMERA_WIDTH, VisionConstants.CAMERA_HEIGHT);
+        camera.setFPS(VisionConstants.CAMERA_FPS);
+        final CvSink sink = CameraServer.getVideo(camera);
+
+        final var vision = new AprilTagVision(frame -> {
+            final var frameMicros = sink.grabFrame(frame);
+            if (frameMicros == 0) {
+                return Double.NaN;
+            }
+            // Frame times are on the same clock as WPIUtilJNI.now(), which isn't always FPGA time
+            final var ageSeconds = (WPIUtilJNI.now() - frameMicros) / 1e6;
+            return Timer.getFPGATimestamp() - ageSeconds;
+        });
+        vision.start("AprilTag Vision");
+        return vision;
+    }
+
+    /**
+     * Run the pipeline over every image in a directory as fast as it can, over
+     * and over, to time it. Capture time is when each image finished loading,
+     * so the latency stats only cover detection. Poses are nonsense, so don't
+     * hand this to the drive.
+     */
+    public static AprilTagVision fromImages(final Path directory) {
+        final List<Path> images;
+        try (var files = Files.list(directory)) {
+            images = files.filter(file -> {
+                final var name = file.getFileName().toString().toLowerCase();
+                return name.endsWith(".png") || name.endsWith(".jpg") || name.endsWith(".jpeg");
+            }).sorted().toList();
+            // cscore loads OpenCV when a camera starts, here nothing has
+            CameraServerCvJNI.forceLoad();
+        } catch (final IOException e) {
+            DriverStation.reportError("Couldn't read vision images: " + e, e.getStackTrace());
+            return null;
+        }
+        if (images.isEmpty()) {
+            DriverStation.reportError("No images in " + directory, false);
+            return null;
+        }
+
+        final var next = new int[] { 0 };
+        final var vision = new AprilTagVision(frame -> {
+            final var image = Imgcodecs.imread(images.get(next[0]).toString());
+            next[0] = (next[0] + 1) % images.size();
+            image.copyTo(frame);
+            image.release();
+            return frame.empty() ? Double.NaN : Timer.getFPGATimestamp();
+        });
+        vision.start("AprilTag Benchmark");
+        return vision;
+    }
+
+    private void start(final String name) {
+        final var thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void poll(final Consumer<VisionMeasurement> consumer) {
+        for (final var measurement : mailbox.getAndSet(NONE)) {
+            consumer.accept(measurement);
+        }
+    }
+
+    private void run() {
+        lastStats = Timer.getFPGATimestamp();
+        while (!Thread.currentThread().isInterrupted()) {
+            final var captured = source.grab(frame);
+            if (Double.isNaN(captured)) {
+                continue;
+            }
+
+            final var detectStart = System.nanoTime();
+            Imgproc.cvtColor(frame, gray, Imgproc.COLOR_BGR2GRAY);
+            found.clear();
+            for (final var detection : detector.detect(gray)) {
+                addMeasurement(detection, captured);
+            }
+            final var detectEnd = System.nanoTime();
+            if (!found.isEmpty()) {
+                mailbox.set(found.toArray(NONE));
+            }
+
+            detectTime.record(detectEnd - detectStart);
+            latency.record((long) ((Timer.getFPGATimestamp() - captured) * 1e9));
+            tagCount += found.size();
+            publishStats();
+        }
+    }
+
+    private void addMeasurement(final AprilTagDetection detection, final double captured) {
+        if (detection.getDecisionMargin() < VisionConstants.MIN_DECISION_MARGIN
+                || detection.getHamming() > VisionConstants.MAX_HAMMING) {
+            return;
+        }
+        final var tagPose = layout.getTagPose(detection.getId());
+        if (tagPose.isEmpty()) {
+            return;
+        }
+
+        // The estimate is the tag in the camera's frame, x right, y down and z
+        // out of the lens. Flip it round to the camera in the tag's frame, then
+        // into the field layout's tag frame, x out of the tag's face and z up.
+        final var cameraToTag = poseEstimator.estimate(detection);
+        final var inverse = cameraToTag.getRotation().unaryMinus();
+        final var camera = cameraToTag.getTranslation().rotateBy(inverse).unaryMinus();
+        final var forward = new Translation3d(0, 0, 1).rotateBy(inverse);
+        final var cameraInTag = new Transform2d(new Translation2d(-camera.getZ(), camera.getX()),
+                new Rotation2d(-forward.getZ(), forward.getX()));
+
+        final Pose2d cameraPose = tagPose.get().toPose2d().transformBy(cameraInTag);
+        final var robotPose = cameraPose.transformBy(VisionConstants.ROBOT_TO_CAMERA.inverse());
+        final var distance = cameraToTag.getTranslation().getNorm();
+        found.add(new VisionMeasurement(robotPose, captured,
+                VisionConstants.XY_STD_DEV_PER_METER_SQUARED * distance * distance,
+                VisionConstants.TAG_HEADING_STD_DEV));
+    }
+
+    private void publishStats() {
+        final var now = Timer.getFPGATimestamp();
+        if (now - lastStats < VisionConstants.STATS_PERIOD_SECONDS) {
+            return;
+        }
+        final var frames = detectTime.getCount();
+        fpsEntry.set(frames / (now - lastStats));
+        tagsEntry.set(frames == 0 ? 0 : (double) tagCount / frames);
+        latencyP50Entry.set(latency.getPercentile(0.50) / 1e6);
+        latencyP99Entry.set(latency.getPercentile(0.99) / 1e6);
+        latencyMaxEntry.set(latency.getMax() / 1e6);
+        detectP50Entry.set(detectTime.getPercentile(0.50) / 1e6);
+        detectP99Entry.set(detectTime.getPercentile(0.99) / 1e6);
+
+        latency.reset();
+        detectTime.reset();
+        tagCount = 0;
+        lastStats = now;
+    }
+}
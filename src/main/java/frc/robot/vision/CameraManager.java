@@ -0,0 +1,229 @@
+package frc.robot.vision;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import edu.wpi.first.cscore.CameraServerJNI;
+import edu.wpi.first.cscore.MjpegServer;
+import edu.wpi.first.cscore.UsbCamera;
+import edu.wpi.first.cscore.VideoMode.PixelFormat;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.Constants.CameraConstants;
+import frc.robot.Constants.VisionConstants;
+import frc.robot.telemetry.LoopProfiler;
+import frc.robot.telemetry.Telemetry;
+
+/**
+ * Keeps the driver camera stream from starving the robot loop or the radio.
+ * Each mode gets its own {@link Profile}. On top of that the stream's frame
+ * rate is cut one level at a time while the loop runs long or the CPU is busy,
+ * and given back once both have stayed low for a while.
+ *
+ * <p>
+ * When something else relies on the camera's mode, the stream stays at the
+ * capture resolution so the server never has to decode and resize frames, and
+ * only the frame rate and compression follow the profile.
+ *
+ * <p>
+ * cscore doesn't time its own encoding, so what the stream costs is published
+ * under 157/Camera as the camera's data rate next to the CPU share of the
+ * robot program, which is where cscore's threads run. /proc is read on its own
+ * {@link Notifier} so the file reads stay out of the robot loop.
+ */
+public class CameraManager extends SubsystemBase {
+    /**
+     * How the stream is sent.
+     *
+     * @param quality JPEG quality from 0 to 100, or -1 to send the camera's
+     *                JPEGs as they are when the size matches the camera's
+     */
+    public record Profile(int width, int height, int fps, int quality) {
+    }
+
+    private static final Path SYSTEM_STAT = Path.of("/proc/stat");
+    private static final Path PROCESS_STAT = Path.of("/proc/self/stat");
+
+    private final UsbCamera camera;
+    private final MjpegServer server;
+    private final boolean ownsCamera;
+
+    private Profile profile = null;
+    private int throttleLevel = 0;
+    private double lastCheck = Double.NaN;
+    private double lowSince = Double.NaN;
+    private long loopNanosSum = 0;
+    private int loopCount = 0;
+
+    // CPU time in clock ticks at the last sample, -1 before the first one. Only
+    // touched by the CPU notifier.
+    private boolean cpuReadable = true;
+    private long lastSystemBusy = -1;
+    private long lastSystemTotal = -1;
+    private long lastProcessTicks = -1;
+    // Latest CPU load from the notifier, NaN until there is one
+    private volatile double cpuLoad = Double.NaN;
+    private volatile double processCpuLoad = Double.NaN;
+    private final Notifier cpuNotifier = new Notifier(this::sampleCpuLoad);
+
+    private final NetworkTable table = NetworkTableInstance.getDefault().getTable("157/Camera");
+    private final Telemetry.DoubleChannel throttleEntry = Telemetry.doubleChannel(table, "Throttle Level");
+    private final Telemetry.DoubleChannel fpsLimitEntry = Telemetry.doubleChannel(table, "Stream FPS Limit");
+    private final Telemetry.DoubleChannel cameraFpsEntry = Telemetry.doubleChannel(table, "Camera FPS");
+    private final Telemetry.DoubleChannel cameraMbpsEntry = Telemetry.doubleChannel(table, "Camera Mbps");
+    private final Telemetry.DoubleChannel loopEntry = Telemetry.doubleChannel(table, "Mean Loop (ms)");
+    private final Telemetry.DoubleChannel cpuEntry = Telemetry.doubleChannel(table, "CPU Load");
+    private final Telemetry.DoubleChannel processCpuEntry = Telemetry.doubleChannel(table, "Robot Program CPU");
+
+    /**
+     * @param camera     The driver camera
+     * @param server     The server streaming it
+     * @param ownsCamera Whether the camera's own video mode can follow the
+     *                   profiles. Leave it false when something else, like
+     *                   {@link AprilTagVision}, relies on the camera's mode.
+     */
+    public CameraManager(final UsbCamera camera, final MjpegServer server, final boolean ownsCamera) {
+        this.camera = camera;
+        this.server = server;
+        this.ownsCamera = ownsCamera;
+        // Turns on the camera's FPS and data rate measurements
+        CameraServerJNI.setTelemetryPeriod(CameraConstants.CHECK_PERIOD_SECONDS);
+        cpuNotifier.setName("CPU Load");
+        cpuNotifier.startPeriodic(CameraConstants.CHECK_PERIOD_SECONDS);
+    }
+
+    private static Profile profileForMode() {
+        if (DriverStation.isDisabled()) {
+            return CameraConstants.DISABLED_PROFILE;
+        }
+        return DriverStation.isAutonomous() ? CameraConstants.AUTO_PROFILE : CameraConstants.TELEOP_PROFILE;
+    }
+
+    private final LoopProfiler.Section periodicSection = LoopProfiler.section("CameraManager.periodic()");
+
+    @Override
+    public void periodic() {
+        periodicSection.start();
+        final var modeProfile = profileForMode();
+        if (modeProfile != profile) {
+            profile = modeProfile;
+            if (ownsCamera) {
+                camera.setVideoMode(PixelFormat.kMJPEG, profile.width(), profile.height(), profile.fps());
+                server.setResolution(profile.width(), profile.height());
+            } else {
+                server.setResolution(VisionConstants.CAMERA_WIDTH, VisionConstants.CAMERA_HEIGHT);
+            }
+            server.setCompression(profile.quality());
+            applyThrottle();
+        }
+
+        // The profiler has the previous loop's time, this one isn't over yet
+        loopNanosSum += LoopProfiler.getLastLoopNanos();
+        loopCount++;
+
+        final var now = Timer.getFPGATimestamp();
+        if (Double.isNaN(lastCheck)) {
+            lastCheck = now;
+        } else if (now - lastCheck >= CameraConstants.CHECK_PERIOD_SECONDS) {
+            lastCheck = now;
+            check(now);
+        }
+        periodicSection.stop();
+    }
+
+    private void check(final double now) {
+        final var meanLoopNanos = loopNanosSum / loopCount;
+        loopNanosSum = 0;
+        loopCount = 0;
+        final var cpuLoad = this.cpuLoad;
+
+        final var overloaded = meanLoopNanos > CameraConstants.LOOP_THROTTLE_NANOS
+                || cpuLoad > CameraConstants.CPU_THROTTLE_LOAD;
+        // An unknown CPU load doesn't hold back recovery
+        final var relaxed = meanLoopNanos < CameraConstants.LOOP_RECOVER_NANOS
+                && !(cpuLoad >= CameraConstants.CPU_RECOVER_LOAD);
+        if (overloaded) {
+            lowSince = Double.NaN;
+            if (throttleLevel < CameraConstants.MAX_THROTTLE_LEVEL) {
+                throttleLevel++;
+                applyThrottle();
+            }
+        } else if (relaxed && throttleLevel > 0) {
+            if (Double.isNaN(lowSince)) {
+                lowSince = now;
+            } else if (now - lowSince >= CameraConstants.RECOVER_SECONDS) {
+                lowSince = now;
+                throttleLevel--;
+                applyThrottle();
+            }
+        } else {
+            lowSince = Double.NaN;
+        }
+
+        throttleEntry.set(throttleLevel);
+        loopEntry.set(meanLoopNanos / 1e6);
+        if (!Double.isNaN(cpuLoad)) {
+            cpuEntry.set(cpuLoad);
+            processCpuEntry.set(processCpuLoad);
+        }
+        cameraFpsEntry.set(camera.getActualFPS());
+        cameraMbpsEntry.set(camera.getActualDataRate() * 8 / 1e6);
+    }
+
+    private void applyThrottle() {
+        final var fps = Math.max(CameraConstants.MIN_FPS, profile.fps() >> throttleLevel);
+        server.setFPS(fps);
+        fpsLimitEntry.set(fps);
+    }
+
+    /**
+     * Work out how busy the CPU was since the last sample, and how much of that
+     * was this program, as fractions of all cores. Runs on the CPU notifier and
+     * stops once /proc can't be read, like when simulating somewhere without it.
+     */
+    private void sampleCpuLoad() {
+        if (!cpuReadable) {
+            return;
+        }
+
+        final long systemBusy;
+        final long systemTotal;
+        final long processTicks;
+        try {
+            // First line is "cpu  user nice system idle iowait irq softirq steal ..." summed over all cores.
+            // Anything after steal is already counted in user and nice.
+            final var system = Files.readAllLines(SYSTEM_STAT).get(0).split("\\s+");
+            var total = 0L;
+            for (var i = 1; i <= 8 && i < system.length; i++) {
+                total += Long.parseLong(system[i]);
+            }
+            final var idle = Long.parseLong(system[4]) + Long.parseLong(system[5]);
+            systemBusy = total - idle;
+            systemTotal = total;
+
+            // The program name can have spaces in it, so fields are counted from after it.
+            // utime and stime are the 14th and 15th fields.
+            final var process = Files.readString(PROCESS_STAT);
+            final var fields = process.substring(process.lastIndexOf(')') + 2).split(" ");
+            processTicks = Long.parseLong(fields[11]) + Long.parseLong(fields[12]);
+        } catch (final IOException | RuntimeException e) {
+            DriverStation.reportWarning("Couldn't read CPU load, camera throttling only follows loop time", false);
+            cpuReadable = false;
+            return;
+        }
+
+        if (lastSystemTotal >= 0 && systemTotal > lastSystemTotal) {
+            final var elapsed = (double) (systemTotal - lastSystemTotal);
+            cpuLoad = (systemBusy - lastSystemBusy) / elapsed;
+            processCpuLoad = (processTicks - lastProcessTicks) / elapsed;
+        }
+        lastSystemBusy = systemBusy;
+        lastSystemTotal = systemTotal;
+        lastProcessTicks = processTicks;
+    }
+}
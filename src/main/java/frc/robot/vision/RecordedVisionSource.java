@@ -0,0 +1,101 @@
+package frc.robot.vision;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants.VisionConstants;
+
+/**
+ * Plays recorded detections back as if a camera saw them, so pose estimation
+ * can be tried in simulation without one. Each measurement is handed over once
+ * its recorded latency has passed, stamped with its capture time, the same way
+ * a real camera's results arrive late.
+ *
+ * <p>
+ * The file is CSV, one detection per line:
+ * {@code capture seconds, latency seconds, x meters, y meters, heading degrees}
+ * with optional position and heading standard deviations in meters and
+ * radians after that. Times count from when playback starts. Blank lines and
+ * lines starting with # are skipped.
+ */
+public class RecordedVisionSource implements VisionSource {
+    private record Detection(double captureSeconds, double arrivalSeconds, VisionMeasurement measurement) {
+    }
+
+    private final List<Detection> detections;
+    private int next = 0;
+    private double start = Double.NaN;
+
+    public RecordedVisionSource(final Path file) throws IOException {
+        detections = new ArrayList<>();
+        var lineNumber = 0;
+        for (final var line : Files.readAllLines(file)) {
+            lineNumber++;
+            final var trimmed = line.strip();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            detections.add(parse(trimmed, file, lineNumber));
+        }
+        detections.sort((a, b) -> Double.compare(a.arrivalSeconds(), b.arrivalSeconds()));
+    }
+
+    /**
+     * Open a recording for playback.
+     *
+     * @param file The recording
+     * @return The source, or null if the file couldn't be read
+     */
+    public static RecordedVisionSource open(final Path file) {
+        try {
+            return new RecordedVisionSource(file);
+        } catch (final IOException e) {
+            DriverStation.reportError("Couldn't open vision replay: " + e, e.getStackTrace());
+            return null;
+        }
+    }
+
+    private static Detection parse(final String line, final Path file, final int lineNumber) throws IOException {
+        final var fields = line.split(",");
+        if (fields.length != 5 && fields.length != 7) {
+            throw new IOException(file + ":" + lineNumber + " has " + fields.length + " fields, expected 5 or 7");
+        }
+        try {
+            final var values = new double[fields.length];
+            for (var i = 0; i < fields.length; i++) {
+                values[i] = Double.parseDouble(fields[i].strip());
+            }
+            final var pose = new Pose2d(values[2], values[3], Rotation2d.fromDegrees(values[4]));
+            final var xyStdDev = fields.length == 7 ? values[5] : VisionConstants.DEFAULT_XY_STD_DEV;
+            final var headingStdDev = fields.length == 7 ? values[6] : VisionConstants.DEFAULT_HEADING_STD_DEV;
+            // Timestamps are filled in relative to the start of playback
+            return new Detection(values[0], values[0] + values[1],
+                    new VisionMeasurement(pose, 0, xyStdDev, headingStdDev));
+        } catch (final NumberFormatException e) {
+            throw new IOException(file + ":" + lineNumber + " isn't a number: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void poll(final Consumer<VisionMeasurement> consumer) {
+        final var now = Timer.getFPGATimestamp();
+        if (Double.isNaN(start)) {
+            start = now;
+        }
+
+        while (next < detections.size() && detections.get(next).arrivalSeconds() <= now - start) {
+            final var detection = detections.get(next++);
+            final var recorded = detection.measurement();
+            consumer.accept(new VisionMeasurement(recorded.pose(), start + detection.captureSeconds(),
+                    recorded.xyStdDev(), recorded.headingStdDev()));
+        }
+    }
+}
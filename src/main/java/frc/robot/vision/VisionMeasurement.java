@@ -0,0 +1,14 @@
+package frc.robot.vision;
+
+import edu.wpi.first.math.geometry.Pose2d;
+
+/**
+ * A field pose seen by vision.
+ *
+ * @param pose           Where the robot was on the field
+ * @param timestamp      When the image was captured, in seconds of FPGA time
+ * @param xyStdDev       How far off the position could be, in meters
+ * @param headingStdDev  How far off the heading could be, in radians
+ */
+public record VisionMeasurement(Pose2d pose, double timestamp, double xyStdDev, double headingStdDev) {
+}
@@ -0,0 +1,15 @@
+package frc.robot.vision;
+
+import java.util.function.Consumer;
+
+/**
+ * Anything that sees where the robot is on the field, like a camera or a
+ * recording of one.
+ */
+public interface VisionSource {
+    /**
+     * Hand over every measurement that arrived since the last call. Called once
+     * per loop from the robot's main thread.
+     */
+    void poll(Consumer<VisionMeasurement> consumer);
+}
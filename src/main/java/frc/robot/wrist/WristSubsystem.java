@@ -8,9 +8,12 @@ import com.revrobotics.CANSparkMax;
 import com.revrobotics.CANSparkMax.IdleMode;
 import com.revrobotics.CANSparkMaxLowLevel.MotorType;
 
-import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.controller.SimpleMotorFeedforward;
 import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableEntry;
 import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.hal.SimDevice;
+import edu.wpi.first.hal.SimDouble;
 import edu.wpi.first.wpilibj.Counter;
 import edu.wpi.first.wpilibj.Counter.Mode;
 import edu.wpi.first.wpilibj2.command.Command;
@@ -19,13 +22,26 @@ import frc.robot.Constants.WristConstants;
 import frc.robot.elbow.ElbowSubsystem;
 import frc.robot.input.DriverInputs;
 import frc.robot.lib.NumberUtil;
+import frc.robot.lib.ProfiledJoint;
+import frc.robot.sensors.SensorSnapshot;
 import frc.robot.statemachines.SubsystemGroup.SafetyLogic;
+import frc.robot.telemetry.LoopProfiler;
+import frc.robot.telemetry.Telemetry;
+import frc.robot.telemetry.Timeline;
 
-public class WristSubsystem extends SubsystemBase {
+public class WristSubsystem extends SubsystemBase implements SensorSnapshot.Source {
 
     private final CANSparkMax wristMotor = new CANSparkMax(WristConstants.MOTOR_ID, MotorType.kBrushless);
     private final Counter wristAbsEncoder = new Counter(Mode.kSemiperiod);
     private double wristSpeed = 0.0;
+    private double wristOutput = 0.0;
+    private double wristPosition = 0.0;
+
+    // Counter has no simulation support, so in simulation the period comes from here
+    private final SimDevice simEncoder = SimDevice.create("Wrist Encoder");
+    private final SimDouble simPeriod = simEncoder != null
+            ? simEncoder.createDouble("Period", SimDevice.Direction.kInput, 0)
+            : null;
     private Double positiveInfinity = Double.POSITIVE_INFINITY;
     private Double negativeInfinity = Double.NEGATIVE_INFINITY;
 
@@ -35,16 +51,27 @@ public class WristSubsystem extends SubsystemBase {
         wristAbsEncoder.setSemiPeriodMode(true);
         wristAbsEncoder.setUpSource(WristConstants.ABS_ENCODER_ROTATION_ID);
         wristAbsEncoder.reset();
+        testSpeedEntry.setDefaultNumber(0);
+        testEncoderEntry.setDefaultNumber(0);
+        sampleSensors();
+    }
+
+    @Override
+    public void sampleSensors() {
+        final var period = simPeriod != null ? simPeriod.get() : wristAbsEncoder.getPeriod();
+        wristPosition = NumberUtil.ticksToDegs(period);
     }
 
     public Command runWrist(final DriverInputs inputs) {
+        final var axis = inputs.axis(DriverInputs.rotateWrist);
         return runEnd(() -> {
-            final double speed = inputs.axis(DriverInputs.rotateWrist).get();
+            final double speed = axis.get();
             final double position = getWristRotationPosition();
             if (position != positiveInfinity && position != negativeInfinity) {
                 rotateWrist(speed);
 
             } else {
+                wristOutput = speed;
                 wristMotor.set(speed);
             }
         }, () -> rotateWrist(0));
@@ -59,7 +86,7 @@ public class WristSubsystem extends SubsystemBase {
     }
 
     public double getWristRotationPosition() {
-        return NumberUtil.ticksToDegs(wristAbsEncoder.getPeriod());
+        return wristPosition;
     }
 
     public void rotateWrist(final double speed) {
@@ -67,23 +94,26 @@ public class WristSubsystem extends SubsystemBase {
 
         final double limitedSpeed = WristConstants.ROTATE_LIMITS.limitMotionWithinRange(
                 speed, getWristRotationPosition());
+        wristOutput = limitedSpeed;
         wristMotor.set(limitedSpeed);
     }
 
-    public void test() {
-        final var testTable = table.getSubTable("Test1");
-        final var output = testTable.getEntry("Output");
+    /** @return What the motor was last set to, after limits */
+    public double getMotorOutput() {
+        return wristOutput;
+    }
 
-        final var speedEntry = testTable.getEntry("Speed Input");
-        speedEntry.setDefaultNumber(0);
-        final var speed = speedEntry.getNumber(0).doubleValue();
+    private final NetworkTable testTable = NetworkTableInstance.getDefault().getTable("157/Arm/Test1");
+    private final Telemetry.DoubleChannel testOutputEntry = Telemetry.doubleChannel(testTable, "Output");
+    private final NetworkTableEntry testSpeedEntry = testTable.getEntry("Speed Input");
+    private final NetworkTableEntry testEncoderEntry = testTable.getEntry("Encoder Input");
 
-        final var encoderEntry = testTable.getEntry("Encoder Input");
-        encoderEntry.setDefaultNumber(0);
-        final var position = encoderEntry.getNumber(0).doubleValue();
+    public void test() {
+        final var speed = testSpeedEntry.getNumber(0).doubleValue();
+        final var position = testEncoderEntry.getNumber(0).doubleValue();
 
         final double limitedSpeed = WristConstants.ROTATE_LIMITS.limitMotionWithinRange(speed, position);
-        output.setNumber(limitedSpeed);
+        testOutputEntry.set(limitedSpeed);
     }
 
     public void stop() {
@@ -91,22 +121,32 @@ public class WristSubsystem extends SubsystemBase {
     }
 
     private final NetworkTable table = NetworkTableInstance.getDefault().getTable("157/Arm");
+    private final Telemetry.DoubleChannel wristEntry = Telemetry.doubleChannel(table, "Wrist");
+    private final Telemetry.DoubleChannel wristSpeedEntry = Telemetry.doubleChannel(table, "WristSpeed");
+
+    private final LoopProfiler.Section periodicSection = LoopProfiler.section("WristSubsystem.periodic()");
 
     @Override
     public void periodic() {
-        table.getEntry("Wrist").setNumber(getWristRotationPosition());
-        table.getEntry("WristSpeed").setNumber(wristSpeed);
+        periodicSection.start();
+        wristEntry.set(getWristRotationPosition());
+        wristSpeedEntry.set(wristSpeed);
         test();
+        periodicSection.stop();
     }
 
     public final Command turnDownToPos(double pos) {
-        return runWristSpeed(-0.3).until(() -> getWristRotationPosition() < pos);
+        return Timeline.stage(runWristSpeed(-0.3).until(() -> getWristRotationPosition() < pos)
+                .withName("Wrist Down To " + pos));
     }
 
     public static class WristState implements SafetyLogic {
 
         private double wristPosition;
-        public static PIDController pid = new PIDController(0.01, 0, 0);
+        public static final ProfiledJoint profile = new ProfiledJoint("Wrist", WristConstants.KP,
+                WristConstants.PROFILE,
+                ProfiledJoint.simple(new SimpleMotorFeedforward(WristConstants.KS, WristConstants.KV)),
+                WristConstants.TOLERANCE);
         private double minElbowPos;
 
         public WristState(final double wristPosition, final double minArmPos) {
@@ -143,13 +183,18 @@ public class WristSubsystem extends SubsystemBase {
             return start;
         }
 
+        @Override
+        public double getTarget() {
+            return wristPosition;
+        }
+
         @Override
         public double stateCalculate(double speed, double elbowPosition, double wristPosition, double elevatorPosition,
                 double carriagePosition) {
             // Runs the wrist for the states
-            double pidVal = pid.calculate(wristPosition, this.wristPosition);
-            if (elbowPosition > this.minElbowPos || pidVal > 0) {
-                return pidVal;
+            // Lifting the wrist is always safe
+            if (elbowPosition > this.minElbowPos || wristPosition < this.wristPosition) {
+                return profile.calculate(wristPosition, this.wristPosition);
             }
 
             return 0;
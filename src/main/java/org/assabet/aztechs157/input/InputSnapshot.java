@@ -0,0 +1,91 @@
+package org.assabet.aztechs157.input;
+
+import java.util.Arrays;
+
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * Every joystick axis, button and pov, read from the {@link DriverStation}
+ * once per loop into flat arrays. Inputs created with the
+ * {@code fromDriverStation} factories read from here, so every read during a
+ * loop is an array index and sees the same values.
+ */
+public final class InputSnapshot {
+    private InputSnapshot() {
+        throw new UnsupportedOperationException("InputSnapshot is a utility class");
+    }
+
+    public static final int PORTS = DriverStation.kJoystickPorts;
+    public static final int MAX_AXES = 12;
+    public static final int MAX_POVS = 12;
+
+    private static final int[] axisCounts = new int[PORTS];
+    private static final int[] buttonCounts = new int[PORTS];
+    private static final int[] povCounts = new int[PORTS];
+    private static final double[] axes = new double[PORTS * MAX_AXES];
+    private static final int[] buttons = new int[PORTS];
+    private static final int[] povs = new int[PORTS * MAX_POVS];
+    private static long generation = 0;
+
+    static {
+        Arrays.fill(povs, -1);
+    }
+
+    /** Read all joysticks. Call once at the start of each loop. */
+    public static void sample() {
+        for (var port = 0; port < PORTS; port++) {
+            final var axisCount = Math.min(DriverStation.getStickAxisCount(port), MAX_AXES);
+            axisCounts[port] = axisCount;
+            for (var axis = 0; axis < MAX_AXES; axis++) {
+                axes[port * MAX_AXES + axis] = axis < axisCount ? DriverStation.getStickAxis(port, axis) : 0.0;
+            }
+
+            buttonCounts[port] = DriverStation.getStickButtonCount(port);
+            buttons[port] = DriverStation.getStickButtons(port);
+
+            final var povCount = Math.min(DriverStation.getStickPOVCount(port), MAX_POVS);
+            povCounts[port] = povCount;
+            for (var pov = 0; pov < MAX_POVS; pov++) {
+                povs[port * MAX_POVS + pov] = pov < povCount ? DriverStation.getStickPOV(port, pov) : -1;
+            }
+        }
+        generation++;
+    }
+
+    /** @return How many times {@link #sample()} has run */
+    public static long getGeneration() {
+        return generation;
+    }
+
+    public static int getAxisCount(final int port) {
+        return axisCounts[port];
+    }
+
+    public static int getButtonCount(final int port) {
+        return buttonCounts[port];
+    }
+
+    public static int getPovCount(final int port) {
+        return povCounts[port];
+    }
+
+    /** @return Every button on the port as a bitmask, button 1 is the lowest bit */
+    public static int getButtons(final int port) {
+        return buttons[port];
+    }
+
+    public static double getAxis(final int port, final int axis) {
+        return axes[port * MAX_AXES + axis];
+    }
+
+    /**
+     * @param button Starting at 1, like {@link DriverStation#getStickButton}
+     */
+    public static boolean getButton(final int port, final int button) {
+        return (buttons[port] & (1 << (button - 1))) != 0;
+    }
+
+    public static int getPov(final int port, final int pov) {
+        return povs[port * MAX_POVS + pov];
+    }
+}
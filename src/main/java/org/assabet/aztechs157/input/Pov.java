@@ -5,8 +5,6 @@ import java.util.function.IntSupplier;
 import org.assabet.aztechs157.input.values.Axis;
 import org.assabet.aztechs157.input.values.Button;
 
-import edu.wpi.first.wpilibj.DriverStation;
-
 /**
  * Class for getting input from a pov.
  */
@@ -18,7 +16,7 @@ public class Pov {
     }
 
     public static Pov fromDriverStation(final int deviceId, final int povId) {
-        return new Pov(() -> DriverStation.getStickPOV(deviceId, povId));
+        return new Pov(() -> InputSnapshot.getPov(deviceId, povId));
     }
 
     public int get() {
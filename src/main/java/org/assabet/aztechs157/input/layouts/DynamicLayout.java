@@ -1,5 +1,10 @@
 package org.assabet.aztechs157.input.layouts;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.function.Supplier;
 
 import org.assabet.aztechs157.input.values.Axis;
@@ -9,10 +14,24 @@ import org.assabet.aztechs157.input.values.Button;
  * Object that manages layouts. A layout can be selected from Shuffleboard that
  * can then be used by the robot. It maps the inputs of a
  * {@link DynamicLayout} to the desired functions of the robot.
+ *
+ * Each key is given a slot the first time it's asked for, and the inputs for
+ * every slot are looked up again only when the selected layout changes. The
+ * layout supplier should return the same instance while a layout is selected.
  */
 public class DynamicLayout implements Layout {
     private final Supplier<Layout> layoutSupplier;
 
+    private final Map<Button.Key, Button> buttons = new HashMap<>();
+    private final List<Button.Key> buttonKeys = new ArrayList<>();
+    private Button[] resolvedButtons = new Button[0];
+
+    private final Map<Axis.Key, Axis> axes = new HashMap<>();
+    private final List<Axis.Key> axisKeys = new ArrayList<>();
+    private Axis[] resolvedAxes = new Axis[0];
+
+    private Layout resolvedLayout = null;
+
     public DynamicLayout(final Supplier<Layout> layoutSupplier) {
         this.layoutSupplier = layoutSupplier;
     }
@@ -21,6 +40,21 @@ public class DynamicLayout implements Layout {
         return layoutSupplier.get();
     }
 
+    private void resolve() {
+        final var current = getCurrent();
+        if (current == resolvedLayout) {
+            return;
+        }
+
+        resolvedLayout = current;
+        for (var slot = 0; slot < resolvedButtons.length; slot++) {
+            resolvedButtons[slot] = current.button(buttonKeys.get(slot));
+        }
+        for (var slot = 0; slot < resolvedAxes.length; slot++) {
+            resolvedAxes[slot] = current.axis(axisKeys.get(slot));
+        }
+    }
+
     /**
      * Get a button from the currently selected layout.
      *
@@ -28,7 +62,19 @@ public class DynamicLayout implements Layout {
      * @return A {@link Button} and {@link Button.Key} representing the input
      */
     public Button button(final Button.Key key) {
-        return new Button(null, () -> getCurrent().button(key).get());
+        return buttons.computeIfAbsent(key, newKey -> {
+            final var slot = buttonKeys.size();
+            buttonKeys.add(newKey);
+            resolvedButtons = Arrays.copyOf(resolvedButtons, slot + 1);
+            if (resolvedLayout != null) {
+                resolvedButtons[slot] = resolvedLayout.button(newKey);
+            }
+
+            return new Button(null, () -> {
+                resolve();
+                return resolvedButtons[slot].get();
+            });
+        });
     }
 
     /**
@@ -38,6 +84,18 @@ public class DynamicLayout implements Layout {
      * @return A {@link Axis} representing the input
      */
     public Axis axis(final Axis.Key key) {
-        return new Axis(null, () -> getCurrent().axis(key).get());
+        return axes.computeIfAbsent(key, newKey -> {
+            final var slot = axisKeys.size();
+            axisKeys.add(newKey);
+            resolvedAxes = Arrays.copyOf(resolvedAxes, slot + 1);
+            if (resolvedLayout != null) {
+                resolvedAxes[slot] = resolvedLayout.axis(newKey);
+            }
+
+            return new Axis(null, () -> {
+                resolve();
+                return resolvedAxes[slot].get();
+            });
+        });
     }
 }
@@ -0,0 +1,259 @@
+package org.assabet.aztechs157.input.replay;
+
+import java.util.Arrays;
+
+import org.assabet.aztechs157.input.InputSnapshot;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * One loop's worth of driver station input, and the binary encoding used by
+ * {@link InputRecorder} and {@link InputReplayer}. Frames are stored as the
+ * difference from the previous frame: only ports, axes and povs that changed
+ * are written, with every number packed as a varint. An idle controller costs
+ * a few bytes per loop.
+ *
+ * <pre>
+ * varint  timestamp change in microseconds (zigzag)
+ * byte    control bits: enabled, autonomous, test, ds attached
+ * byte    bitmask of ports that changed
+ * for each changed port:
+ *   byte    1 = counts changed, 2 = buttons changed
+ *   varint  bitmask of axes that changed
+ *   varint  bitmask of povs that changed
+ *   3 bytes axis, pov and button counts, if they changed
+ *   varint  buttons xor previous buttons, if they changed
+ *   varint  change in float bits for each changed axis (zigzag)
+ *   varint  change in angle for each changed pov (zigzag)
+ * </pre>
+ */
+public final class InputFrame {
+    public static final byte[] MAGIC = { '1', '5', '7', 'I' };
+    public static final int VERSION = 1;
+    // Bigger than the largest possible frame
+    public static final int MAX_ENCODED_SIZE = 1024;
+
+    static final int ENABLED = 1;
+    static final int AUTONOMOUS = 2;
+    static final int TEST = 4;
+    static final int DS_ATTACHED = 8;
+
+    private static final int PORTS = InputSnapshot.PORTS;
+    private static final int MAX_AXES = InputSnapshot.MAX_AXES;
+    private static final int MAX_POVS = InputSnapshot.MAX_POVS;
+
+    private static final int COUNTS_CHANGED = 1;
+    private static final int BUTTONS_CHANGED = 2;
+
+    long timestampMicros = 0;
+    int control = 0;
+    final int[] axisCounts = new int[PORTS];
+    final int[] povCounts = new int[PORTS];
+    final int[] buttonCounts = new int[PORTS];
+    final int[] buttons = new int[PORTS];
+    final int[] axisBits = new int[PORTS * MAX_AXES];
+    final int[] povs = new int[PORTS * MAX_POVS];
+
+    // Read position while decoding
+    private int cursor = 0;
+
+    public InputFrame() {
+        Arrays.fill(povs, -1);
+    }
+
+    /** Fill this frame from the latest {@link InputSnapshot}. */
+    void capture() {
+        timestampMicros = RobotController.getFPGATime();
+        control = (DriverStation.isEnabled() ? ENABLED : 0)
+                | (DriverStation.isAutonomous() ? AUTONOMOUS : 0)
+                | (DriverStation.isTest() ? TEST : 0)
+                | (DriverStation.isDSAttached() ? DS_ATTACHED : 0);
+
+        for (var port = 0; port < PORTS; port++) {
+            axisCounts[port] = InputSnapshot.getAxisCount(port);
+            povCounts[port] = InputSnapshot.getPovCount(port);
+            buttonCounts[port] = InputSnapshot.getButtonCount(port);
+            buttons[port] = InputSnapshot.getButtons(port);
+            for (var axis = 0; axis < MAX_AXES; axis++) {
+                // The driver station sends floats, so this is lossless
+                axisBits[port * MAX_AXES + axis] = Float.floatToRawIntBits((float) InputSnapshot.getAxis(port, axis));
+            }
+            for (var pov = 0; pov < MAX_POVS; pov++) {
+                povs[port * MAX_POVS + pov] = InputSnapshot.getPov(port, pov);
+            }
+        }
+    }
+
+    void copyFrom(final InputFrame other) {
+        timestampMicros = other.timestampMicros;
+        control = other.control;
+        System.arraycopy(other.axisCounts, 0, axisCounts, 0, PORTS);
+        System.arraycopy(other.povCounts, 0, povCounts, 0, PORTS);
+        System.arraycopy(other.buttonCounts, 0, buttonCounts, 0, PORTS);
+        System.arraycopy(other.buttons, 0, buttons, 0, PORTS);
+        System.arraycopy(other.axisBits, 0, axisBits, 0, axisBits.length);
+        System.arraycopy(other.povs, 0, povs, 0, povs.length);
+    }
+
+    public float getAxis(final int port, final int axis) {
+        return Float.intBitsToFloat(axisBits[port * MAX_AXES + axis]);
+    }
+
+    public long getTimestampMicros() {
+        return timestampMicros;
+    }
+
+    private int axisMask(final InputFrame previous, final int port) {
+        var mask = 0;
+        for (var axis = 0; axis < MAX_AXES; axis++) {
+            if (axisBits[port * MAX_AXES + axis] != previous.axisBits[port * MAX_AXES + axis]) {
+                mask |= 1 << axis;
+            }
+        }
+        return mask;
+    }
+
+    private int povMask(final InputFrame previous, final int port) {
+        var mask = 0;
+        for (var pov = 0; pov < MAX_POVS; pov++) {
+            if (povs[port * MAX_POVS + pov] != previous.povs[port * MAX_POVS + pov]) {
+                mask |= 1 << pov;
+            }
+        }
+        return mask;
+    }
+
+    private boolean countsChanged(final InputFrame previous, final int port) {
+        return axisCounts[port] != previous.axisCounts[port]
+                || povCounts[port] != previous.povCounts[port]
+                || buttonCounts[port] != previous.buttonCounts[port];
+    }
+
+    /**
+     * Write this frame as the change from the previous one.
+     *
+     * @return The offset just past the written frame
+     */
+    int encode(final InputFrame previous, final byte[] out, int offset) {
+        offset = writeVarLong(out, offset, zigzag(timestampMicros - previous.timestampMicros));
+        out[offset++] = (byte) control;
+
+        var changedPorts = 0;
+        for (var port = 0; port < PORTS; port++) {
+            if (countsChanged(previous, port) || buttons[port] != previous.buttons[port]
+                    || axisMask(previous, port) != 0 || povMask(previous, port) != 0) {
+                changedPorts |= 1 << port;
+            }
+        }
+        out[offset++] = (byte) changedPorts;
+
+        for (var port = 0; port < PORTS; port++) {
+            if ((changedPorts & (1 << port)) == 0) {
+                continue;
+            }
+
+            final var countsChanged = countsChanged(previous, port);
+            final var buttonsChanged = buttons[port] != previous.buttons[port];
+            final var axisMask = axisMask(previous, port);
+            final var povMask = povMask(previous, port);
+
+            out[offset++] = (byte) ((countsChanged ? COUNTS_CHANGED : 0) | (buttonsChanged ? BUTTONS_CHANGED : 0));
+            offset = writeVarLong(out, offset, axisMask);
+            offset = writeVarLong(out, offset, povMask);
+            if (countsChanged) {
+                out[offset++] = (byte) axisCounts[port];
+                out[offset++] = (byte) povCounts[port];
+                out[offset++] = (byte) buttonCounts[port];
+            }
+            if (buttonsChanged) {
+                offset = writeVarLong(out, offset, Integer.toUnsignedLong(buttons[port] ^ previous.buttons[port]));
+            }
+            for (var axis = 0; axis < MAX_AXES; axis++) {
+                if ((axisMask & (1 << axis)) != 0) {
+                    final var index = port * MAX_AXES + axis;
+                    offset = writeVarLong(out, offset, zigzag(axisBits[index] - previous.axisBits[index]));
+                }
+            }
+            for (var pov = 0; pov < MAX_POVS; pov++) {
+                if ((povMask & (1 << pov)) != 0) {
+                    final var index = port * MAX_POVS + pov;
+                    offset = writeVarLong(out, offset, zigzag(povs[index] - previous.povs[index]));
+                }
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Apply the next encoded frame on top of this one, which must hold the
+     * previous frame.
+     *
+     * @return The offset just past the read frame
+     */
+    int decode(final byte[] in, final int start) {
+        cursor = start;
+        timestampMicros += unzigzag(readVarLong(in));
+        control = in[cursor++];
+
+        final var changedPorts = in[cursor++];
+        for (var port = 0; port < PORTS; port++) {
+            if ((changedPorts & (1 << port)) == 0) {
+                continue;
+            }
+
+            final var flags = in[cursor++];
+            final var axisMask = (int) readVarLong(in);
+            final var povMask = (int) readVarLong(in);
+            if ((flags & COUNTS_CHANGED) != 0) {
+                axisCounts[port] = in[cursor++];
+                povCounts[port] = in[cursor++];
+                buttonCounts[port] = in[cursor++];
+            }
+            if ((flags & BUTTONS_CHANGED) != 0) {
+                buttons[port] ^= (int) readVarLong(in);
+            }
+            for (var axis = 0; axis < MAX_AXES; axis++) {
+                if ((axisMask & (1 << axis)) != 0) {
+                    axisBits[port * MAX_AXES + axis] += (int) unzigzag(readVarLong(in));
+                }
+            }
+            for (var pov = 0; pov < MAX_POVS; pov++) {
+                if ((povMask & (1 << pov)) != 0) {
+                    povs[port * MAX_POVS + pov] += (int) unzigzag(readVarLong(in));
+                }
+            }
+        }
+        return cursor;
+    }
+
+    private static long zigzag(final long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int writeVarLong(final byte[] out, int offset, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[offset++] = (byte) value;
+        return offset;
+    }
+
+    private long readVarLong(final byte[] in) {
+        var value = 0L;
+        var shift = 0;
+        while (true) {
+            final var b = in[cursor++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+}
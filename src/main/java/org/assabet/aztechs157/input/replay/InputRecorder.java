@@ -0,0 +1,126 @@
+package org.assabet.aztechs157.input.replay;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * Records every {@link org.assabet.aztechs157.input.InputSnapshot} to a file
+ * that {@link InputReplayer} can play back. Frames are encoded on the main
+ * thread into preallocated chunks and written out by a background thread, so
+ * recording never waits on flash. If the writer falls behind, frames are
+ * dropped rather than blocking the loop.
+ */
+public class InputRecorder {
+    private static final int CHUNK_SIZE = 16 * 1024;
+    private static final int CHUNK_COUNT = 4;
+    // Hand partly filled chunks to the writer this often, about 5 seconds
+    private static final int FLUSH_LOOPS = 250;
+
+    private static class Chunk {
+        private final byte[] bytes = new byte[CHUNK_SIZE];
+        private int length = 0;
+    }
+
+    private final BlockingQueue<Chunk> free = new ArrayBlockingQueue<>(CHUNK_COUNT);
+    private final BlockingQueue<Chunk> full = new ArrayBlockingQueue<>(CHUNK_COUNT);
+    private Chunk chunk = new Chunk();
+
+    private final InputFrame previous = new InputFrame();
+    private final InputFrame current = new InputFrame();
+    private final OutputStream out;
+    private int loopsSinceFlush = 0;
+    private long droppedFrames = 0;
+
+    public InputRecorder(final Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        out = Files.newOutputStream(file);
+
+        for (var i = 1; i < CHUNK_COUNT; i++) {
+            free.add(new Chunk());
+        }
+
+        System.arraycopy(InputFrame.MAGIC, 0, chunk.bytes, 0, InputFrame.MAGIC.length);
+        chunk.length = InputFrame.MAGIC.length;
+        chunk.bytes[chunk.length++] = (byte) InputFrame.VERSION;
+
+        final var writer = new Thread(this::write, "Input Recorder");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Start recording to a new timestamped file.
+     *
+     * @param directory Where to put the file
+     * @return The recorder, or null if the file couldn't be created
+     */
+    public static InputRecorder start(final Path directory) {
+        final var name = "inputs-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"))
+                + ".bin";
+        try {
+            return new InputRecorder(directory.resolve(name));
+        } catch (final IOException e) {
+            DriverStation.reportError("Couldn't start input recording: " + e, e.getStackTrace());
+            return null;
+        }
+    }
+
+    private void write() {
+        try {
+            while (true) {
+                final var next = full.take();
+                out.write(next.bytes, 0, next.length);
+                out.flush();
+                next.length = 0;
+                free.put(next);
+            }
+        } catch (final IOException | InterruptedException e) {
+            DriverStation.reportError("Input recording stopped: " + e, e.getStackTrace());
+        }
+    }
+
+    private void handOff() {
+        if (full.offer(chunk)) {
+            chunk = free.poll();
+        } else {
+            // Writer is stuck, drop what we have and keep going
+            chunk.length = 0;
+        }
+        loopsSinceFlush = 0;
+    }
+
+    /** Record the latest snapshot. Call once per loop, right after sampling. */
+    public void record() {
+        current.capture();
+
+        if (chunk == null) {
+            chunk = free.poll();
+        }
+        if (chunk == null) {
+            droppedFrames++;
+            return;
+        }
+
+        // A dropped frame doesn't update previous, so the next frame is still
+        // encoded against the last one actually written
+        chunk.length = current.encode(previous, chunk.bytes, chunk.length);
+        previous.copyFrom(current);
+
+        loopsSinceFlush++;
+        if (chunk.length + InputFrame.MAX_ENCODED_SIZE > CHUNK_SIZE || loopsSinceFlush >= FLUSH_LOOPS) {
+            handOff();
+        }
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+}
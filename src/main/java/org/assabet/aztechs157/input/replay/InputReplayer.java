@@ -0,0 +1,107 @@
+package org.assabet.aztechs157.input.replay;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.assabet.aztechs157.input.InputSnapshot;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+
+/**
+ * Plays a file from {@link InputRecorder} back through the simulated driver
+ * station, one recorded frame per loop. Everything downstream, including the
+ * robot's enabled state and mode, sees the same inputs it did when the file
+ * was recorded. Only works in simulation.
+ */
+public class InputReplayer {
+    private final byte[] log;
+    private int offset;
+    private final InputFrame frame = new InputFrame();
+    private boolean finished = false;
+
+    public InputReplayer(final Path file) throws IOException {
+        log = Files.readAllBytes(file);
+
+        final var header = InputFrame.MAGIC.length + 1;
+        if (log.length < header || !Arrays.equals(log, 0, InputFrame.MAGIC.length, InputFrame.MAGIC, 0,
+                InputFrame.MAGIC.length)) {
+            throw new IOException(file + " is not an input recording");
+        }
+        if (log[InputFrame.MAGIC.length] != InputFrame.VERSION) {
+            throw new IOException(file + " is version " + log[InputFrame.MAGIC.length] + ", expected "
+                    + InputFrame.VERSION);
+        }
+        offset = header;
+    }
+
+    /**
+     * Open a recording for playback.
+     *
+     * @param file The recording
+     * @return The replayer, or null if the file couldn't be read
+     */
+    public static InputReplayer open(final Path file) {
+        try {
+            return new InputReplayer(file);
+        } catch (final IOException e) {
+            DriverStation.reportError("Couldn't open input replay: " + e, e.getStackTrace());
+            return null;
+        }
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    private void finish() {
+        finished = true;
+        DriverStationSim.setEnabled(false);
+        DriverStationSim.notifyNewData();
+        DriverStation.reportWarning("Input replay finished", false);
+    }
+
+    /**
+     * Push the next recorded frame into the simulated driver station. Call once
+     * per loop, before sampling inputs.
+     */
+    public void step() {
+        if (finished) {
+            return;
+        }
+
+        if (offset >= log.length) {
+            finish();
+            return;
+        }
+
+        try {
+            offset = frame.decode(log, offset);
+        } catch (final ArrayIndexOutOfBoundsException e) {
+            // The last frame was cut off, most likely by a power loss
+            finish();
+            return;
+        }
+
+        DriverStationSim.setEnabled((frame.control & InputFrame.ENABLED) != 0);
+        DriverStationSim.setAutonomous((frame.control & InputFrame.AUTONOMOUS) != 0);
+        DriverStationSim.setTest((frame.control & InputFrame.TEST) != 0);
+        DriverStationSim.setDsAttached((frame.control & InputFrame.DS_ATTACHED) != 0);
+
+        for (var port = 0; port < InputSnapshot.PORTS; port++) {
+            DriverStationSim.setJoystickAxisCount(port, frame.axisCounts[port]);
+            DriverStationSim.setJoystickPOVCount(port, frame.povCounts[port]);
+            DriverStationSim.setJoystickButtonCount(port, frame.buttonCounts[port]);
+            DriverStationSim.setJoystickButtons(port, frame.buttons[port]);
+            for (var axis = 0; axis < frame.axisCounts[port]; axis++) {
+                DriverStationSim.setJoystickAxis(port, axis, frame.getAxis(port, axis));
+            }
+            for (var pov = 0; pov < frame.povCounts[port]; pov++) {
+                DriverStationSim.setJoystickPOV(port, pov, frame.povs[port * InputSnapshot.MAX_POVS + pov]);
+            }
+        }
+        DriverStationSim.notifyNewData();
+    }
+}
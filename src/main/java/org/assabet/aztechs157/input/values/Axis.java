@@ -4,14 +4,15 @@ import java.util.function.DoubleConsumer;
 import java.util.function.DoubleSupplier;
 import java.util.function.DoubleUnaryOperator;
 
+import org.assabet.aztechs157.input.InputSnapshot;
+import org.assabet.aztechs157.numbers.Deadzone;
 import org.assabet.aztechs157.numbers.Range;
 
-import edu.wpi.first.wpilibj.DriverStation;
-
 /**
  * Class for getting input from a axis. This class has methods and static
  * methods to modify and compose {@link Axis}s into a new
- * {@link Axis}.
+ * {@link Axis}. Transforms are recorded into an {@link AxisProgram} so reading
+ * a long chain is one loop rather than a call per transform.
  */
 public class Axis {
     public static record Key(String label) {
@@ -19,16 +20,20 @@ public class Axis {
 
     public static final Range kDeviceDefaultRange = new Range(-1, 1);
 
-    private final DoubleSupplier value;
+    private final AxisProgram program;
     public final String label;
 
     public Axis(final String label, final DoubleSupplier value) {
+        this(label, AxisProgram.of(value));
+    }
+
+    private Axis(final String label, final AxisProgram program) {
         this.label = label;
-        this.value = value;
+        this.program = program;
     }
 
     public static Axis fromDriverStation(final String label, final int deviceId, final int axisId) {
-        return new Axis(label, () -> DriverStation.getStickAxis(deviceId, axisId));
+        return new Axis(label, () -> InputSnapshot.getAxis(deviceId, axisId));
     }
 
     public static Axis always(final double value) {
@@ -36,11 +41,11 @@ public class Axis {
     }
 
     public double get() {
-        return value.getAsDouble();
+        return program.evaluate();
     }
 
     public Axis map(final DoubleUnaryOperator body) {
-        return new Axis(label, () -> body.applyAsDouble(get()));
+        return new Axis(label, program.map(body));
     }
 
     public Axis tap(final DoubleConsumer body) {
@@ -56,7 +61,7 @@ public class Axis {
      * @return A new inverted input
      */
     public Axis inverted() {
-        return map(value -> -value);
+        return new Axis(label, program.negate());
     }
 
     /**
@@ -66,7 +71,7 @@ public class Axis {
      * @return A new input with the scale applied
      */
     public Axis scaledBy(final double scale) {
-        return map(value -> value * scale);
+        return new Axis(label, program.scale(scale));
     }
 
     /**
@@ -76,15 +81,15 @@ public class Axis {
      * @return A new input with the scale applied
      */
     public Axis scaledBy(final DoubleSupplier scale) {
-        return map(value -> value * scale.getAsDouble());
+        return new Axis(label, program.scaleBy(scale));
     }
 
     public Axis offsetBy(final double offset) {
-        return map(value -> value + offset);
+        return new Axis(label, program.offset(offset));
     }
 
     public Axis offsetBy(final DoubleSupplier offset) {
-        return map(value -> value + offset.getAsDouble());
+        return new Axis(label, program.offsetBy(offset));
     }
 
     /**
@@ -94,6 +99,17 @@ public class Axis {
      * @return A new input with clamp applied
      */
     public Axis clampTo(final Range range) {
-        return map(value -> range.clamp(value));
+        return new Axis(label, program.clamp(range.start(), range.end()));
+    }
+
+    /**
+     * Apply a deadzone to the input. Gives the same result as
+     * {@code map(deadzone::apply)}, but can be merged with a following scale.
+     *
+     * @param deadzone The deadzone to apply
+     * @return A new input with the deadzone applied
+     */
+    public Axis deadzone(final Deadzone deadzone) {
+        return new Axis(label, program.deadzone(deadzone));
     }
 }
@@ -0,0 +1,244 @@
+package org.assabet.aztechs157.input.values;
+
+import java.util.Arrays;
+import java.util.function.DoubleSupplier;
+import java.util.function.DoubleUnaryOperator;
+
+import org.assabet.aztechs157.numbers.Deadzone;
+
+/**
+ * The transforms applied to an {@link Axis}, stored as a flat list of
+ * operations and run by a single loop instead of a chain of nested lambdas.
+ * Operations are folded together as they're added, but only where the result
+ * is bit for bit the same as running them one at a time.
+ */
+final class AxisProgram {
+    private static final byte NEGATE = 0;
+    private static final byte SCALE = 1;
+    private static final byte SCALE_BY = 2;
+    private static final byte OFFSET = 3;
+    private static final byte OFFSET_BY = 4;
+    private static final byte CLAMP = 5;
+    private static final byte DEADZONE = 6;
+    private static final byte MAP = 7;
+
+    private final DoubleSupplier source;
+    private final byte[] ops;
+    // Two per op
+    private final double[] constants;
+    private final Object[] references;
+
+    private AxisProgram(final DoubleSupplier source, final byte[] ops, final double[] constants,
+            final Object[] references) {
+        this.source = source;
+        this.ops = ops;
+        this.constants = constants;
+        this.references = references;
+    }
+
+    static AxisProgram of(final DoubleSupplier source) {
+        return new AxisProgram(source, new byte[0], new double[0], new Object[0]);
+    }
+
+    /**
+     * A deadzone followed by a constant scale, evaluated with the same
+     * arithmetic as {@link Deadzone#apply(double)} and then the multiply.
+     */
+    private static final class DeadzoneStep {
+        private final Deadzone deadzone;
+        private final double deadzoneStart;
+        private final double deadzoneEnd;
+        private final double leftStart;
+        private final double leftEnd;
+        private final double leftScale;
+        private final double leftOutput;
+        private final double rightStart;
+        private final double rightEnd;
+        private final double rightScale;
+        private final double rightOutput;
+        private final double scale;
+
+        private DeadzoneStep(final Deadzone deadzone, final double scale) {
+            this.deadzone = deadzone;
+            this.scale = scale;
+            deadzoneStart = deadzone.deadzone.start();
+            deadzoneEnd = deadzone.deadzone.end();
+            leftStart = deadzone.leftConverter.inputRange.start();
+            leftEnd = deadzone.leftConverter.inputRange.end();
+            leftScale = deadzone.leftConverter.scaleFactor;
+            leftOutput = deadzone.leftConverter.outputRange.start();
+            rightStart = deadzone.rightConverter.inputRange.start();
+            rightEnd = deadzone.rightConverter.inputRange.end();
+            rightScale = deadzone.rightConverter.scaleFactor;
+            rightOutput = deadzone.rightConverter.outputRange.start();
+        }
+
+        private double apply(final double input) {
+            final double value;
+            if (deadzoneStart <= input && input <= deadzoneEnd) {
+                value = 0;
+            } else if (leftStart <= input && input <= leftEnd) {
+                value = (input - leftStart) * leftScale + leftOutput;
+            } else if (rightStart <= input && input <= rightEnd) {
+                value = (input - rightStart) * rightScale + rightOutput;
+            } else {
+                // Out of range, let the deadzone throw its usual error
+                value = deadzone.apply(input);
+            }
+            return value * scale;
+        }
+    }
+
+    private static boolean isPowerOfTwo(final double value) {
+        final var magnitude = Math.abs(value);
+        return magnitude >= Double.MIN_NORMAL && magnitude <= Double.MAX_VALUE
+                && (Double.doubleToRawLongBits(magnitude) & 0x000FFFFFFFFFFFFFL) == 0;
+    }
+
+    // Multiplying by a power of two is exact, so (x * a) * b == x * (a * b)
+    // whenever either side is one and the product stays a normal number
+    private static boolean foldsExactly(final double a, final double b) {
+        final var product = Math.abs(a * b);
+        return (isPowerOfTwo(a) || isPowerOfTwo(b))
+                && product >= Double.MIN_NORMAL && product <= Double.MAX_VALUE;
+    }
+
+    private byte last() {
+        return ops[ops.length - 1];
+    }
+
+    private AxisProgram append(final byte op, final double a, final double b, final Object reference) {
+        final var length = ops.length;
+        final var newOps = Arrays.copyOf(ops, length + 1);
+        final var newConstants = Arrays.copyOf(constants, (length + 1) * 2);
+        final var newReferences = Arrays.copyOf(references, length + 1);
+        newOps[length] = op;
+        newConstants[length * 2] = a;
+        newConstants[length * 2 + 1] = b;
+        newReferences[length] = reference;
+        return new AxisProgram(source, newOps, newConstants, newReferences);
+    }
+
+    private AxisProgram replaceLast(final byte op, final double a, final double b, final Object reference) {
+        return dropLast().append(op, a, b, reference);
+    }
+
+    private AxisProgram dropLast() {
+        final var length = ops.length - 1;
+        return new AxisProgram(source, Arrays.copyOf(ops, length), Arrays.copyOf(constants, length * 2),
+                Arrays.copyOf(references, length));
+    }
+
+    AxisProgram negate() {
+        if (ops.length > 0) {
+            final var last = last();
+            if (last == NEGATE) {
+                return dropLast();
+            }
+            if (last == SCALE) {
+                return replaceLast(SCALE, -constants[(ops.length - 1) * 2], 0, null);
+            }
+            if (last == DEADZONE) {
+                final var step = (DeadzoneStep) references[ops.length - 1];
+                return replaceLast(DEADZONE, 0, 0, new DeadzoneStep(step.deadzone, -step.scale));
+            }
+        }
+        return append(NEGATE, 0, 0, null);
+    }
+
+    AxisProgram scale(final double scale) {
+        // x * 1 and x * -1 are exactly x and -x
+        if (scale == 1.0) {
+            return this;
+        }
+        if (scale == -1.0) {
+            return negate();
+        }
+
+        if (ops.length > 0) {
+            final var last = last();
+            if (last == NEGATE) {
+                return replaceLast(SCALE, -scale, 0, null);
+            }
+            final var previous = constants[(ops.length - 1) * 2];
+            if (last == SCALE && foldsExactly(previous, scale)) {
+                return replaceLast(SCALE, previous * scale, 0, null);
+            }
+            if (last == DEADZONE) {
+                final var step = (DeadzoneStep) references[ops.length - 1];
+                if (step.scale == 1.0) {
+                    return replaceLast(DEADZONE, 0, 0, new DeadzoneStep(step.deadzone, scale));
+                }
+                if (foldsExactly(step.scale, scale)) {
+                    return replaceLast(DEADZONE, 0, 0, new DeadzoneStep(step.deadzone, step.scale * scale));
+                }
+            }
+        }
+        return append(SCALE, scale, 0, null);
+    }
+
+    AxisProgram scaleBy(final DoubleSupplier scale) {
+        return append(SCALE_BY, 0, 0, scale);
+    }
+
+    // Sums aren't associative in floating point, so offsets are never folded
+    AxisProgram offset(final double offset) {
+        return append(OFFSET, offset, 0, null);
+    }
+
+    AxisProgram offsetBy(final DoubleSupplier offset) {
+        return append(OFFSET_BY, 0, 0, offset);
+    }
+
+    AxisProgram clamp(final double start, final double end) {
+        return append(CLAMP, start, end, null);
+    }
+
+    AxisProgram deadzone(final Deadzone deadzone) {
+        return append(DEADZONE, 0, 0, new DeadzoneStep(deadzone, 1.0));
+    }
+
+    AxisProgram map(final DoubleUnaryOperator body) {
+        return append(MAP, 0, 0, body);
+    }
+
+    double evaluate() {
+        var value = source.getAsDouble();
+        for (var i = 0; i < ops.length; i++) {
+            switch (ops[i]) {
+                case NEGATE:
+                    value = -value;
+                    break;
+                case SCALE:
+                    value = value * constants[i * 2];
+                    break;
+                case SCALE_BY:
+                    value = value * ((DoubleSupplier) references[i]).getAsDouble();
+                    break;
+                case OFFSET:
+                    value = value + constants[i * 2];
+                    break;
+                case OFFSET_BY:
+                    value = value + ((DoubleSupplier) references[i]).getAsDouble();
+                    break;
+                case CLAMP:
+                    // Same comparisons as Range.clamp
+                    if (value < constants[i * 2]) {
+                        value = constants[i * 2];
+                    } else if (value > constants[i * 2 + 1]) {
+                        value = constants[i * 2 + 1];
+                    }
+                    break;
+                case DEADZONE:
+                    value = ((DeadzoneStep) references[i]).apply(value);
+                    break;
+                case MAP:
+                    value = ((DoubleUnaryOperator) references[i]).applyAsDouble(value);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown axis operation " + ops[i]);
+            }
+        }
+        return value;
+    }
+}
@@ -3,8 +3,9 @@ package org.assabet.aztechs157.input.values;
 import java.util.function.BooleanSupplier;
 import java.util.function.UnaryOperator;
 
+import org.assabet.aztechs157.input.InputSnapshot;
+
 import edu.wpi.first.util.function.BooleanConsumer;
-import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.button.Trigger;
 
@@ -17,16 +18,20 @@ public class Button {
     public static record Key(String label) {
     }
 
-    private final BooleanSupplier value;
+    private final ButtonProgram program;
     public final String label;
 
     public Button(final String label, final BooleanSupplier value) {
+        this(label, ButtonProgram.of(value));
+    }
+
+    private Button(final String label, final ButtonProgram program) {
         this.label = label;
-        this.value = value;
+        this.program = program;
     }
 
     public static Button fromDriverStation(final String label, final int deviceId, final int buttonId) {
-        return new Button(label, () -> DriverStation.getStickButton(deviceId, buttonId));
+        return new Button(label, () -> InputSnapshot.getButton(deviceId, buttonId));
     }
 
     public static Button always(final boolean value) {
@@ -34,21 +39,21 @@ public class Button {
     }
 
     public boolean get() {
-        return value.getAsBoolean();
+        return program.evaluate();
     }
 
     public Button whenPressed(final Command command) {
-        new Trigger(value).onTrue(command);
+        new Trigger(this::get).onTrue(command);
         return this;
     }
 
     public Button whileHeld(final Command command) {
-        new Trigger(value).whileTrue(command);
+        new Trigger(this::get).whileTrue(command);
         return this;
     }
 
     public Button map(final UnaryOperator<Boolean> body) {
-        return new Button(label, () -> body.apply(get()));
+        return new Button(label, program.map(body));
     }
 
     public Button tap(final BooleanConsumer body) {
@@ -64,7 +69,7 @@ public class Button {
      * @return A new inverted input
      */
     public Button inverted() {
-        return map(value -> !value);
+        return new Button(label, program.invert());
     }
 
     /**
@@ -0,0 +1,50 @@
+package org.assabet.aztechs157.input.values;
+
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * The transforms applied to a {@link Button}, stored as a flat list of
+ * operations and run by a single loop. Back to back inversions cancel out.
+ */
+final class ButtonProgram {
+    private final BooleanSupplier source;
+    // null entries are inversions
+    private final UnaryOperator<Boolean>[] maps;
+
+    private ButtonProgram(final BooleanSupplier source, final UnaryOperator<Boolean>[] maps) {
+        this.source = source;
+        this.maps = maps;
+    }
+
+    @SuppressWarnings("unchecked")
+    static ButtonProgram of(final BooleanSupplier source) {
+        return new ButtonProgram(source, new UnaryOperator[0]);
+    }
+
+    private ButtonProgram append(final UnaryOperator<Boolean> map) {
+        final var newMaps = Arrays.copyOf(maps, maps.length + 1);
+        newMaps[maps.length] = map;
+        return new ButtonProgram(source, newMaps);
+    }
+
+    ButtonProgram invert() {
+        if (maps.length > 0 && maps[maps.length - 1] == null) {
+            return new ButtonProgram(source, Arrays.copyOf(maps, maps.length - 1));
+        }
+        return append(null);
+    }
+
+    ButtonProgram map(final UnaryOperator<Boolean> body) {
+        return append(body);
+    }
+
+    boolean evaluate() {
+        var value = source.getAsBoolean();
+        for (final var map : maps) {
+            value = map == null ? !value : map.apply(value);
+        }
+        return value;
+    }
+}
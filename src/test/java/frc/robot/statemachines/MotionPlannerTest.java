@@ -0,0 +1,78 @@
+package frc.robot.statemachines;
+
+import static frc.robot.statemachines.SubsystemGroup.JOINT_COUNT;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import frc.robot.statemachines.SubsystemGroup.Goal;
+
+class MotionPlannerTest {
+    // Finer than any segment between the map's thresholds
+    private static final double SAMPLE_SECONDS = 0.001;
+    private static final double POSITION_EPSILON = 1e-6;
+    private static final double TIME_EPSILON = 1e-9;
+
+    private final MotionPlanner planner = new MotionPlanner();
+
+    @ParameterizedTest
+    @EnumSource(Goal.class)
+    void presetsReachEveryGoal(final Goal from) {
+        for (final var to : Goal.values()) {
+            final var plan = planner.getPreset(from, to);
+            final var label = from + " to " + to;
+            assertTrue(plan.isComplete(), label + " is incomplete");
+            assertArrayEquals(MotionPlanner.targets(from), plan.getStart(), POSITION_EPSILON, label);
+            assertArrayEquals(MotionPlanner.targets(to), plan.getEnd(), POSITION_EPSILON, label);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(Goal.class)
+    void presetsBeatMovingOneJointAtATime(final Goal from) {
+        final var start = MotionPlanner.targets(from);
+        for (final var to : Goal.values()) {
+            final var end = MotionPlanner.targets(to);
+            // The reactive safety logic's order at best, every joint along its own profile in turn
+            var serialized = 0.0;
+            var jointsToMove = 0;
+            for (var joint = 0; joint < JOINT_COUNT; joint++) {
+                if (start[joint] != end[joint]) {
+                    serialized += planner.move(joint, 0, start[joint], end[joint]).end();
+                    jointsToMove++;
+                }
+            }
+
+            final var duration = planner.getPreset(from, to).getDuration();
+            final var label = from + " to " + to + " takes " + duration + " s, one at a time takes " + serialized + " s";
+            if (jointsToMove > 1) {
+                assertTrue(duration < serialized, label);
+            } else {
+                assertTrue(duration <= serialized + TIME_EPSILON, label);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(Goal.class)
+    void presetsAreCollisionFree(final Goal from) {
+        final var map = planner.getMap();
+        final var setpoint = new double[JOINT_COUNT];
+        final var velocity = new double[JOINT_COUNT];
+        for (final var to : Goal.values()) {
+            final var plan = planner.getPreset(from, to);
+            assertTrue(planner.verify(plan, to), from + " to " + to + " fails verification");
+
+            // Check along the whole path, not just where the planner split it
+            for (var time = 0.0; time < plan.getDuration(); time += SAMPLE_SECONDS) {
+                plan.sample(time, setpoint, velocity);
+                for (var joint = 0; joint < JOINT_COUNT; joint++) {
+                    assertTrue(velocity[joint] == 0 || map.allows(to, joint, setpoint),
+                            from + " to " + to + " moves joint " + joint + " where it isn't allowed at " + time + " s");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.assabet.aztechs157.input.replay;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class InputFrameTest {
+    private static final int PORTS = 6;
+    private static final int MAX_AXES = 12;
+    private static final int MAX_POVS = 12;
+
+    private static void assertFramesEqual(final InputFrame expected, final InputFrame actual) {
+        assertEquals(expected.timestampMicros, actual.timestampMicros);
+        assertEquals(expected.control, actual.control);
+        assertArrayEquals(expected.axisCounts, actual.axisCounts);
+        assertArrayEquals(expected.povCounts, actual.povCounts);
+        assertArrayEquals(expected.buttonCounts, actual.buttonCounts);
+        assertArrayEquals(expected.buttons, actual.buttons);
+        assertArrayEquals(expected.axisBits, actual.axisBits);
+        assertArrayEquals(expected.povs, actual.povs);
+    }
+
+    // A frame that changes a few things from the last one, like a driver would
+    private static InputFrame next(final Random random, final InputFrame previous) {
+        final var frame = new InputFrame();
+        frame.copyFrom(previous);
+        frame.timestampMicros += 20_000 + random.nextInt(2_000) - 1_000;
+        frame.control = random.nextInt(16);
+        final var port = random.nextInt(PORTS);
+        if (random.nextInt(10) == 0) {
+            frame.axisCounts[port] = random.nextInt(MAX_AXES + 1);
+            frame.povCounts[port] = random.nextInt(MAX_POVS + 1);
+            frame.buttonCounts[port] = random.nextInt(33);
+        }
+        frame.buttons[port] ^= random.nextInt();
+        frame.axisBits[port * MAX_AXES + random.nextInt(MAX_AXES)] = Float
+                .floatToRawIntBits(random.nextFloat() * 2 - 1);
+        frame.povs[port * MAX_POVS + random.nextInt(MAX_POVS)] = random.nextInt(9) * 45 - 45;
+        return frame;
+    }
+
+    private static List<InputFrame> roundTrip(final List<InputFrame> frames) {
+        final var bytes = new byte[frames.size() * InputFrame.MAX_ENCODED_SIZE];
+        var length = 0;
+        var previous = new InputFrame();
+        for (final var frame : frames) {
+            final var end = frame.encode(previous, bytes, length);
+            assertTrue(end - length <= InputFrame.MAX_ENCODED_SIZE);
+            length = end;
+            previous = frame;
+        }
+
+        final var decoded = new ArrayList<InputFrame>();
+        final var replayed = new InputFrame();
+        var offset = 0;
+        while (offset < length) {
+            offset = replayed.decode(bytes, offset);
+            final var copy = new InputFrame();
+            copy.copyFrom(replayed);
+            decoded.add(copy);
+        }
+        assertEquals(length, offset);
+        return decoded;
+    }
+
+    @Test
+    void replaysRecordedFrames() {
+        final var random = new Random(157);
+        final var frames = new ArrayList<InputFrame>();
+        var frame = new InputFrame();
+        for (var i = 0; i < 5000; i++) {
+            frame = next(random, frame);
+            frames.add(frame);
+        }
+
+        final var decoded = roundTrip(frames);
+        assertEquals(frames.size(), decoded.size());
+        for (var i = 0; i < frames.size(); i++) {
+            assertFramesEqual(frames.get(i), decoded.get(i));
+        }
+    }
+
+    @Test
+    void replaysFramesWhereEverythingChanges() {
+        // Extremes in every field, on every port at once
+        final var frame = new InputFrame();
+        frame.timestampMicros = Long.MAX_VALUE / 2;
+        frame.control = InputFrame.ENABLED | InputFrame.AUTONOMOUS | InputFrame.TEST | InputFrame.DS_ATTACHED;
+        for (var port = 0; port < PORTS; port++) {
+            frame.axisCounts[port] = MAX_AXES;
+            frame.povCounts[port] = MAX_POVS;
+            frame.buttonCounts[port] = 32;
+            frame.buttons[port] = -1;
+            for (var axis = 0; axis < MAX_AXES; axis++) {
+                frame.axisBits[port * MAX_AXES + axis] = Float.floatToRawIntBits(axis % 2 == 0 ? -1 : Float.NaN);
+            }
+            for (var pov = 0; pov < MAX_POVS; pov++) {
+                frame.povs[port * MAX_POVS + pov] = 315;
+            }
+        }
+        // Then back to nothing, which goes backwards in time
+        final var empty = new InputFrame();
+
+        final var frames = List.of(frame, empty, frame);
+        final var decoded = roundTrip(frames);
+        for (var i = 0; i < frames.size(); i++) {
+            assertFramesEqual(frames.get(i), decoded.get(i));
+        }
+    }
+
+    @Test
+    void unchangedFramesAreSmall() {
+        final var frame = new InputFrame();
+        final var idle = new InputFrame();
+        idle.copyFrom(frame);
+        idle.timestampMicros += 20_000;
+
+        final var bytes = new byte[InputFrame.MAX_ENCODED_SIZE];
+        assertTrue(idle.encode(frame, bytes, 0) <= 5);
+    }
+}